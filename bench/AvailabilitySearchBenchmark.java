@@ -0,0 +1,76 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Compara a pesquisa de quartos livres por capacidade (grupos de capacidade + calendário de ocupação)
+// com a verificação de conflitos quarto a quarto, num hotel com muitos quartos e um ano de reservas.
+// Execução: java -cp out AvailabilitySearchBenchmark [quartos] [reservas]   (por omissão 50000 e 500000)
+public class AvailabilitySearchBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int roomCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int reservationCount = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+        System.setProperty("hotel.journal.compactAfter", String.valueOf(Integer.MAX_VALUE));
+
+        File dir = Files.createTempDirectory("hotel-search").toFile();
+        HotelEngine engine = new HotelEngine(dir);
+        engine.load();
+        Random random = new Random(11);
+        for (int i = 0; i < roomCount; i++) engine.addRoom(100 + i, 1 + random.nextInt(6));
+        int guestId = engine.addGuest("Teste", "teste@hotel.pt", 0, "CC", 1).getId();
+
+        LocalDate base = LocalDate.of(2030, 1, 1);
+        int booked = 0;
+        for (int i = 0; i < reservationCount; i++) {
+            LocalDate in = base.plusDays(random.nextInt(365));
+            if (engine.bookRoom(1 + random.nextInt(roomCount), guestId, 1, in, in.plusDays(random.nextInt(7))).isOk()) booked++;
+        }
+        List<Room> rooms = engine.rooms();
+        System.out.printf("%d quartos, %d reservas ativas%n", roomCount, booked);
+
+        int queries = 2000;
+        int[] guests = new int[queries];
+        LocalDate[] starts = new LocalDate[queries];
+        LocalDate[] ends = new LocalDate[queries];
+        for (int i = 0; i < queries; i++) {
+            guests[i] = 1 + random.nextInt(6);
+            starts[i] = base.plusDays(random.nextInt(365));
+            ends[i] = starts[i].plusDays(random.nextInt(7));
+        }
+
+        long found = 0;
+        for (int round = 0; round < 3; round++) { // As primeiras voltas servem de aquecimento
+            long t0 = System.nanoTime();
+            for (int i = 0; i < queries; i++) found += engine.searchAvailableRooms(guests[i], starts[i], ends[i]).size();
+            long bucketed = System.nanoTime() - t0;
+
+            t0 = System.nanoTime();
+            for (int i = 0; i < queries; i++) found += scanEachRoom(engine, rooms, guests[i], starts[i], ends[i]).size();
+            long perRoom = System.nanoTime() - t0;
+
+            t0 = System.nanoTime();
+            for (int i = 0; i < queries; i++) found += engine.searchAvailableRooms(guests[i], starts[i], ends[i], 20).size();
+            long firstTwenty = System.nanoTime() - t0;
+
+            System.out.printf("volta %d: por capacidade %.1f µs, primeiros 20 %.1f µs, quarto a quarto %.1f µs (média por pesquisa)%n",
+                    round + 1, bucketed / 1e3 / queries, firstTwenty / 1e3 / queries, perRoom / 1e3 / queries);
+        }
+        if (found == 42) System.out.println(); // Impede que o JIT elimine as pesquisas
+
+        engine.close();
+        for (File f : dir.listFiles()) f.delete();
+        dir.delete();
+    }
+
+    // Alternativa sem índices de capacidade: um hasConflict por quarto com capacidade suficiente
+    static List<Room> scanEachRoom(HotelEngine engine, List<Room> rooms, int guests, LocalDate start, LocalDate end) {
+        List<Room> out = new ArrayList<>();
+        for (Room room : rooms) {
+            if (room.getCapacity() >= guests && !engine.hasConflict(room.getId(), start, end, -1)) out.add(room);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,113 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Teste de carga das reservas concorrentes: várias threads reservam (e cancelam algumas) quartos e datas ao acaso no mesmo HotelEngine.
+// No fim confirma que nenhum quarto ficou com reservas ativas sobrepostas e que os ids não se repetem,
+// e mostra o débito (reservas tentadas por segundo) para cada número de threads.
+// Execução: java -cp out ConcurrentBookingStress [quartos] [tentativas por thread]   (por omissão 2000 e 50000)
+public class ConcurrentBookingStress {
+
+    public static void main(String[] args) throws Exception {
+        int roomCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int attempts = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        System.setProperty("hotel.journal.compactAfter", String.valueOf(Integer.MAX_VALUE)); // Mede só as reservas
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int t = 1; t <= Math.max(8, cores * 2); t *= 2) threadCounts.add(t);
+
+        System.out.printf("%d núcleos, %d quartos, %d tentativas por thread%n", cores, roomCount, attempts);
+        System.out.printf("%8s %12s %12s %14s %10s%n", "threads", "aceites", "conflitos", "tentativas/s", "válido");
+
+        for (int threads : threadCounts) {
+            File dir = Files.createTempDirectory("hotel-stress").toFile();
+            HotelEngine engine = new HotelEngine(dir);
+            engine.load();
+            for (int i = 0; i < roomCount; i++) engine.addRoom(100 + i, 1 + i % 6);
+            int guestId = engine.addGuest("Teste", "teste@hotel.pt", 0, "CC", 1).getId();
+
+            AtomicInteger accepted = new AtomicInteger();
+            AtomicInteger conflicts = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            LocalDate base = LocalDate.of(2030, 1, 1);
+
+            for (int t = 0; t < threads; t++) {
+                long seed = 31L * t + threads;
+                Thread worker = new Thread(() -> {
+                    Random random = new Random(seed);
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < attempts; i++) {
+                        int roomId = 1 + random.nextInt(roomCount);
+                        LocalDate in = base.plusDays(random.nextInt(365));
+                        LocalDate out = in.plusDays(random.nextInt(7));
+                        Result r = engine.bookRoom(roomId, guestId, 1, in, out);
+                        if (r.isOk()) {
+                            accepted.incrementAndGet();
+                            if (random.nextInt(10) == 0) engine.cancelReservation(r.getId()); // Liberta datas para as outras threads
+                        } else if (r.getCode() == Result.Code.CONFLICT) {
+                            conflicts.incrementAndGet();
+                        }
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+
+            long t0 = System.nanoTime();
+            start.countDown();
+            for (Thread worker : workers) worker.join();
+            long elapsed = System.nanoTime() - t0;
+
+            boolean valid = verify(engine, roomCount, accepted.get());
+            double perSecond = (double) threads * attempts / (elapsed / 1e9);
+            System.out.printf("%8d %12d %12d %14.0f %10s%n", threads, accepted.get(), conflicts.get(), perSecond, valid ? "sim" : "NÃO");
+
+            engine.close();
+            deleteAll(dir);
+        }
+    }
+
+    // Não pode haver ids repetidos nem duas reservas ativas do mesmo quarto com dias em comum
+    static boolean verify(HotelEngine engine, int roomCount, int accepted) {
+        List<Reservation> active = new ArrayList<>();
+        BitSet ids = new BitSet();
+        boolean[] ok = {true};
+        int[] total = {0};
+
+        engine.forEachReservation(r -> {
+            if (ids.get(r.getId())) ok[0] = false;
+            ids.set(r.getId());
+            if (r.isActive()) active.add(r);
+            total[0]++;
+        });
+        if (total[0] != accepted) return false;
+
+        // Ordenadas por quarto e check-in (chave long), cada reserva tem de começar depois do fim da anterior do mesmo quarto
+        active.sort((a, b) -> Long.compare(ReservationStore.roomDayKey(a.getRoomId(), a.getStartDay()), ReservationStore.roomDayKey(b.getRoomId(), b.getStartDay())));
+        for (int i = 1; i < active.size(); i++) {
+            Reservation previous = active.get(i - 1);
+            Reservation r = active.get(i);
+            if (r.getRoomId() == previous.getRoomId() && r.getStartDay() <= previous.getEndDay()) return false;
+        }
+        return ok[0];
+    }
+
+    static void deleteAll(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) Files.deleteIfExists(f.toPath());
+        Files.deleteIfExists(dir.toPath());
+    }
+}
@@ -0,0 +1,185 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+// Conjunto de benchmarks das operações principais do HotelEngine, sobre dados gerados pelo HotelDataGenerator.
+// Cada benchmark tem voltas de aquecimento (para o JIT) e voltas medidas; mostra a média e o desvio padrão
+// em ns por operação (ou ms nas leituras/escritas completas). Os resultados vão também para um CSV,
+// para comparar execuções e detetar regressões.
+// Execução: java -Xmx4g -cp out HotelBenchmarks [quartos] [hóspedes] [dias] [filtro] [ficheiro.csv]
+//           (por omissão 5000 quartos, 50000 hóspedes, 365 dias, todos os benchmarks, sem CSV)
+public class HotelBenchmarks {
+
+    static final int WARMUP_ROUNDS = 5;
+    static final int MEASURED_ROUNDS = 8;
+    static final long ROUND_NANOS = 200_000_000L; // Duração mínima de cada volta
+    static final int INPUTS = 1 << 16; // Entradas aleatórias pré-calculadas (potência de 2)
+
+    static long sink; // Resultados acumulados, para o JIT não eliminar as chamadas
+
+    public static void main(String[] args) throws IOException {
+        int roomCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int guestCount = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        int days = args.length > 2 ? Integer.parseInt(args[2]) : 365;
+        String filter = args.length > 3 ? args[3] : "";
+        File report = args.length > 4 ? new File(args[4]) : null;
+        System.setProperty("hotel.journal.compactAfter", String.valueOf(Integer.MAX_VALUE));
+
+        File dir = Files.createTempDirectory("hotel-bench").toFile();
+        LocalDate from = LocalDate.of(2030, 1, 1);
+        int reservationCount = HotelDataGenerator.generate(dir, roomCount, guestCount, from, days, 0.7, 1);
+        System.out.printf("Dados: %d quartos, %d hóspedes, %d reservas (%d dias)%n%n", roomCount, guestCount, reservationCount, days);
+
+        HotelEngine engine = new HotelEngine(dir);
+        engine.load();
+
+        // Entradas aleatórias, iguais em todas as execuções
+        Random random = new Random(99);
+        int[] roomIds = new int[INPUTS];
+        int[] guestIds = new int[INPUTS];
+        int[] reservationIds = new int[INPUTS];
+        LocalDate[] starts = new LocalDate[INPUTS];
+        LocalDate[] ends = new LocalDate[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            roomIds[i] = 1 + random.nextInt(roomCount);
+            guestIds[i] = 1 + random.nextInt(guestCount);
+            reservationIds[i] = 1 + random.nextInt(Math.max(1, reservationCount));
+            starts[i] = from.plusDays(random.nextInt(days));
+            ends[i] = starts[i].plusDays(random.nextInt(7));
+        }
+        String[] csvLines = sampleCsvLines(dir);
+
+        List<Measurement> results = new ArrayList<>();
+        int mask = INPUTS - 1;
+
+        run(results, filter, "hasConflict", i -> engine.hasConflict(roomIds[i & mask], starts[i & mask], ends[i & mask], -1) ? 1 : 0);
+        run(results, filter, "findRoom", i -> engine.findRoom(roomIds[i & mask]).getCapacity());
+        run(results, filter, "findGuest", i -> engine.findGuest(guestIds[i & mask]).getContact());
+        run(results, filter, "findReservation", i -> engine.findReservation(reservationIds[i & mask]).getRoomId());
+        run(results, filter, "isRoomOccupied", i -> engine.isRoomOccupied(roomIds[i & mask], starts[i & mask]) ? 1 : 0);
+        run(results, filter, "checkAvailability", i -> engine.checkAvailability(roomIds[i & mask], starts[i & mask], ends[i & mask]).getCode().ordinal());
+        run(results, filter, "searchAvailableRooms(20)", i -> engine.searchAvailableRooms(1 + (i & 3), starts[i & mask], ends[i & mask], 20).size());
+        run(results, filter, "splitCsvLine", i -> HotelEngine.splitCsvLine(csvLines[i % csvLines.length]).length);
+
+        // Leituras e escritas completas: uma operação = ler ou gravar as três tabelas
+        File bin = new File(dir, HotelEngine.RESERVATIONS_SNAPSHOT);
+        runOnce(results, filter, "load (CSV)", () -> {
+            deleteSnapshots(dir);
+            HotelEngine e = new HotelEngine(dir);
+            e.load();
+            int n = e.reservationCount();
+            e.close();
+            return n;
+        });
+        engine.compactJournal(); // Escreve as cópias binárias
+        runOnce(results, filter, "load (cópia binária)", () -> {
+            if (!bin.exists()) engine.compactJournal();
+            HotelEngine e = new HotelEngine(dir);
+            e.load();
+            int n = e.reservationCount();
+            e.close();
+            return n;
+        });
+        runOnce(results, filter, "save (CSV + cópia binária)", () -> {
+            engine.compactJournal();
+            return (int) bin.length();
+        });
+
+        if (report != null) writeReport(report, results, roomCount, guestCount, reservationCount);
+        if (sink == 42) System.out.println();
+
+        engine.close();
+        for (File f : dir.listFiles()) f.delete();
+        dir.delete();
+    }
+
+    record Measurement(String name, String unit, double mean, double stdDev) {}
+
+    // Benchmark de operações curtas: cada volta repete a operação até passar ROUND_NANOS
+    static void run(List<Measurement> results, String filter, String name, IntUnaryOperator op) {
+        if (!name.contains(filter)) return;
+        double[] rounds = new double[MEASURED_ROUNDS];
+        int i = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long ops = 0;
+            long t0 = System.nanoTime();
+            long elapsed;
+            do {
+                for (int k = 0; k < 1024; k++) sink += op.applyAsInt(i++);
+                ops += 1024;
+                elapsed = System.nanoTime() - t0;
+            } while (elapsed < ROUND_NANOS);
+            if (round >= WARMUP_ROUNDS) rounds[round - WARMUP_ROUNDS] = (double) elapsed / ops;
+        }
+        report(results, name, "ns/op", rounds);
+    }
+
+    interface Task {
+        int run() throws IOException;
+    }
+
+    // Benchmark de operações longas (leitura/escrita dos ficheiros): uma execução por volta
+    static void runOnce(List<Measurement> results, String filter, String name, Task task) throws IOException {
+        if (!name.contains(filter)) return;
+        int warmup = 2;
+        int measured = 5;
+        double[] rounds = new double[measured];
+        for (int round = 0; round < warmup + measured; round++) {
+            long t0 = System.nanoTime();
+            sink += task.run();
+            double ms = (System.nanoTime() - t0) / 1e6;
+            if (round >= warmup) rounds[round - warmup] = ms;
+        }
+        report(results, name, "ms/op", rounds);
+    }
+
+    static void report(List<Measurement> results, String name, String unit, double[] rounds) {
+        double mean = 0;
+        for (double r : rounds) mean += r;
+        mean /= rounds.length;
+        double variance = 0;
+        for (double r : rounds) variance += (r - mean) * (r - mean);
+        double stdDev = Math.sqrt(variance / Math.max(1, rounds.length - 1));
+        results.add(new Measurement(name, unit, mean, stdDev));
+        System.out.printf("%-30s %12.1f ± %-10.1f %s%n", name, mean, stdDev, unit);
+    }
+
+    static void writeReport(File file, List<Measurement> results, int rooms, int guests, int reservations) throws IOException {
+        boolean header = !file.exists();
+        try (PrintWriter pw = new PrintWriter(new FileWriter(file, true))) {
+            if (header) pw.println("date,rooms,guests,reservations,benchmark,unit,mean,stdDev");
+            String now = LocalDateTime.now().withNano(0).toString();
+            for (Measurement r : results) {
+                pw.println(String.format(Locale.ROOT, "%s,%d,%d,%d,%s,%s,%.2f,%.2f",
+                        now, rooms, guests, reservations, HotelEngine.escapeCsv(r.name()), r.unit(), r.mean(), r.stdDev()));
+            }
+        }
+        System.out.println("\nResultados acrescentados a " + file);
+    }
+
+    // Algumas linhas reais dos CSV gerados, incluindo nomes com acentos e campos entre aspas
+    static String[] sampleCsvLines(File dir) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String name : new String[]{HotelEngine.GUESTS_CSV, HotelEngine.RESERVATIONS_CSV}) {
+            List<String> all = Files.readAllLines(new File(dir, name).toPath());
+            for (int i = 1; i < all.size() && i <= 512; i++) lines.add(all.get(i));
+        }
+        lines.add("7,\"Silva, Ana \"\"Nina\"\"\",ana@sapo.pt,912345678,CC,12345678");
+        return lines.toArray(new String[0]);
+    }
+
+    static void deleteSnapshots(File dir) {
+        new File(dir, HotelEngine.ROOMS_SNAPSHOT).delete();
+        new File(dir, HotelEngine.GUESTS_SNAPSHOT).delete();
+        new File(dir, HotelEngine.RESERVATIONS_SNAPSHOT).delete();
+    }
+}
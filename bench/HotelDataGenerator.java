@@ -0,0 +1,129 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.Random;
+
+// Gera quartos.csv, hospedes.csv e reservas.csv realistas, sempre iguais para a mesma semente:
+// - quartos numerados por piso (101, 102, ...), com mais quartos duplos do que de outras capacidades;
+// - hóspedes com nomes portugueses (com acentos), emails, contactos e documentos variados;
+// - reservas seguidas por quarto ao longo do período (estadias de 1 a 14 noites, sem sobreposição
+//   entre reservas ativas), com a ocupação pedida e cerca de 8% canceladas.
+// Execução: java -cp out HotelDataGenerator <pasta> [quartos] [hóspedes] [dias] [ocupação 0..1] [semente]
+//           (por omissão 1000 quartos, 20000 hóspedes, 365 dias a partir de hoje, 0.7 e semente 1)
+public class HotelDataGenerator {
+
+    static final String[] FIRST_NAMES = {"João", "Maria", "José", "Ana", "António", "Inês", "Francisco", "Beatriz",
+            "Tomás", "Leonor", "Gonçalo", "Mariana", "Rúben", "Sofia", "André", "Carolina", "Luís", "Matilde", "Rui", "Léa"};
+    static final String[] LAST_NAMES = {"Silva", "Santos", "Ferreira", "Pereira", "Oliveira", "Costa", "Rodrigues",
+            "Martins", "Jesus", "Sousa", "Fernandes", "Gonçalves", "Gomes", "Lopes", "Marques", "Simões", "Conceição", "Brandão"};
+    static final String[] DOMAINS = {"gmail.com", "hotmail.com", "sapo.pt", "outlook.pt", "iol.pt"};
+    static final String[] DOCUMENT_TYPES = {"CC", "CC", "CC", "CC", "CC", "CC", "passport", "passport", "passport", "BI"};
+    static final int[] CAPACITY_WEIGHTS = {0, 10, 45, 15, 18, 7, 5}; // Percentagem por capacidade 1..6
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Uso: HotelDataGenerator <pasta> [quartos] [hóspedes] [dias] [ocupação] [semente]");
+            return;
+        }
+        File dir = new File(args[0]);
+        int rooms = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int guests = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+        int days = args.length > 3 ? Integer.parseInt(args[3]) : 365;
+        double occupancy = args.length > 4 ? Double.parseDouble(args[4]) : 0.7;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+
+        long t0 = System.nanoTime();
+        int reservations = generate(dir, rooms, guests, LocalDate.now(), days, occupancy, seed);
+        System.out.printf("%d quartos, %d hóspedes e %d reservas escritos em %s (%d ms)%n",
+                rooms, guests, reservations, dir, (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    // Escreve os três CSV na pasta e retorna o número de reservas geradas
+    public static int generate(File dir, int rooms, int guests, LocalDate from, int days, double occupancy, long seed) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Não foi possível criar " + dir);
+        Random random = new Random(seed);
+        int[] capacities = writeRooms(new File(dir, HotelEngine.ROOMS_CSV), rooms, random);
+        writeGuests(new File(dir, HotelEngine.GUESTS_CSV), guests, random);
+        return writeReservations(new File(dir, HotelEngine.RESERVATIONS_CSV), capacities, guests, from, days, occupancy, random);
+    }
+
+    // Retorna a capacidade de cada quarto (posição = id)
+    static int[] writeRooms(File csv, int count, Random random) throws IOException {
+        int[] capacities = new int[count + 1];
+        int perFloor = Math.max(10, Math.min(50, count / 10 + 1));
+        try (PrintWriter pw = new PrintWriter(csv)) {
+            pw.println("id,number,capacity");
+            for (int id = 1; id <= count; id++) {
+                int floor = 1 + (id - 1) / perFloor;
+                int number = floor * 100 + 1 + (id - 1) % perFloor;
+                capacities[id] = weightedCapacity(random);
+                pw.printf("%d,%d,%d%n", id, number, capacities[id]);
+            }
+        }
+        return capacities;
+    }
+
+    static int weightedCapacity(Random random) {
+        int r = random.nextInt(100);
+        for (int c = 1; c < CAPACITY_WEIGHTS.length; c++) {
+            r -= CAPACITY_WEIGHTS[c];
+            if (r < 0) return c;
+        }
+        return 2;
+    }
+
+    static void writeGuests(File csv, int count, Random random) throws IOException {
+        try (PrintWriter pw = new PrintWriter(csv)) {
+            pw.println("id,name,email,contact,documentType,documentNumber");
+            for (int id = 1; id <= count; id++) {
+                String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+                String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                String name = first + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " " + last;
+                String email = ascii(first + "." + last).toLowerCase() + id + "@" + DOMAINS[random.nextInt(DOMAINS.length)];
+                int contact = 910_000_000 + random.nextInt(60_000_000);
+                String docType = DOCUMENT_TYPES[random.nextInt(DOCUMENT_TYPES.length)];
+                int docNumber = 10_000_000 + id * 7 + random.nextInt(7); // Único por hóspede
+                pw.printf("%d,%s,%s,%d,%s,%d%n", id, HotelEngine.escapeCsv(name), HotelEngine.escapeCsv(email), contact, docType, docNumber);
+            }
+        }
+    }
+
+    // Para cada quarto percorre o período e alterna estadias com intervalos livres,
+    // de forma a que a fração de noites ocupadas fique perto de occupancy
+    static int writeReservations(File csv, int[] capacities, int guests, LocalDate from, int days, double occupancy, Random random) throws IOException {
+        int firstDay = (int) from.toEpochDay();
+        int lastDay = firstDay + days - 1;
+        double meanStay = 3.5;
+        double meanGap = Math.max(0.0, meanStay * (1 - occupancy) / Math.max(occupancy, 0.01));
+        int id = 0;
+
+        try (PrintWriter pw = new PrintWriter(csv)) {
+            pw.println("id,roomId,guestId,numberOfGuests,startDate,endDate,active");
+            for (int roomId = 1; roomId < capacities.length; roomId++) {
+                int day = firstDay + (int) (random.nextDouble() * 2 * meanGap);
+                while (day <= lastDay) {
+                    int nights = Math.min(14, 1 + geometric(random, 1.0 / meanStay));
+                    int end = Math.min(lastDay, day + nights - 1);
+                    boolean active = random.nextInt(100) >= 8;
+                    int nGuests = 1 + random.nextInt(capacities[roomId]);
+                    pw.printf("%d,%d,%d,%d,%s,%s,%b%n", ++id, roomId, 1 + random.nextInt(guests), nGuests,
+                            LocalDate.ofEpochDay(day), LocalDate.ofEpochDay(end), active);
+                    day = end + 1 + (meanGap == 0 ? 0 : geometric(random, 1.0 / (meanGap + 1)));
+                }
+            }
+        }
+        return id;
+    }
+
+    // Número de falhas antes do primeiro sucesso com probabilidade p (média (1 - p) / p)
+    static int geometric(Random random, double p) {
+        if (p >= 1) return 0;
+        return (int) (Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+    }
+
+    static String ascii(String s) {
+        return Normalizer.normalize(s, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+    }
+}
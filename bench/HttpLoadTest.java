@@ -0,0 +1,153 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Teste de carga da interface HTTP: abre muitas ligações ao mesmo tempo (uma virtual thread por ligação,
+// HTTP/1.1 com keep-alive) e cada uma faz vários pedidos seguidos: 80% consultas de disponibilidade
+// e 20% novas reservas. Mostra a latência p50/p90/p99/máxima e o débito.
+// Sem porta arranca um servidor embutido numa pasta temporária, com quartos e um hóspede de teste.
+// Execução: java -cp out HttpLoadTest [ligações] [pedidos por ligação] [porta]   (por omissão 2000, 20)
+public class HttpLoadTest {
+
+    static final int ROOMS = 5000;
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        HotelHttpServer embedded = null;
+        HotelEngine engine = null;
+        File dir = null;
+        int port;
+        if (args.length > 2) {
+            port = Integer.parseInt(args[2]);
+        } else {
+            System.setProperty("hotel.journal.compactAfter", String.valueOf(Integer.MAX_VALUE));
+            dir = Files.createTempDirectory("hotel-http").toFile();
+            engine = new HotelEngine(dir);
+            engine.load();
+            for (int i = 0; i < ROOMS; i++) engine.addRoom(100 + i, 1 + i % 6);
+            engine.addGuest("Teste", "teste@hotel.pt", 0, "CC", 1);
+            embedded = new HotelHttpServer(engine, 0);
+            embedded.start();
+            port = embedded.port();
+        }
+
+        run(port, Math.min(200, connections), requests, false); // Aquecimento (JIT)
+        run(port, connections, requests, true);
+
+        if (embedded != null) {
+            embedded.stop(0);
+            engine.close();
+            for (File f : dir.listFiles()) f.delete();
+            dir.delete();
+        }
+    }
+
+    static void run(int port, int connections, int requests, boolean report) throws InterruptedException {
+        long[][] latencies = new long[connections][];
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger statusErrors = new AtomicInteger();
+        CountDownLatch connected = new CountDownLatch(connections);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>(connections);
+
+        for (int c = 0; c < connections; c++) {
+            int index = c;
+            threads.add(Thread.ofVirtual().start(() -> {
+                Random random = new Random(index);
+                long[] times = new long[requests];
+                try (Socket socket = new Socket("localhost", port)) {
+                    socket.setTcpNoDelay(true);
+                    connected.countDown();
+                    start.await();
+                    OutputStream out = socket.getOutputStream();
+                    InputStream in = new BufferedInputStream(socket.getInputStream());
+                    for (int i = 0; i < requests; i++) {
+                        byte[] request = randomRequest(random);
+                        long t0 = System.nanoTime();
+                        out.write(request);
+                        out.flush();
+                        int status = readResponse(in);
+                        times[i] = System.nanoTime() - t0;
+                        if (status >= 500 || status == 400 || status == 404) statusErrors.incrementAndGet();
+                    }
+                    latencies[index] = times;
+                } catch (IOException | InterruptedException e) {
+                    if (failures.incrementAndGet() == 1) System.out.println("Primeira falha: " + e);
+                    connected.countDown();
+                }
+            }));
+        }
+
+        connected.await(); // Todas as ligações abertas antes de começar
+        long t0 = System.nanoTime();
+        start.countDown();
+        for (Thread t : threads) t.join();
+        long elapsed = System.nanoTime() - t0;
+        if (!report) return;
+
+        long[] all = Arrays.stream(latencies).filter(a -> a != null).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("ligações: %d (%d falharam), pedidos: %d, respostas de erro: %d%n",
+                connections, failures.get(), all.length, statusErrors.get());
+        if (all.length == 0) return;
+        System.out.printf("débito: %.0f pedidos/s%n", all.length / (elapsed / 1e9));
+        System.out.printf("latência (ms): p50 %.2f  p90 %.2f  p99 %.2f  máx %.2f%n",
+                percentile(all, 0.50) / 1e6, percentile(all, 0.90) / 1e6, percentile(all, 0.99) / 1e6, all[all.length - 1] / 1e6);
+    }
+
+    static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    static byte[] randomRequest(Random random) {
+        int roomId = 1 + random.nextInt(ROOMS);
+        LocalDate from = LocalDate.of(2030, 1, 1).plusDays(random.nextInt(365));
+        LocalDate to = from.plusDays(random.nextInt(7));
+        String request;
+        if (random.nextInt(10) < 8) {
+            request = "GET /availability?roomId=" + roomId + "&from=" + from + "&to=" + to + " HTTP/1.1\r\n"
+                    + "Host: localhost\r\n\r\n";
+        } else {
+            String body = "{\"roomId\":" + roomId + ",\"guestId\":1,\"numberOfGuests\":1,\"startDate\":\"" + from
+                    + "\",\"endDate\":\"" + to + "\"}";
+            request = "POST /reservations HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Content-Length: " + body.length() + "\r\n\r\n" + body;
+        }
+        return request.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Lê uma resposta (cabeçalhos e corpo com Content-Length) e retorna o código de estado
+    static int readResponse(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int status = -1;
+        int length = 0;
+        while (true) {
+            line.reset();
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) throw new IOException("Ligação fechada pelo servidor");
+                if (b != '\r') line.write(b);
+            }
+            String header = line.toString(StandardCharsets.US_ASCII);
+            if (header.isEmpty()) break;
+            if (status < 0) status = Integer.parseInt(header.split(" ")[1]);
+            else if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) length = Integer.parseInt(header.substring(15).trim());
+        }
+        in.readNBytes(length);
+        return status;
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.Random;
+
+// Microbenchmark das pesquisas por id: compara IntObjectMap com a pesquisa linear que existia antes.
+// A latência do mapa deve manter-se estável à medida que a tabela cresce.
+// Execução: java -cp out IdLookupBenchmark
+public class IdLookupBenchmark {
+
+    static final int[] SIZES = {1_000, 10_000, 100_000, 500_000};
+    static final int LOOKUPS = 2_000_000;
+    static final int LINEAR_LOOKUPS = 2_000;
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %18s %18s%n", "entradas", "mapa (ns/op)", "linear (ns/op)");
+        for (int size : SIZES) {
+            Room[] table = new Room[size];
+            IntObjectMap<Room> map = new IntObjectMap<>(size);
+            for (int i = 0; i < size; i++) {
+                Room r = new Room(i + 1, 100 + i, 2);
+                table[i] = r;
+                map.put(r.getId(), r);
+            }
+
+            int[] ids = randomIds(size, LOOKUPS);
+
+            for (int warmup = 0; warmup < 3; warmup++) lookupMap(map, ids);
+            double mapNs = lookupMap(map, ids);
+
+            lookupLinear(table, ids, LINEAR_LOOKUPS);
+            double linearNs = lookupLinear(table, ids, LINEAR_LOOKUPS);
+
+            System.out.printf("%10d %18.1f %18.1f%n", size, mapNs, linearNs);
+        }
+    }
+
+    static int[] randomIds(int size, int n) {
+        Random random = new Random(42);
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) ids[i] = 1 + random.nextInt(size);
+        return ids;
+    }
+
+    static double lookupMap(IntObjectMap<Room> map, int[] ids) {
+        long sum = 0;
+        long t0 = System.nanoTime();
+        for (int id : ids) sum += map.get(id).getNumber();
+        long elapsed = System.nanoTime() - t0;
+        if (sum == 42) System.out.println(); // Impede que o JIT elimine o ciclo
+        return (double) elapsed / ids.length;
+    }
+
+    static double lookupLinear(Room[] table, int[] ids, int n) {
+        long sum = 0;
+        long t0 = System.nanoTime();
+        for (int k = 0; k < n; k++) {
+            int id = ids[k];
+            for (Room r : table) {
+                if (r.getId() == id) {
+                    sum += r.getNumber();
+                    break;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - t0;
+        if (sum == 42) System.out.println();
+        return (double) elapsed / n;
+    }
+}
@@ -0,0 +1,72 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.Random;
+
+// Reotimização da atribuição de quartos (HotelEngine.optimizeAssignments) num hotel grande com reservas
+// espalhadas ao acaso, e atribuição de um lote de pedidos sem quarto (assignRooms).
+// Um quinto das reservas tem o quarto escolhido (bookRoom, fica fixo); as outras vêm de assignRooms, em lotes.
+// Depois são canceladas 15% das reservas, ao acaso, para deixar intervalos como os que a reotimização noturna encontra.
+// Execução: java -cp out RoomAssignmentBenchmark [quartos] [reservas]   (por omissão 10000 e 300000)
+public class RoomAssignmentBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int roomCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int reservationCount = args.length > 1 ? Integer.parseInt(args[1]) : 300_000;
+        System.setProperty("hotel.journal.compactAfter", String.valueOf(Integer.MAX_VALUE));
+
+        File dir = Files.createTempDirectory("hotel-assign").toFile();
+        HotelEngine engine = new HotelEngine(dir, WriteBehind.Mode.SHUTDOWN);
+        engine.load();
+        Random random = new Random(17);
+        for (int i = 0; i < roomCount; i++) engine.addRoom(100 + i, 1 + random.nextInt(6));
+        int guestId = engine.addGuest("Teste", "teste@hotel.pt", 0, "CC", 1).getId();
+
+        LocalDate base = LocalDate.of(2030, 1, 1);
+        int booked = 0;
+        int fixed = 0;
+        ReservationStore loadBatch = new ReservationStore();
+        for (int i = 0; i < reservationCount; i++) {
+            LocalDate in = base.plusDays(random.nextInt(365));
+            LocalDate out = in.plusDays(random.nextInt(7));
+            if (random.nextInt(5) == 0) {
+                if (engine.bookRoom(1 + random.nextInt(roomCount), guestId, 1, in, out).isOk()) fixed++;
+            } else {
+                loadBatch.add(i, 0, guestId, 1 + random.nextInt(6), EpochDay.of(in), EpochDay.of(out), true);
+            }
+            if (loadBatch.size() == 10_000 || i == reservationCount - 1) {
+                for (Result r : engine.assignRooms(loadBatch)) if (r.isOk()) booked++;
+                loadBatch.clear();
+            }
+        }
+        int cancelled = 0;
+        for (int id = 1; id <= booked + fixed; id++) {
+            if (random.nextInt(100) < 15 && engine.cancelReservation(id).isOk()) cancelled++;
+        }
+        System.out.printf("%d quartos, %d reservas (%d com quarto escolhido), %d canceladas%n", roomCount, booked + fixed, fixed, cancelled);
+
+        LocalDate from = base.plusDays(30); // As estadias anteriores ficam como "em curso"
+        for (boolean improve : new boolean[]{false, true, true}) {
+            long t0 = System.nanoTime();
+            RoomAssignment plan = engine.optimizeAssignments(from, improve);
+            System.out.printf("%s: %d reservas, %d mudadas, custo %d -> %d, ganho líquido %d, intervalos curtos %d -> %d, aplicado: %b, %.0f ms%n",
+                    improve ? "melhoria local" : "guloso de raiz", plan.size(), plan.moved(), plan.originalScore(), plan.score(),
+                    plan.netGain(), plan.originalShortGaps(), plan.shortGaps(), plan.isImprovement(), (System.nanoTime() - t0) / 1e6);
+        }
+
+        int requests = 2000;
+        ReservationStore batch = new ReservationStore(requests);
+        for (int i = 0; i < requests; i++) {
+            int in = EpochDay.of(from) + random.nextInt(300);
+            batch.add(i, 0, guestId, 1 + random.nextInt(6), in, in + random.nextInt(7), true);
+        }
+        long t0 = System.nanoTime();
+        int assigned = 0;
+        for (Result r : engine.assignRooms(batch)) if (r.isOk()) assigned++;
+        System.out.printf("assignRooms: %d de %d pedidos, %.1f µs por pedido%n", assigned, requests, (System.nanoTime() - t0) / 1e3 / requests);
+
+        engine.close();
+        for (File f : dir.listFiles()) f.delete();
+        dir.delete();
+    }
+}
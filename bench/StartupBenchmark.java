@@ -0,0 +1,71 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.function.Supplier;
+
+// Compara o tempo de leitura das reservas a partir do CSV e da cópia binária.
+// Execução: java -Xmx6g -cp out StartupBenchmark [n1 n2 ...]   (por omissão 10^5, 10^6 e 10^7 reservas)
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = {100_000, 1_000_000, 10_000_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        File dir = Files.createTempDirectory("hotel-bench").toFile();
+        System.out.printf("%12s %12s %12s %12s %12s%n", "reservas", "CSV (ms)", "binário (ms)", "CSV (MB)", "binário (MB)");
+
+        for (int n : sizes) {
+            File csv = new File(dir, "reservas.csv");
+            File bin = new File(dir, "reservas.bin");
+            writeFiles(n, csv, bin);
+
+            long csvMs = best(() -> HotelEngine.readReservationsCsv(csv));
+            long binMs = best(() -> BinarySnapshot.readReservations(bin.getPath(), csv));
+
+            System.out.printf("%12d %12d %12d %12.1f %12.1f%n", n, csvMs, binMs, csv.length() / 1e6, bin.length() / 1e6);
+            csv.delete();
+            bin.delete();
+        }
+        dir.delete();
+    }
+
+    // Gera n reservas no formato de reservas.csv e a cópia binária correspondente
+    static void writeFiles(int n, File csv, File bin) throws IOException {
+        Random random = new Random(7);
+        ReservationStore rows = new ReservationStore(n);
+        int base = (int) LocalDate.of(2026, 1, 1).toEpochDay();
+        for (int i = 0; i < n; i++) {
+            int start = base + random.nextInt(730);
+            rows.add(i + 1, 1 + random.nextInt(5_000), 1 + random.nextInt(100_000), 1 + random.nextInt(4),
+                    start, start + 1 + random.nextInt(10), random.nextInt(10) != 0);
+        }
+
+        try (PrintWriter pw = new PrintWriter(csv)) {
+            pw.println("id,roomId,guestId,numberOfGuests,startDate,endDate,active");
+            for (int i = 0; i < n; i++) {
+                pw.printf("%d,%d,%d,%d,%s,%s,%b%n", rows.id(i), rows.roomId(i), rows.guestId(i), rows.numberOfGuests(i),
+                        LocalDate.ofEpochDay(rows.startDay(i)), LocalDate.ofEpochDay(rows.endDay(i)), rows.isActive(i));
+            }
+        }
+        BinarySnapshot.writeReservations(bin.getPath(), csv, rows);
+    }
+
+    // Melhor de 3 execuções, em milissegundos
+    static long best(Supplier<ReservationStore> load) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long t0 = System.nanoTime();
+            ReservationStore rows = load.get();
+            long ms = (System.nanoTime() - t0) / 1_000_000;
+            if (rows == null) throw new IllegalStateException("Leitura falhou");
+            best = Math.min(best, ms);
+        }
+        return best;
+    }
+}
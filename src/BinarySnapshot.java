@@ -0,0 +1,230 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Cópia binária compacta de cada tabela, escrita ao lado do CSV sempre que este é reescrito.
+// Cabeçalho: magic, versão, tipo de tabela, tamanho e data de modificação do CSV de origem e número de registos.
+// No fim do ficheiro vai um CRC32 de todo o conteúdo anterior.
+// Se o CSV tiver sido alterado depois (tamanho ou data diferentes) a cópia é considerada desatualizada.
+public class BinarySnapshot {
+
+    static final int MAGIC = 0x48544C53; // "HTLS"
+    static final int VERSION = 2; // 2: reservas com groupId
+
+    static final byte ROOMS = 1;
+    static final byte GUESTS = 2;
+    static final byte RESERVATIONS = 3;
+
+    static final byte FLAG_ACTIVE = 1;
+    static final byte FLAG_AUTO_ASSIGNED = 2; // Bit novo no mesmo byte: os ficheiros da versão 2 sem ele continuam válidos
+
+    private static final int HEADER_SIZE = 4 + 4 + 1 + 8 + 8 + 4;
+
+    // ---- Escrita ----
+
+    public static void writeRooms(String path, File csv, Iterable<Room> rooms, int count) throws IOException {
+        write(path, csv, ROOMS, count, out -> {
+            for (Room r : rooms) {
+                out.writeInt(r.getId());
+                out.writeInt(r.getNumber());
+                out.writeInt(r.getCapacity());
+            }
+        });
+    }
+
+    // Os textos dos hóspedes vão para uma tabela de strings sem repetições (ex.: tipos de documento),
+    // cada uma com o tamanho em bytes à frente. Os registos guardam só o índice na tabela.
+    public static void writeGuests(String path, File csv, Iterable<Guest> guests, int count) throws IOException {
+        HashMap<String, Integer> index = new HashMap<>();
+        ArrayList<String> pool = new ArrayList<>();
+        int[] refs = new int[count * 3];
+        int n = 0;
+        for (Guest g : guests) {
+            refs[n * 3] = intern(g.getName(), index, pool);
+            refs[n * 3 + 1] = intern(g.getEmail(), index, pool);
+            refs[n * 3 + 2] = intern(g.getTypeOfDocument(), index, pool);
+            n++;
+        }
+
+        write(path, csv, GUESTS, count, out -> {
+            out.writeInt(pool.size());
+            for (String s : pool) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            int i = 0;
+            for (Guest g : guests) {
+                out.writeInt(g.getId());
+                out.writeInt(refs[i * 3]);
+                out.writeInt(refs[i * 3 + 1]);
+                out.writeInt(g.getContact());
+                out.writeInt(refs[i * 3 + 2]);
+                out.writeInt(g.getDocumentNumber());
+                i++;
+            }
+        });
+    }
+
+    // Registos de tamanho fixo: 7 ints (datas em dias desde 1970-01-01, groupId no fim) e um byte de flags
+    public static void writeReservations(String path, File csv, ReservationStore reservations) throws IOException {
+        int count = reservations.size();
+        write(path, csv, RESERVATIONS, count, out -> {
+            for (int i = 0; i < count; i++) {
+                out.writeInt(reservations.id(i));
+                out.writeInt(reservations.roomId(i));
+                out.writeInt(reservations.guestId(i));
+                out.writeInt(reservations.numberOfGuests(i));
+                out.writeInt(reservations.startDay(i));
+                out.writeInt(reservations.endDay(i));
+                out.writeInt(reservations.groupId(i));
+                out.writeByte((reservations.isActive(i) ? FLAG_ACTIVE : 0) | (reservations.isAutoAssigned(i) ? FLAG_AUTO_ASSIGNED : 0));
+            }
+        });
+    }
+
+    // ---- Leitura: retornam null se a cópia não existir, estiver desatualizada ou corrompida ----
+
+    public static List<Room> readRooms(String path, File csv) {
+        ByteBuffer in = open(path, csv, ROOMS);
+        if (in == null) return null;
+        try {
+            int count = in.getInt();
+            if (count < 0 || (long) count * 12 > in.remaining()) return null;
+            ArrayList<Room> rooms = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                rooms.add(new Room(in.getInt(), in.getInt(), in.getInt()));
+            }
+            return rooms;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    public static List<Guest> readGuests(String path, File csv) {
+        ByteBuffer in = open(path, csv, GUESTS);
+        if (in == null) return null;
+        try {
+            int count = in.getInt();
+            if (count < 0 || (long) count * 24 > in.remaining()) return null;
+            String[] pool = new String[in.getInt()];
+            for (int i = 0; i < pool.length; i++) {
+                int len = in.getInt();
+                pool[i] = new String(in.array(), in.position(), len, StandardCharsets.UTF_8);
+                in.position(in.position() + len);
+            }
+
+            ArrayList<Guest> guests = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int id = in.getInt();
+                String name = pool[in.getInt()];
+                String email = pool[in.getInt()];
+                int contact = in.getInt();
+                String type = pool[in.getInt()];
+                guests.add(new Guest(id, name, email, contact, type, in.getInt()));
+            }
+            return guests;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    public static ReservationStore readReservations(String path, File csv) {
+        ByteBuffer in = open(path, csv, RESERVATIONS);
+        if (in == null) return null;
+        try {
+            int count = in.getInt();
+            if (count < 0 || (long) count * 29 > in.remaining()) return null;
+            ReservationStore reservations = new ReservationStore(count);
+            for (int i = 0; i < count; i++) {
+                int id = in.getInt();
+                int roomId = in.getInt();
+                int guestId = in.getInt();
+                int nGuests = in.getInt();
+                int start = in.getInt();
+                int end = in.getInt();
+                int groupId = in.getInt();
+                byte flags = in.get();
+                int row = reservations.add(id, roomId, guestId, nGuests, start, end, (flags & FLAG_ACTIVE) != 0, groupId);
+                reservations.setAutoAssigned(row, (flags & FLAG_AUTO_ASSIGNED) != 0);
+            }
+            return reservations;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // ---- Auxiliares ----
+
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // Escreve para um ficheiro temporário e só depois o troca pelo anterior,
+    // para nunca deixar uma cópia a meio no lugar da boa.
+    private static void write(String path, File csv, byte table, int count, Body body) throws IOException {
+        File target = new File(path);
+        File tmp = new File(path + ".tmp");
+
+        CRC32 crc = new CRC32();
+        try (FileOutputStream file = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(table);
+            out.writeLong(csv.length());
+            out.writeLong(csv.lastModified());
+            out.writeInt(count);
+            body.write(out);
+            out.flush();
+            new DataOutputStream(file).writeInt((int) crc.getValue()); // O CRC não entra no próprio cálculo
+        }
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Lê o ficheiro inteiro e valida checksum, cabeçalho e frescura em relação ao CSV.
+    // Retorna o buffer posicionado no número de registos.
+    private static ByteBuffer open(String path, File csv, byte table) {
+        File file = new File(path);
+        if (!file.exists() || !csv.exists()) return null;
+
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            if (bytes.length < HEADER_SIZE + 4) return null;
+
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length - 4);
+            ByteBuffer in = ByteBuffer.wrap(bytes);
+            if (in.getInt(bytes.length - 4) != (int) crc.getValue()) return null;
+
+            in.limit(bytes.length - 4);
+            if (in.getInt() != MAGIC || in.getInt() != VERSION || in.get() != table) return null;
+            if (in.getLong() != csv.length() || in.getLong() != csv.lastModified()) return null; // Desatualizada
+            return in;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static int intern(String s, HashMap<String, Integer> index, ArrayList<String> pool) {
+        if (s == null) s = "";
+        Integer i = index.get(s);
+        if (i == null) {
+            i = pool.size();
+            index.put(s, i);
+            pool.add(s);
+        }
+        return i;
+    }
+}
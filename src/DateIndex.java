@@ -0,0 +1,32 @@
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.IntStream;
+
+// Índice ordenado por data (skip list concorrente) de reservas ativas.
+// Cada entrada é uma chave long (dia << 32 | id), por isso fica ordenada por data e depois por id.
+// Usado para as chegadas (data de check-in) e partidas (data de check-out) e, por grupo de capacidade, para os dias
+// em que as estadias de cada quarto começam e acabam (aí o id é o do quarto, ver HotelEngine.bestRoomFor).
+public class DateIndex {
+
+    private final ConcurrentSkipListSet<Long> keys = new ConcurrentSkipListSet<>();
+
+    private static long key(int day, int id) {
+        return ((long) day << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    public void add(int day, int id) { keys.add(key(day, id)); }
+
+    public void remove(int day, int id) { keys.remove(key(day, id)); }
+
+    public void clear() { keys.clear(); }
+
+    public int size() { return keys.size(); }
+
+    // Ids das reservas com data em [fromDay, toDay], por ordem de data.
+    // O stream percorre a skip list à medida que é consumido, sem copiar o resultado.
+    public IntStream between(int fromDay, int toDay) {
+        if (fromDay > toDay) return IntStream.empty();
+        return keys.subSet(key(fromDay, 0), true, key(toDay, -1), true)
+                .stream()
+                .mapToInt(k -> (int) (long) k);
+    }
+}
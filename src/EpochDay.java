@@ -0,0 +1,93 @@
+import java.time.LocalDate;
+
+// Datas como int: dias desde 1970-01-01 (o mesmo valor de LocalDate.toEpochDay).
+// As reservas guardam as datas assim; LocalDate só é criado na consola, no HTTP e nas APIs públicas do motor.
+// Aqui estão as conversões de e para texto YYYY-MM-DD usadas nos CSV, no diário e no arquivo, sem criar objetos.
+public final class EpochDay {
+
+    private EpochDay() {
+    }
+
+    // Mesmo cálculo que LocalDate.toEpochDay, sem criar o objeto
+    static int of(int year, int month, int day) {
+        long y = year;
+        long total = 365 * y;
+        if (y >= 0) {
+            total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        } else {
+            total -= y / -4 - y / -100 + y / -400;
+        }
+        total += (367L * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) total--;
+        }
+        return (int) (total - 719528); // Dias de 0000-01-01 até 1970-01-01
+    }
+
+    static int of(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    static LocalDate toLocalDate(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> isLeapYear(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    // Lê YYYY-MM-DD. Outros formatos (ou datas inválidas) seguem para LocalDate.parse, que lança a exceção habitual.
+    static int parse(CharSequence s) {
+        if (s.length() == 10 && s.charAt(4) == '-' && s.charAt(7) == '-') {
+            int year = digits(s, 0, 4);
+            int month = digits(s, 5, 2);
+            int day = digits(s, 8, 2);
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= lengthOfMonth(year, month)) return of(year, month, day);
+        }
+        return (int) LocalDate.parse(s).toEpochDay();
+    }
+
+    // Escreve a data como YYYY-MM-DD (anos 0..9999; fora disso usa LocalDate.toString)
+    static StringBuilder append(StringBuilder sb, int epochDay) {
+        // Algoritmo de H. Hinnant (days_from_civil ao contrário), com anos a começar em março
+        long z = epochDay + 719468L;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) return sb.append(LocalDate.ofEpochDay(epochDay));
+
+        int y = (int) year;
+        sb.append((char) ('0' + y / 1000)).append((char) ('0' + y / 100 % 10)).append((char) ('0' + y / 10 % 10)).append((char) ('0' + y % 10));
+        sb.append('-').append((char) ('0' + month / 10)).append((char) ('0' + month % 10));
+        return sb.append('-').append((char) ('0' + day / 10)).append((char) ('0' + day % 10));
+    }
+
+    static String format(int epochDay) {
+        return append(new StringBuilder(10), epochDay).toString();
+    }
+
+    private static int digits(CharSequence s, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) return -1;
+            value = value * 10 + d;
+        }
+        return value;
+    }
+}
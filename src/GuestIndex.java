@@ -0,0 +1,113 @@
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+// Índices de pesquisa de hóspedes (por id do hóspede), mantidos pelo HotelEngine dentro do catalogLock:
+// - documento (tipo + número): tabela de dispersão, um hóspede por documento;
+// - email normalizado (sem espaços, minúsculas): tabela de dispersão, vários hóspedes podem partilhar um email;
+// - palavras do nome sem acentos e em minúsculas: mapa ordenado, para procurar por prefixo ("jo si" encontra "João Silva").
+// Os tipos de documento também são comparados sem acentos nem maiúsculas ("Cartão de Cidadão" = "cartao de cidadao").
+public class GuestIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private final HashMap<String, Integer> byDocument = new HashMap<>();
+    private final HashMap<String, IntList> byEmail = new HashMap<>();
+    private final TreeMap<String, IntList> byNameWord = new TreeMap<>();
+
+    // Sem acentos, em minúsculas e com os espaços reduzidos a um só
+    static String normalize(String s) {
+        if (s == null) return "";
+        String n = MARKS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("");
+        return SPACES.matcher(n.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    static String documentKey(String typeOfDocument, int documentNumber) {
+        return normalize(typeOfDocument) + ":" + documentNumber;
+    }
+
+    static String emailKey(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public void add(Guest guest) {
+        byDocument.putIfAbsent(documentKey(guest.getTypeOfDocument(), guest.getDocumentNumber()), guest.getId()); // Duplicados antigos: fica o primeiro
+        String email = emailKey(guest.getEmail());
+        if (!email.isEmpty()) byEmail.computeIfAbsent(email, k -> new IntList(1)).add(guest.getId());
+        for (String word : words(guest.getName())) byNameWord.computeIfAbsent(word, k -> new IntList(1)).add(guest.getId());
+    }
+
+    public void remove(Guest guest) {
+        byDocument.remove(documentKey(guest.getTypeOfDocument(), guest.getDocumentNumber()), guest.getId());
+        removeId(byEmail, emailKey(guest.getEmail()), guest.getId());
+        for (String word : words(guest.getName())) removeId(byNameWord, word, guest.getId());
+    }
+
+    public void clear() {
+        byDocument.clear();
+        byEmail.clear();
+        byNameWord.clear();
+    }
+
+    // Id do hóspede com este documento, ou -1
+    public int byDocument(String typeOfDocument, int documentNumber) {
+        Integer id = byDocument.get(documentKey(typeOfDocument, documentNumber));
+        return id == null ? -1 : id;
+    }
+
+    // Ids dos hóspedes com este email (lista vazia se não houver)
+    public IntList byEmail(String email) {
+        IntList ids = byEmail.get(emailKey(email));
+        return ids == null ? new IntList(1) : ids;
+    }
+
+    // Ids (sem repetições) dos hóspedes que têm uma palavra do nome a começar pela primeira palavra da pesquisa.
+    // Os candidatos têm de ser confirmados com matchesName (as restantes palavras da pesquisa).
+    public IntList byNamePrefix(String query) {
+        String[] q = words(query);
+        IntList ids = new IntList();
+        if (q.length == 0) return ids;
+        IntIntMap seen = new IntIntMap();
+        // As palavras que começam pelo prefixo ficam seguidas no mapa, entre o prefixo e o prefixo + o maior carácter
+        for (Map.Entry<String, IntList> entry : byNameWord.subMap(q[0], true, q[0] + Character.MAX_VALUE, true).entrySet()) {
+            IntList list = entry.getValue();
+            for (int i = 0; i < list.size(); i++) {
+                if (seen.get(list.get(i)) < 0) {
+                    seen.put(list.get(i), 0);
+                    ids.add(list.get(i));
+                }
+            }
+        }
+        return ids;
+    }
+
+    // Cada palavra da pesquisa é o início de uma palavra do nome
+    static boolean matchesName(String name, String query) {
+        String[] n = words(name);
+        for (String prefix : words(query)) {
+            boolean found = false;
+            for (String word : n) {
+                if (word.startsWith(prefix)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    private static String[] words(String s) {
+        String n = normalize(s);
+        return n.isEmpty() ? new String[0] : n.split(" ");
+    }
+
+    private static void removeId(Map<String, IntList> index, String key, int id) {
+        IntList ids = index.get(key);
+        if (ids != null && ids.removeValue(id) && ids.isEmpty()) index.remove(key);
+    }
+}
@@ -0,0 +1,2298 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+// Motor de gestão do hotel: dados em memória, índices e persistência (CSV, cópias binárias e diário).
+// Não lê nem escreve na consola; as operações recebem os dados por parâmetro e retornam um Result,
+// para poderem ser usadas pelo menu (HotelManagement), por outros programas ou em benchmarks.
+public class HotelEngine implements AutoCloseable {
+
+    // Ficheiros CSV
+    static final String ROOMS_CSV = "quartos.csv"; // Ficheiro de memória local para os quartos
+    static final String GUESTS_CSV = "hospedes.csv"; // Ficheiro de memória local para os hóspedes
+    static final String RESERVATIONS_CSV = "reservas.csv"; //Ficheiro de memória local para as reservas
+    static final String WAITLIST_CSV = "espera.csv"; // Lista de espera (ver Waitlist)
+
+    // Cópias binárias dos CSV, para arranque rápido (ver BinarySnapshot)
+    static final String ROOMS_SNAPSHOT = "quartos.bin";
+    static final String GUESTS_SNAPSHOT = "hospedes.bin";
+    static final String RESERVATIONS_SNAPSHOT = "reservas.bin";
+
+    // Diário de alterações: cada operação acrescenta uma linha em vez de reescrever o CSV inteiro
+    static final String JOURNAL_FILE = "diario.log";
+    static final int JOURNAL_COMPACT_AFTER = Integer.getInteger("hotel.journal.compactAfter", 1000); // Registos até incorporar nos CSV
+    static final int JOURNAL_SYNC_EVERY = Integer.getInteger("hotel.journal.syncEvery", 0); // fsync a cada N registos (0 = nunca)
+
+    // Reservas que terminaram há mais de N dias vão para o arquivo (ver archiveReservations)
+    static final int ARCHIVE_RETENTION_DAYS = Integer.getInteger("hotel.archive.retentionDays", 180);
+
+    // Reservas de grupo: a partir de quantos quartos os conflitos são verificados em paralelo,
+    // e quantas vezes a escolha automática de quartos é repetida se outro pedido ocupar um dos escolhidos
+    static final int GROUP_PARALLEL_ROOMS = 32;
+    static final int GROUP_BOOKING_ATTEMPTS = 3;
+
+    // Atribuição automática: quantos quartos livres de um grupo de capacidade são avaliados por pedido (ver bestRoomFor)
+    static final int ASSIGN_SCAN_LIMIT = Integer.getInteger("hotel.assign.scanLimit", 64);
+
+    // Tabelas alteradas desde a última compactação
+    static final int DIRTY_ROOMS = 1;
+    static final int DIRTY_GUESTS = 2;
+    static final int DIRTY_RESERVATIONS = 4;
+    static final int DIRTY_WAITLIST = 8;
+    static final int DIRTY_ALL = DIRTY_ROOMS | DIRTY_GUESTS | DIRTY_RESERVATIONS | DIRTY_WAITLIST;
+
+    static final int MIN_CAPACITY = 1;
+    static final int MAX_CAPACITY = 6;
+
+    // Estadia mais longa aceite, em dias, e maior período das consultas por datas: cada dia de uma reserva é um
+    // bitset no calendário (ver OccupancyCalendar), e as estatísticas guardam arrays do tamanho do período
+    static final int MAX_STAY_DAYS = Integer.getInteger("hotel.maxStayDays", 731);
+
+    // Localização dos ficheiros (por omissão, a pasta atual)
+    private final File roomsCsv;
+    private final File guestsCsv;
+    private final File reservationsCsv;
+    private final File waitlistCsv;
+    private final String roomsSnapshot;
+    private final String guestsSnapshot;
+    private final String reservationsSnapshot;
+    private final Journal journal;
+    private final WriteBehind writer; // Escrita do diário e compactação em segundo plano
+    private final ReservationArchive archive; // Reservas antigas e canceladas, fora da memória
+    private final AtomicInteger dirtyTables = new AtomicInteger(); // DIRTY_*
+    private Thread shutdownHook;
+
+    // Armazenamento e contadores
+    private final SlotMap<Room> rooms = new SlotMap<>(); // Inserção e remoção em O(1), listagem pela ordem de inserção
+    private int nextRoomId = 1; // Incrementador de ID de quartos
+
+    private final SlotMap<Guest> guests = new SlotMap<>();
+    private int nextGuestId = 1;
+
+    private ReservationStore reservations = new ReservationStore(); // Guardadas por colunas, ver ReservationStore
+    private final AtomicInteger nextReservationId = new AtomicInteger(1); // Várias threads podem reservar ao mesmo tempo
+
+    // Índices por id (evitam percorrer as tabelas em cada pesquisa)
+    private final IntLongMap roomHandles = new IntLongMap(); // id do quarto -> handle em rooms
+    private final IntLongMap guestHandles = new IntLongMap(); // id do hóspede -> handle em guests
+    private final GuestIndex guestIndex = new GuestIndex(); // Documento, email e nome -> id do hóspede
+    private final IntIntMap reservationRows = new IntIntMap(); // id da reserva -> linha em reservations
+
+    // Índice de intervalos por quarto: só contém reservas ativas, usado na verificação de conflitos.
+    // Serve também de índice inverso quarto -> reservas ativas (o tamanho da árvore é o contador).
+    private final IntObjectMap<IntervalTree> roomIntervals = new IntObjectMap<>();
+
+    // Índice inverso hóspede -> linhas das suas reservas ativas
+    private final IntObjectMap<IntList> guestReservations = new IntObjectMap<>();
+
+    // Grupo -> linhas das suas reservas (ativas e canceladas)
+    private final IntObjectMap<IntList> groupRows = new IntObjectMap<>();
+
+    // Índices ordenados por data de check-in e de check-out (reservas ativas), para consultas por intervalo de datas
+    private final DateIndex arrivals = new DateIndex();
+    private final DateIndex departures = new DateIndex();
+
+    // Calendário de ocupação (um bitset de quartos por dia), usado nas consultas de quartos livres/ocupados
+    private final OccupancyCalendar calendar = new OccupancyCalendar();
+
+    // Quartos agrupados por capacidade (bitset de ids por capacidade 1..6), para a pesquisa de disponibilidade.
+    // O grupo 0 guarda quartos com capacidade inválida, que nunca aparecem nas pesquisas.
+    private final BitSet[] roomsByCapacity = new BitSet[MAX_CAPACITY + 1];
+
+    // Por grupo de capacidade, os dias em que as estadias ativas de cada quarto começam e acabam (dia e id do quarto),
+    // para a atribuição automática encontrar os quartos onde uma estadia nova encosta a outra (ver bestRoomFor)
+    private final DateIndex[] startsByCapacity = new DateIndex[MAX_CAPACITY + 1];
+    private final DateIndex[] endsByCapacity = new DateIndex[MAX_CAPACITY + 1];
+
+    // Pedidos à espera de um quarto, atendidos quando um cancelamento liberta um (ver offerFreedRoom). Guardada com tableLock.
+    private final Waitlist waitlist = new Waitlist();
+
+    // Concorrência. Ordem de aquisição: compactionLock -> catalogLock -> árvore do quarto -> tableLock.
+    // - compactionLock: uma compactação de cada vez (thread de escrita, fecho e benchmarks), porque todas escrevem os
+    //   mesmos .tmp e mexem no segmento anterior do diário.
+    // - catalogLock: leitura nas reservas e consultas; escrita ao alterar quartos/hóspedes, carregar e compactar.
+    // - árvore de intervalos do quarto (synchronized): verificação de conflitos e inserção atómicas por quarto.
+    // - tableLock: secção curta onde a reserva entra nas tabelas e índices partilhados. O diário é escrito depois,
+    //   ainda com o trinco do quarto (ver bookRoom).
+    private final Object compactionLock = new Object();
+    private final ReentrantReadWriteLock catalogLock = new ReentrantReadWriteLock();
+    private final Object tableLock = new Object();
+
+    // Contadores e latências das operações (ver Metrics; desligáveis com -Dhotel.metrics=false)
+    private final Metrics metrics = new Metrics();
+
+    public HotelEngine() {
+        this(new File("."));
+    }
+
+    public HotelEngine(File dataDir) {
+        this(dataDir, WriteBehind.DEFAULT_MODE);
+    }
+
+    public HotelEngine(File dataDir, WriteBehind.Mode persistence) {
+        roomsCsv = new File(dataDir, ROOMS_CSV);
+        guestsCsv = new File(dataDir, GUESTS_CSV);
+        reservationsCsv = new File(dataDir, RESERVATIONS_CSV);
+        waitlistCsv = new File(dataDir, WAITLIST_CSV);
+        roomsSnapshot = new File(dataDir, ROOMS_SNAPSHOT).getPath();
+        guestsSnapshot = new File(dataDir, GUESTS_SNAPSHOT).getPath();
+        reservationsSnapshot = new File(dataDir, RESERVATIONS_SNAPSHOT).getPath();
+        journal = new Journal(new File(dataDir, JOURNAL_FILE).getPath(), JOURNAL_SYNC_EVERY);
+        archive = new ReservationArchive(dataDir);
+        writer = new WriteBehind(persistence, journal, JOURNAL_COMPACT_AFTER, metrics);
+        for (int c = 0; c <= MAX_CAPACITY; c++) {
+            roomsByCapacity[c] = new BitSet();
+            startsByCapacity[c] = new DateIndex();
+            endsByCapacity[c] = new DateIndex();
+        }
+    }
+
+    // Carrega os ficheiros e reaplica as alterações feitas depois da última escrita dos CSV
+    public void load() {
+        long t0 = Metrics.start();
+        catalogLock.writeLock().lock();
+        try {
+            synchronized (tableLock) { // As consultas só de reservas usam apenas tableLock
+                loadAll();
+                archive.open();
+                nextReservationId.accumulateAndGet(archive.maxId() + 1, Math::max); // Ids arquivados não são reutilizados
+                replayJournal();
+                expireWaitlist();
+            }
+            writer.start(this::compactInBackground);
+            installShutdownHook();
+        } finally {
+            catalogLock.writeLock().unlock();
+            metrics.record(Metrics.Operation.LOAD, t0);
+        }
+    }
+
+    // Para a escrita em segundo plano, grava as tabelas alteradas nos CSV (incorporando o diário) e fecha o diário.
+    // Pode ser chamado mais do que uma vez (ex.: pelo menu e depois pelo shutdown hook).
+    @Override
+    public void close() {
+        writer.stop(); // Grava a fila do diário e espera pela compactação em curso
+        synchronized (compactionLock) {
+            catalogLock.writeLock().lock();
+            try {
+                removeShutdownHook();
+                if (dirtyTables.get() != 0 || journal.recordCount() > 0 || journal.hasPrevious()) compactJournal();
+                synchronized (journal) {
+                    journal.close();
+                }
+            } catch (IOException e) {
+                System.out.println("Erro ao fechar o diário: " + e.getMessage());
+            } finally {
+                catalogLock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Se o processo terminar sem close() (ex.: Ctrl+C), as alterações em fila ou por gravar são gravadas na mesma
+    private void installShutdownHook() {
+        if (shutdownHook != null) return;
+        shutdownHook = new Thread(this::close, "hotel-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    private void removeShutdownHook() {
+        Thread hook = shutdownHook;
+        shutdownHook = null;
+        if (hook == null || hook == Thread.currentThread()) return;
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException ignore) { // A JVM já está a terminar
+        }
+    }
+
+    // ---- Métricas ----
+
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    // Valor atual de um indicador de estado (tamanho das tabelas e dos ficheiros)
+    public long gauge(Metrics.Gauge gauge) {
+        return switch (gauge) {
+            case ROOMS -> roomCount();
+            case GUESTS -> guestCount();
+            case RESERVATIONS -> reservationCount();
+            case ACTIVE_RESERVATIONS -> {
+                synchronized (tableLock) {
+                    yield reservations.activeCount();
+                }
+            }
+            case WAITLIST -> {
+                synchronized (tableLock) {
+                    yield waitlist.size();
+                }
+            }
+            case JOURNAL_RECORDS -> journal.recordCount();
+            case PENDING_WRITES -> writer.pendingCount();
+            case JOURNAL_BYTES -> journal.fileSize();
+            case CSV_BYTES -> roomsCsv.length() + guestsCsv.length() + reservationsCsv.length() + waitlistCsv.length();
+            case ARCHIVED_RESERVATIONS -> archive.count();
+            case ARCHIVE_BYTES -> archive.fileBytes();
+            case SNAPSHOT_BYTES -> snapshotBytes();
+        };
+    }
+
+    // ---- Quartos ----
+
+    public Result addRoom(int number, int capacity) {
+        if (capacity < MIN_CAPACITY || capacity > MAX_CAPACITY) return Result.of(Result.Code.INVALID_CAPACITY);
+
+        catalogLock.writeLock().lock();
+        try {
+            int id = nextRoomId;
+            storeRoom(new Room(id, number, capacity));
+            logChange("ROOM_ADD," + id + "," + number + "," + capacity);
+            return Result.ok(id);
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    // Remove o quarto, desde que não tenha reservas ativas
+    public Result removeRoom(int id) {
+        catalogLock.writeLock().lock();
+        try {
+            if (roomById(id) == null) return Result.of(Result.Code.ROOM_NOT_FOUND);
+            if (roomIntervals.get(id).size() > 0) return Result.of(Result.Code.HAS_ACTIVE_RESERVATIONS);
+
+            deleteRoomById(id);
+            logChange("ROOM_DEL," + id);
+            return Result.ok();
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    public Room findRoom(int id) { // Procura e retorna quartos com id recebido. Se não encontrar retorna null
+        catalogLock.readLock().lock();
+        try {
+            return roomById(id);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // Cópia da lista de quartos, pela ordem de inserção
+    public List<Room> rooms() {
+        catalogLock.readLock().lock();
+        try {
+            ArrayList<Room> list = new ArrayList<>(rooms.size());
+            for (Room room : rooms) list.add(room);
+            return list;
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    public int roomCount() {
+        catalogLock.readLock().lock();
+        try {
+            return rooms.size();
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    public boolean isRoomOccupied(int roomId, LocalDate date) {
+        catalogLock.readLock().lock();
+        try {
+            synchronized (tableLock) {
+                return calendar.isOccupied(roomId, (int) date.toEpochDay());
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // Ids dos quartos livres / ocupados na data indicada (um único acesso ao calendário)
+    public BitSet freeRoomsOn(LocalDate date) {
+        return freeRoomsDuring(date, date);
+    }
+
+    public BitSet occupiedRoomsOn(LocalDate date) {
+        catalogLock.readLock().lock();
+        try {
+            synchronized (tableLock) {
+                return calendar.occupiedOn((int) date.toEpochDay());
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // Ids dos quartos livres em todos os dias de [start, end]
+    public BitSet freeRoomsDuring(LocalDate start, LocalDate end) {
+        catalogLock.readLock().lock();
+        try {
+            synchronized (tableLock) {
+                return calendar.freeDuring((int) start.toEpochDay(), (int) end.toEpochDay());
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // Datas válidas para uma estadia ou uma consulta: início <= fim e no máximo MAX_STAY_DAYS dias
+    static boolean isValidPeriod(long startDay, long endDay) {
+        return startDay <= endDay && endDay - startDay < MAX_STAY_DAYS;
+    }
+
+    static boolean isValidPeriod(LocalDate start, LocalDate end) {
+        return isValidPeriod(start.toEpochDay(), end.toEpochDay()); // Sem EpochDay.of: datas muito distantes não cabem num int
+    }
+
+    // Verifica se o quarto pode ser reservado para [start, end]: OK, ROOM_NOT_FOUND, INVALID_DATES ou CONFLICT
+    public Result checkAvailability(int roomId, LocalDate start, LocalDate end) {
+        return checkAvailability(roomId, EpochDay.of(start), EpochDay.of(end));
+    }
+
+    // O mesmo com as datas em dias desde 1970-01-01 (ver EpochDay)
+    public Result checkAvailability(int roomId, int startDay, int endDay) {
+        long t0 = Metrics.start();
+        catalogLock.readLock().lock();
+        try {
+            if (roomById(roomId) == null) return Result.of(Result.Code.ROOM_NOT_FOUND);
+            if (!isValidPeriod(startDay, endDay)) return Result.of(Result.Code.INVALID_DATES);
+            IntervalTree tree = roomIntervals.get(roomId);
+            synchronized (tree) {
+                if (tree.overlaps(startDay, endDay, -1)) return Result.of(Result.Code.CONFLICT);
+            }
+            return Result.ok();
+        } finally {
+            catalogLock.readLock().unlock();
+            metrics.record(Metrics.Operation.CHECK_AVAILABILITY, t0);
+        }
+    }
+
+    // Quartos com capacidade >= guests livres em todos os dias de [start, end], do menor para o maior
+    // (primeiro os de capacidade mais justa, depois por id). Retorna no máximo limit quartos.
+    // Em vez de verificar conflitos quarto a quarto, junta os grupos de capacidade pedidos num bitset
+    // e retira-lhe os quartos ocupados em cada dia (ver OccupancyCalendar.freeDuring).
+    public List<Room> searchAvailableRooms(int guests, LocalDate start, LocalDate end, int limit) {
+        ArrayList<Room> found = new ArrayList<>();
+        if (guests > MAX_CAPACITY || !isValidPeriod(start, end) || limit <= 0) return found;
+        int minCapacity = Math.max(guests, MIN_CAPACITY);
+
+        long t0 = Metrics.start();
+        catalogLock.readLock().lock();
+        try {
+            BitSet candidates = new BitSet();
+            for (int c = minCapacity; c <= MAX_CAPACITY; c++) candidates.or(roomsByCapacity[c]);
+
+            BitSet free;
+            synchronized (tableLock) {
+                free = calendar.freeDuring(candidates, (int) start.toEpochDay(), (int) end.toEpochDay());
+            }
+
+            for (int c = minCapacity; c <= MAX_CAPACITY && found.size() < limit; c++) {
+                BitSet fit = (BitSet) roomsByCapacity[c].clone();
+                fit.and(free);
+                for (int id = fit.nextSetBit(0); id >= 0 && found.size() < limit; id = fit.nextSetBit(id + 1)) {
+                    found.add(roomById(id));
+                }
+            }
+            return found;
+        } finally {
+            catalogLock.readLock().unlock();
+            metrics.record(Metrics.Operation.SEARCH, t0);
+        }
+    }
+
+    public List<Room> searchAvailableRooms(int guests, LocalDate start, LocalDate end) {
+        return searchAvailableRooms(guests, start, end, Integer.MAX_VALUE);
+    }
+
+    private Room roomById(int id) {
+        long handle = roomHandles.get(id);
+        return handle == IntLongMap.NO_VALUE ? null : rooms.get(handle);
+    }
+
+    // Guarda o quarto em memória e atualiza os índices.
+    // A árvore de intervalos do quarto é criada logo aqui: o mapa roomIntervals só muda com o trinco de escrita
+    // e a própria árvore serve de trinco do quarto nas reservas.
+    private void storeRoom(Room room) {
+        long previous = roomHandles.put(room.getId(), rooms.insert(room));
+        if (previous != IntLongMap.NO_VALUE) { // Id repetido: fica o último
+            capacityBucket(rooms.get(previous)).clear(room.getId());
+            rooms.remove(previous);
+        }
+        if (roomIntervals.get(room.getId()) == null) roomIntervals.put(room.getId(), new IntervalTree());
+        capacityBucket(room).set(room.getId());
+        calendar.addRoom(room.getId());
+        if (room.getId() >= nextRoomId) nextRoomId = room.getId() + 1;
+    }
+
+    // Remove o quarto em O(1): a posição no SlotMap fica livre para reutilizar,
+    // sem deslocar os restantes quartos.
+    private void deleteRoomById(int id) {
+        long handle = roomHandles.remove(id);
+        if (handle == IntLongMap.NO_VALUE) return;
+        capacityBucket(rooms.get(handle)).clear(id);
+        rooms.remove(handle);
+        roomIntervals.remove(id);
+        calendar.removeRoom(id);
+    }
+
+    // Grupo de capacidade do quarto. Capacidades acima de 6 (ex.: CSV editado à mão) ficam no grupo 6, abaixo de 1 no grupo 0.
+    private BitSet capacityBucket(Room room) {
+        return roomsByCapacity[capacityGroup(room)];
+    }
+
+    private static int capacityGroup(Room room) {
+        return Math.max(0, Math.min(MAX_CAPACITY, room.getCapacity()));
+    }
+
+    // ---- Hóspedes ----
+
+    public Result addGuest(String name, String email, int contact, String typeOfDocument, int documentNumber) {
+        catalogLock.writeLock().lock();
+        try {
+            if (guestIndex.byDocument(typeOfDocument, documentNumber) >= 0) return Result.of(Result.Code.DUPLICATE_DOCUMENT);
+
+            int id = nextGuestId;
+            storeGuest(new Guest(id, name, email, contact, typeOfDocument, documentNumber));
+            logChange("GUEST_ADD," + id + "," + escapeCsv(name) + "," + escapeCsv(email) + "," + contact + "," + escapeCsv(typeOfDocument) + "," + documentNumber);
+            return Result.ok(id);
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    // Remove o hóspede, desde que não tenha reservas ativas
+    public Result removeGuest(int id) {
+        catalogLock.writeLock().lock();
+        try {
+            if (guestById(id) == null) return Result.of(Result.Code.GUEST_NOT_FOUND);
+            if (guestReservations.get(id) != null) return Result.of(Result.Code.HAS_ACTIVE_RESERVATIONS);
+
+            deleteGuestById(id);
+            logChange("GUEST_DEL," + id);
+            return Result.ok();
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    // Encontra o hóspede por id
+    public Guest findGuest(int id) {
+        catalogLock.readLock().lock();
+        try {
+            return guestById(id);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // Hóspede com este documento (tipo sem distinguir acentos nem maiúsculas), ou null
+    public Guest findGuestByDocument(String typeOfDocument, int documentNumber) {
+        catalogLock.readLock().lock();
+        try {
+            int id = guestIndex.byDocument(typeOfDocument, documentNumber);
+            return id < 0 ? null : guestById(id);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // Hóspedes com este email (sem distinguir maiúsculas), por ordem de id
+    public List<Guest> findGuestsByEmail(String email) {
+        catalogLock.readLock().lock();
+        try {
+            return guestsByIds(guestIndex.byEmail(email), null, Integer.MAX_VALUE);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // Hóspedes cujo nome tem, para cada palavra da pesquisa, uma palavra que começa por ela, sem distinguir
+    // acentos nem maiúsculas ("joao sil" encontra "João Silva"). Por ordem de id, no máximo limit.
+    public List<Guest> searchGuestsByName(String query, int limit) {
+        catalogLock.readLock().lock();
+        try {
+            return guestsByIds(guestIndex.byNamePrefix(query), query, limit);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    public List<Guest> searchGuestsByName(String query) {
+        return searchGuestsByName(query, Integer.MAX_VALUE);
+    }
+
+    // Cópia da lista de hóspedes, pela ordem de inserção
+    public List<Guest> guests() {
+        catalogLock.readLock().lock();
+        try {
+            ArrayList<Guest> list = new ArrayList<>(guests.size());
+            for (Guest guest : guests) list.add(guest);
+            return list;
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    public int guestCount() {
+        catalogLock.readLock().lock();
+        try {
+            return guests.size();
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    private Guest guestById(int id) {
+        long handle = guestHandles.get(id);
+        return handle == IntLongMap.NO_VALUE ? null : guests.get(handle);
+    }
+
+    // Hóspedes com os ids dados, por ordem de id; com query, só os que têm o nome a condizer
+    private List<Guest> guestsByIds(IntList ids, String query, int limit) {
+        int[] sorted = new int[ids.size()];
+        for (int i = 0; i < sorted.length; i++) sorted[i] = ids.get(i);
+        Arrays.sort(sorted);
+        ArrayList<Guest> found = new ArrayList<>();
+        for (int i = 0; i < sorted.length && found.size() < limit; i++) {
+            Guest guest = guestById(sorted[i]);
+            if (guest != null && (query == null || GuestIndex.matchesName(guest.getName(), query))) found.add(guest);
+        }
+        return found;
+    }
+
+    // Guarda o hóspede em memória e atualiza os índices
+    private void storeGuest(Guest guest) {
+        long previous = guestHandles.put(guest.getId(), guests.insert(guest));
+        if (previous != IntLongMap.NO_VALUE) { // Id repetido: fica o último
+            guestIndex.remove(guests.get(previous));
+            guests.remove(previous);
+        }
+        guestIndex.add(guest);
+        if (guest.getId() >= nextGuestId) nextGuestId = guest.getId() + 1;
+    }
+
+    // Remove o hóspede através do id, em O(1) (ver deleteRoomById)
+    private void deleteGuestById(int id) {
+        long handle = guestHandles.remove(id);
+        if (handle == IntLongMap.NO_VALUE) return;
+        guestIndex.remove(guests.get(handle));
+        guests.remove(handle);
+    }
+
+    // ---- Reservas ----
+
+    // Cria uma reserva ativa. Valida quarto, hóspede, número de hóspedes, datas e conflitos (impede double booking).
+    // Pode ser chamada por várias threads: a verificação de conflitos e a inserção são atómicas por quarto
+    // (trinco da árvore do quarto), por isso reservas de quartos diferentes só se cruzam na atualização das tabelas
+    // (tableLock). O registo no diário é escrito depois de largar tableLock, ainda com o trinco do quarto (a ordem
+    // dos registos de cada quarto mantém-se) e o de leitura (a compactação não pode rodar o diário a meio).
+    public Result bookRoom(int roomId, int guestId, int numberOfGuests, LocalDate start, LocalDate end) {
+        return bookRoom(roomId, guestId, numberOfGuests, EpochDay.of(start), EpochDay.of(end));
+    }
+
+    // O mesmo com as datas em dias desde 1970-01-01 (ver EpochDay)
+    public Result bookRoom(int roomId, int guestId, int numberOfGuests, int startDay, int endDay) {
+        long t0 = Metrics.start();
+        catalogLock.readLock().lock();
+        try {
+            Room room = roomById(roomId);
+            if (room == null) return Result.of(Result.Code.ROOM_NOT_FOUND);
+            if (guestById(guestId) == null) return Result.of(Result.Code.GUEST_NOT_FOUND);
+            if (numberOfGuests < 1 || numberOfGuests > room.getCapacity()) return Result.of(Result.Code.INVALID_GUEST_COUNT);
+            if (!isValidPeriod(startDay, endDay)) return Result.of(Result.Code.INVALID_DATES);
+
+            IntervalTree tree = roomIntervals.get(roomId);
+            synchronized (tree) {
+                if (tree.overlaps(startDay, endDay, -1)) {
+                    metrics.increment(Metrics.Counter.CONFLICTS);
+                    return Result.of(Result.Code.CONFLICT);
+                }
+
+                int id = nextReservationId.getAndIncrement();
+                tree.insert(startDay, endDay, id);
+                synchronized (tableLock) {
+                    int row = reservations.add(id, roomId, guestId, numberOfGuests, startDay, endDay, true);
+                    reservationRows.put(id, row);
+                    indexShared(row);
+                }
+                logChange("RES_ADD," + id + "," + roomId + "," + guestId + "," + numberOfGuests + "," + EpochDay.format(startDay) + "," + EpochDay.format(endDay)); // Regista no diário
+                metrics.increment(Metrics.Counter.BOOKINGS);
+                return Result.ok(id);
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+            metrics.record(Metrics.Operation.BOOK, t0);
+        }
+    }
+
+    // Importa um lote de reservas (ids da coluna id ignorados; ver ReservationImport) e retorna um resultado por linha:
+    // OK com o id atribuído, ou o motivo da recusa (quarto/hóspede inexistente, nº de hóspedes, datas ou CONFLICT).
+    // As linhas válidas são agrupadas por quarto e ordenadas por check-in; cada quarto é percorrido uma vez,
+    // em paralelo com as suas reservas ativas (também por ordem de check-in), o que deteta os conflitos com
+    // reservas existentes e entre linhas do lote (ganha a que começa primeiro; em empate, a que vem antes no lote).
+    // Corre com o trinco de escrita e todas as reservas aceites vão para o diário numa só escrita.
+    public Result[] importReservations(ReservationStore batch) {
+        long t0 = Metrics.start();
+        Result[] results = new Result[batch.size()];
+        catalogLock.writeLock().lock();
+        try {
+            IntObjectMap<IntList> byRoom = new IntObjectMap<>();
+            IntList roomIds = new IntList();
+            for (int i = 0; i < batch.size(); i++) {
+                Room room = roomById(batch.roomId(i));
+                if (room == null) results[i] = Result.of(Result.Code.ROOM_NOT_FOUND);
+                else if (guestById(batch.guestId(i)) == null) results[i] = Result.of(Result.Code.GUEST_NOT_FOUND);
+                else if (batch.numberOfGuests(i) < 1 || batch.numberOfGuests(i) > room.getCapacity()) results[i] = Result.of(Result.Code.INVALID_GUEST_COUNT);
+                else if (!isValidPeriod(batch.startDay(i), batch.endDay(i))) results[i] = Result.of(Result.Code.INVALID_DATES);
+                else {
+                    IntList rows = byRoom.get(batch.roomId(i));
+                    if (rows == null) {
+                        rows = new IntList();
+                        byRoom.put(batch.roomId(i), rows);
+                        roomIds.add(batch.roomId(i));
+                    }
+                    rows.add(i);
+                }
+            }
+
+            int[] rooms = new int[roomIds.size()];
+            for (int i = 0; i < rooms.length; i++) rooms[i] = roomIds.get(i);
+            Arrays.sort(rooms);
+            ArrayList<String> records = new ArrayList<>();
+            int accepted = 0;
+            for (int roomId : rooms) accepted += importRoom(roomId, byRoom.get(roomId), batch, results, records);
+
+            logChanges(records);
+            metrics.add(Metrics.Counter.BOOKINGS, accepted);
+            metrics.add(Metrics.Counter.CONFLICTS, countCode(results, Result.Code.CONFLICT));
+            return results;
+        } finally {
+            catalogLock.writeLock().unlock();
+            metrics.record(Metrics.Operation.IMPORT, t0);
+        }
+    }
+
+    // Varrimento de um quarto: linhas do lote por ordem de check-in (chave dia << 32 | linha) contra as reservas
+    // ativas do quarto que terminam no primeiro check-in do lote ou depois. Retorna o número de linhas aceites.
+    private int importRoom(int roomId, IntList rows, ReservationStore batch, Result[] results, List<String> records) {
+        long[] keys = new long[rows.size()];
+        for (int i = 0; i < keys.length; i++) keys[i] = ((long) batch.startDay(rows.get(i)) << 32) | rows.get(i);
+        Arrays.sort(keys);
+
+        IntervalTree tree = roomIntervals.get(roomId);
+        IntList existingStarts = new IntList();
+        IntList existingEnds = new IntList();
+        tree.forEachEndingFrom((int) (keys[0] >> 32), id -> {
+            int row = reservationRows.get(id);
+            existingStarts.add(reservations.startDay(row));
+            existingEnds.add(reservations.endDay(row));
+        });
+
+        int next = 0; // Primeira reserva existente que ainda pode sobrepor-se
+        int lastEnd = Integer.MIN_VALUE; // Fim da última linha aceite (as aceites não se sobrepõem, basta a última)
+        int accepted = 0;
+        for (long key : keys) {
+            int i = (int) key;
+            int start = batch.startDay(i);
+            int end = batch.endDay(i);
+            while (next < existingEnds.size() && existingEnds.get(next) < start) next++;
+            if (start <= lastEnd || (next < existingStarts.size() && existingStarts.get(next) <= end)) {
+                results[i] = Result.of(Result.Code.CONFLICT);
+                continue;
+            }
+
+            int id = nextReservationId.getAndIncrement();
+            tree.insert(start, end, id);
+            synchronized (tableLock) {
+                int row = reservations.add(id, roomId, batch.guestId(i), batch.numberOfGuests(i), start, end, true);
+                reservationRows.put(id, row);
+                indexShared(row);
+            }
+            records.add("RES_ADD," + id + "," + roomId + "," + batch.guestId(i) + "," + batch.numberOfGuests(i) + "," + EpochDay.format(start) + "," + EpochDay.format(end));
+            results[i] = Result.ok(id);
+            lastEnd = end;
+            accepted++;
+        }
+        return accepted;
+    }
+
+    private static int countCode(Result[] results, Result.Code code) {
+        int n = 0;
+        for (Result r : results) if (r != null && r.getCode() == code) n++;
+        return n;
+    }
+
+    // ---- Reservas de grupo ----
+
+    // Reserva os quartos indicados para as mesmas datas, todos ou nenhum. guestsPerRoom[i] é o nº de hóspedes de roomIds[i].
+    // Retorna OK com o id do grupo (o id da primeira reserva; as restantes têm os ids seguintes) ou o primeiro erro:
+    // ROOM_NOT_FOUND, GUEST_NOT_FOUND, INVALID_GUEST_COUNT, INVALID_DATES ou CONFLICT (também para quartos repetidos).
+    // Os trincos dos quartos são obtidos por ordem de id, o que evita impasses entre grupos com quartos em comum;
+    // com todos os trincos na mão, os conflitos são verificados (em paralelo nos grupos grandes) e as reservas
+    // inseridas. O grupo vai para o diário num único registo RES_GROUP.
+    public Result bookGroup(int guestId, int[] roomIds, int[] guestsPerRoom, LocalDate start, LocalDate end) {
+        long t0 = Metrics.start();
+        catalogLock.readLock().lock();
+        try {
+            if (guestById(guestId) == null) return Result.of(Result.Code.GUEST_NOT_FOUND);
+            if (!isValidPeriod(start, end)) return Result.of(Result.Code.INVALID_DATES);
+            if (roomIds.length == 0 || roomIds.length != guestsPerRoom.length) return Result.of(Result.Code.ROOM_NOT_FOUND);
+
+            // Ordena os quartos por id, mantendo o nº de hóspedes de cada um (chave quarto << 32 | posição)
+            int n = roomIds.length;
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) keys[i] = ((long) roomIds[i] << 32) | i;
+            Arrays.sort(keys);
+            int[] rooms = new int[n];
+            int[] guestCounts = new int[n];
+            IntervalTree[] trees = new IntervalTree[n];
+            for (int i = 0; i < n; i++) {
+                rooms[i] = (int) (keys[i] >> 32);
+                guestCounts[i] = guestsPerRoom[(int) keys[i]];
+                Room room = roomById(rooms[i]);
+                if (room == null) return Result.of(Result.Code.ROOM_NOT_FOUND);
+                if (guestCounts[i] < 1 || guestCounts[i] > room.getCapacity()) return Result.of(Result.Code.INVALID_GUEST_COUNT);
+                if (i > 0 && rooms[i] == rooms[i - 1]) return Result.of(Result.Code.CONFLICT);
+                trees[i] = roomIntervals.get(rooms[i]);
+            }
+            return lockRoomsAndBook(trees, 0, rooms, guestCounts, guestId, EpochDay.of(start), EpochDay.of(end));
+        } finally {
+            catalogLock.readLock().unlock();
+            metrics.record(Metrics.Operation.GROUP_BOOK, t0);
+        }
+    }
+
+    // Escolhe rooms quartos livres com capacidade >= guestsPerRoom (os de capacidade mais justa primeiro, ver
+    // searchAvailableRooms) e reserva-os como grupo. Se outro pedido ocupar um dos quartos entre a escolha e a
+    // reserva, tenta de novo com outra escolha. NOT_ENOUGH_ROOMS se não houver quartos livres suficientes.
+    public Result bookGroup(int guestId, int rooms, int guestsPerRoom, LocalDate start, LocalDate end) {
+        if (rooms < 1) return Result.of(Result.Code.ROOM_NOT_FOUND);
+        if (!isValidPeriod(start, end)) return Result.of(Result.Code.INVALID_DATES);
+        if (guestsPerRoom < 1 || guestsPerRoom > MAX_CAPACITY) return Result.of(Result.Code.INVALID_GUEST_COUNT);
+        Result result = Result.of(Result.Code.CONFLICT);
+        for (int attempt = 0; attempt < GROUP_BOOKING_ATTEMPTS && result.getCode() == Result.Code.CONFLICT; attempt++) {
+            List<Room> found = searchAvailableRooms(guestsPerRoom, start, end, rooms);
+            if (found.size() < rooms) return Result.of(Result.Code.NOT_ENOUGH_ROOMS);
+            int[] roomIds = new int[rooms];
+            int[] guestCounts = new int[rooms];
+            for (int i = 0; i < rooms; i++) {
+                roomIds[i] = found.get(i).getId();
+                guestCounts[i] = guestsPerRoom;
+            }
+            result = bookGroup(guestId, roomIds, guestCounts, start, end);
+        }
+        return result;
+    }
+
+    // Obtém o trinco de cada árvore, por ordem, e reserva quando os tem todos
+    private Result lockRoomsAndBook(IntervalTree[] trees, int i, int[] rooms, int[] guestCounts, int guestId, int startDay, int endDay) {
+        if (i < trees.length) {
+            synchronized (trees[i]) {
+                return lockRoomsAndBook(trees, i + 1, rooms, guestCounts, guestId, startDay, endDay);
+            }
+        }
+
+        // As árvores só mudam com o seu trinco, que esta thread tem, por isso as tarefas paralelas podem lê-las
+        boolean conflict = trees.length >= GROUP_PARALLEL_ROOMS
+                ? IntStream.range(0, trees.length).parallel().anyMatch(r -> trees[r].overlaps(startDay, endDay, -1))
+                : IntStream.range(0, trees.length).anyMatch(r -> trees[r].overlaps(startDay, endDay, -1));
+        if (conflict) {
+            metrics.increment(Metrics.Counter.CONFLICTS);
+            return Result.of(Result.Code.CONFLICT);
+        }
+
+        int groupId = nextReservationId.getAndAdd(trees.length);
+        StringBuilder record = new StringBuilder("RES_GROUP,").append(groupId).append(',').append(guestId).append(',');
+        EpochDay.append(record, startDay).append(',');
+        EpochDay.append(record, endDay).append(',').append(trees.length);
+        for (int r = 0; r < trees.length; r++) {
+            trees[r].insert(startDay, endDay, groupId + r);
+            record.append(',').append(rooms[r]).append(':').append(guestCounts[r]);
+        }
+        synchronized (tableLock) {
+            for (int r = 0; r < trees.length; r++) {
+                int row = reservations.add(groupId + r, rooms[r], guestId, guestCounts[r], startDay, endDay, true, groupId);
+                reservationRows.put(groupId + r, row);
+                indexGroup(row);
+                indexShared(row);
+            }
+        }
+        logChange(record.toString()); // Ainda com os trincos dos quartos, como em bookRoom
+        metrics.add(Metrics.Counter.BOOKINGS, trees.length);
+        return Result.ok(groupId);
+    }
+
+    // Reservas do grupo (ativas e canceladas), por id
+    public List<Reservation> groupReservations(int groupId) {
+        ArrayList<Reservation> found = new ArrayList<>();
+        synchronized (tableLock) {
+            IntList rows = groupRows.get(groupId);
+            for (int i = 0; rows != null && i < rows.size(); i++) found.add(reservations.toReservation(rows.get(i)));
+        }
+        found.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        return found;
+    }
+
+    // Cancela as reservas ativas do grupo de uma só vez. RESERVATION_NOT_FOUND se o grupo não existir,
+    // ALREADY_CANCELLED se já não tiver ativas. Os trincos dos quartos são obtidos por ordem de id, como em bookGroup,
+    // e o cancelamento vai para o diário num único registo RES_GROUP_CANCEL: depois de uma falha, ou o grupo
+    // ficou todo cancelado ou nenhum membro foi.
+    public Result cancelGroup(int groupId) {
+        long t0 = Metrics.start();
+        catalogLock.readLock().lock();
+        try {
+            long[] keys; // Quarto << 32 | linha, das reservas ativas
+            synchronized (tableLock) {
+                IntList rows = groupRows.get(groupId);
+                if (rows == null) return Result.of(Result.Code.RESERVATION_NOT_FOUND);
+                int n = 0;
+                keys = new long[rows.size()];
+                for (int i = 0; i < rows.size(); i++) {
+                    int row = rows.get(i);
+                    if (reservations.isActive(row)) keys[n++] = ((long) reservations.roomId(row) << 32) | row;
+                }
+                keys = Arrays.copyOf(keys, n);
+                Arrays.sort(keys);
+            }
+            if (keys.length == 0) return Result.of(Result.Code.ALREADY_CANCELLED);
+            IntervalTree[] trees = new IntervalTree[keys.length];
+            for (int i = 0; i < keys.length; i++) trees[i] = roomIntervals.get((int) (keys[i] >> 32));
+            return lockRoomsAndCancel(trees, 0, keys, groupId);
+        } finally {
+            catalogLock.readLock().unlock();
+            metrics.record(Metrics.Operation.GROUP_CANCEL, t0);
+        }
+    }
+
+    // Obtém o trinco de cada árvore, por ordem, e cancela quando os tem todos (as reservas canceladas entretanto ficam de fora)
+    private Result lockRoomsAndCancel(IntervalTree[] trees, int i, long[] keys, int groupId) {
+        if (i < trees.length) {
+            synchronized (trees[i]) {
+                return lockRoomsAndCancel(trees, i + 1, keys, groupId);
+            }
+        }
+
+        ArrayList<String> records = new ArrayList<>();
+        synchronized (tableLock) {
+            IntList cancelled = new IntList(keys.length);
+            for (long key : keys) {
+                int row = (int) key;
+                if (reservations.isActive(row)) cancelled.add(row);
+            }
+            if (cancelled.isEmpty()) return Result.of(Result.Code.ALREADY_CANCELLED);
+
+            StringBuilder record = new StringBuilder("RES_GROUP_CANCEL,").append(groupId).append(',').append(cancelled.size());
+            for (int k = 0; k < cancelled.size(); k++) {
+                cancel(cancelled.get(k));
+                record.append(',').append(reservations.id(cancelled.get(k)));
+            }
+            records.add(record.toString());
+            metrics.add(Metrics.Counter.CANCELLATIONS, cancelled.size());
+            for (int k = 0; k < cancelled.size(); k++) {
+                int row = cancelled.get(k);
+                int roomId = reservations.roomId(row);
+                offerFreedRoom(roomId, roomIntervals.get(roomId), reservations.startDay(row), reservations.endDay(row), records);
+            }
+        }
+        logChanges(records); // Ainda com os trincos dos quartos, como em bookRoom
+        return Result.ok();
+    }
+
+    // ---- Atribuição automática de quartos ----
+
+    // Reserva pedidos sem quarto (a coluna roomId de requests é ignorada) e retorna um resultado por linha:
+    // OK com o id da reserva, GUEST_NOT_FOUND, INVALID_GUEST_COUNT, INVALID_DATES ou NOT_ENOUGH_ROOMS.
+    // Os pedidos são tratados por data de fim e cada um fica, no grupo de capacidade mais justa com quartos livres,
+    // no quarto onde deixa menos fragmentação (ver RoomAssignment.insertCost). As reservas existentes não mudam
+    // de quarto; isso fica para optimizeAssignments, que só mexe nas reservas criadas aqui (RES_ASSIGN no diário). Corre com o trinco de escrita, como a importação.
+    public Result[] assignRooms(ReservationStore requests) {
+        long t0 = Metrics.start();
+        Result[] results = new Result[requests.size()];
+        catalogLock.writeLock().lock();
+        try {
+            long[] order = new long[requests.size()];
+            int valid = 0;
+            for (int i = 0; i < requests.size(); i++) {
+                if (guestById(requests.guestId(i)) == null) results[i] = Result.of(Result.Code.GUEST_NOT_FOUND);
+                else if (requests.numberOfGuests(i) < 1 || requests.numberOfGuests(i) > MAX_CAPACITY) results[i] = Result.of(Result.Code.INVALID_GUEST_COUNT);
+                else if (!isValidPeriod(requests.startDay(i), requests.endDay(i))) results[i] = Result.of(Result.Code.INVALID_DATES);
+                else order[valid++] = ((long) requests.endDay(i) << 32) | i;
+            }
+            Arrays.sort(order, 0, valid);
+
+            ArrayList<String> records = new ArrayList<>();
+            for (int k = 0; k < valid; k++) {
+                int i = (int) order[k];
+                int start = requests.startDay(i);
+                int end = requests.endDay(i);
+                int roomId = bestRoomFor(requests.numberOfGuests(i), start, end);
+                if (roomId < 0) {
+                    results[i] = Result.of(Result.Code.NOT_ENOUGH_ROOMS);
+                    continue;
+                }
+
+                int id = nextReservationId.getAndIncrement();
+                roomIntervals.get(roomId).insert(start, end, id);
+                synchronized (tableLock) {
+                    int row = reservations.add(id, roomId, requests.guestId(i), requests.numberOfGuests(i), start, end, true);
+                    reservations.setAutoAssigned(row, true);
+                    reservationRows.put(id, row);
+                    indexShared(row);
+                }
+                records.add("RES_ASSIGN," + id + "," + roomId + "," + requests.guestId(i) + "," + requests.numberOfGuests(i) + "," + EpochDay.format(start) + "," + EpochDay.format(end));
+                results[i] = Result.ok(id);
+            }
+
+            logChanges(records);
+            metrics.add(Metrics.Counter.BOOKINGS, records.size());
+            return results;
+        } finally {
+            catalogLock.writeLock().unlock();
+            metrics.record(Metrics.Operation.ASSIGN, t0);
+        }
+    }
+
+    public Result assignRoom(int guestId, int numberOfGuests, LocalDate start, LocalDate end) {
+        ReservationStore request = new ReservationStore(1);
+        request.add(0, 0, guestId, numberOfGuests, EpochDay.of(start), EpochDay.of(end), true);
+        return assignRooms(request)[0];
+    }
+
+    // Quarto livre em [startDay, endDay] com capacidade >= guests que deixa menos fragmentação (-1 se não houver).
+    // Fica no primeiro grupo de capacidade, do mais justo para o maior, que tenha quartos livres. Em cada grupo são vistos:
+    // - os quartos com uma estadia que acaba na véspera do check-in ou começa no dia a seguir ao check-out (índices de
+    //   partidas e chegadas, só nesses dois dias): só encostando a outra estadia o custo pode ser <= 0;
+    // - se nenhum desses tiver custo <= 0, os quartos livres do grupo, até ASSIGN_SCAN_LIMIT ou até aparecer um com
+    //   custo 1, o menor possível sem encostar a outra estadia.
+    // Os primeiros vêm dos índices por capacidade e dia (startsByCapacity, endsByCapacity), até ASSIGN_SCAN_LIMIT de cada.
+    // Cada pedido custa O(log n + ASSIGN_SCAN_LIMIT) consultas às árvores por grupo, e não uma por quarto livre;
+    // o conjunto de livres do grupo é calculado pelo calendário, 64 quartos de cada vez.
+    private int bestRoomFor(int guests, int startDay, int endDay) {
+        IntList adjacent = new IntList();
+        for (int c = Math.max(guests, MIN_CAPACITY); c <= MAX_CAPACITY; c++) {
+            adjacent.clear();
+            endsByCapacity[c].between(startDay - 1, startDay - 1).limit(ASSIGN_SCAN_LIMIT).forEach(adjacent::add);
+            startsByCapacity[c].between(endDay + 1, endDay + 1).limit(ASSIGN_SCAN_LIMIT).forEach(adjacent::add);
+            int best = -1;
+            int bestCost = Integer.MAX_VALUE;
+            for (int k = 0; k < adjacent.size(); k++) {
+                int id = adjacent.get(k);
+                int cost = insertCostOrConflict(id, startDay, endDay);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = id;
+                }
+            }
+            if (bestCost > 0) {
+                BitSet free = calendar.freeDuring(roomsByCapacity[c], startDay, endDay);
+                int scanned = 0;
+                for (int id = free.nextSetBit(0); id >= 0 && scanned < ASSIGN_SCAN_LIMIT && bestCost > RoomAssignment.GAP_COST; id = free.nextSetBit(id + 1), scanned++) {
+                    int cost = insertCostOrConflict(id, startDay, endDay);
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        best = id;
+                    }
+                }
+            }
+            if (best >= 0) return best;
+        }
+        return -1;
+    }
+
+    // Custo de pôr a estadia no quarto (ver RoomAssignment.insertCost), ou Integer.MAX_VALUE se o quarto estiver ocupado
+    private int insertCostOrConflict(int roomId, int startDay, int endDay) {
+        IntervalTree tree = roomIntervals.get(roomId);
+        if (tree.overlaps(startDay, endDay, -1)) return Integer.MAX_VALUE;
+        return RoomAssignment.insertCost(tree.endBefore(startDay), startDay, endDay, tree.startAfter(endDay));
+    }
+
+    // Volta a distribuir pelos quartos as reservas ativas com check-in a partir de from cujo quarto foi escolhido por
+    // assignRooms (ver RoomAssignment). Com improve, melhoria local a partir da atribuição atual, que só muda as
+    // estadias cuja mudança compensa (MOVE_COST); sem improve, um plano novo do guloso. As outras reservas
+    // (estadias já começadas, quartos escolhidos na reserva, grupos) ficam fixas no seu quarto, e os quartos com
+    // capacidade fora de 1..6 (e as suas reservas) ficam de fora. O plano só é aplicado se colocar todas as reservas
+    // e o ganho, descontadas as mudanças, chegar ao mínimo (ver RoomAssignment.isImprovement).
+    // As mudanças vão para o diário num único registo RES_MOVE. Pensado para correr de noite (ver HotelHttpServer).
+    public RoomAssignment optimizeAssignments(LocalDate from, boolean improve) {
+        long t0 = Metrics.start();
+        int fromDay = EpochDay.of(from);
+        catalogLock.writeLock().lock();
+        try {
+            IntList ids = new IntList();
+            for (Room room : rooms) {
+                if (room.getCapacity() >= MIN_CAPACITY && room.getCapacity() <= MAX_CAPACITY) ids.add(room.getId());
+            }
+            int[] roomIds = new int[ids.size()];
+            for (int r = 0; r < roomIds.length; r++) roomIds[r] = ids.get(r);
+            Arrays.sort(roomIds);
+            int[] capacities = new int[roomIds.length];
+            IntIntMap roomIndex = new IntIntMap(roomIds.length);
+            for (int r = 0; r < roomIds.length; r++) {
+                capacities[r] = roomById(roomIds[r]).getCapacity();
+                roomIndex.put(roomIds[r], r);
+            }
+
+            IntList rows = new IntList();
+            IntList fixedRows = new IntList();
+            for (int row = 0; row < reservations.size(); row++) {
+                if (!reservations.isActive(row) || reservations.endDay(row) < fromDay) continue;
+                if (roomIndex.get(reservations.roomId(row)) < 0) continue;
+                if (reservations.isAutoAssigned(row) && reservations.startDay(row) >= fromDay) rows.add(row);
+                else fixedRows.add(row);
+            }
+            int[] fixedRooms = new int[fixedRows.size()];
+            int[] fixedStarts = new int[fixedRooms.length];
+            int[] fixedEnds = new int[fixedRooms.length];
+            for (int f = 0; f < fixedRooms.length; f++) {
+                int row = fixedRows.get(f);
+                fixedRooms[f] = roomIndex.get(reservations.roomId(row));
+                fixedStarts[f] = reservations.startDay(row);
+                fixedEnds[f] = reservations.endDay(row);
+            }
+
+            int n = rows.size();
+            int[] guestCounts = new int[n];
+            int[] starts = new int[n];
+            int[] ends = new int[n];
+            int[] original = new int[n];
+            for (int i = 0; i < n; i++) {
+                int row = rows.get(i);
+                guestCounts[i] = reservations.numberOfGuests(row);
+                starts[i] = reservations.startDay(row);
+                ends[i] = reservations.endDay(row);
+                original[i] = roomIndex.get(reservations.roomId(row));
+            }
+
+            RoomAssignment plan = new RoomAssignment(roomIds, capacities, fixedRooms, fixedStarts, fixedEnds, guestCounts, starts, ends, original);
+            if (improve) plan.improve();
+            else plan.assignGreedy();
+            if (!plan.isImprovement()) return plan;
+
+            int[] moveRows = new int[plan.moved()];
+            int[] moveRooms = new int[moveRows.length];
+            StringBuilder record = new StringBuilder("RES_MOVE,").append(moveRows.length);
+            for (int i = 0, k = 0; i < n; i++) {
+                int row = rows.get(i);
+                if (plan.roomOf(i) == reservations.roomId(row)) continue;
+                moveRows[k] = row;
+                moveRooms[k++] = plan.roomOf(i);
+                record.append(',').append(reservations.id(row)).append(':').append(plan.roomOf(i));
+            }
+            synchronized (tableLock) {
+                moveReservations(moveRows, moveRooms);
+                logChange(record.toString());
+            }
+            writer.requestCompaction(); // O registo pode ser grande; os CSV passam a ter já os quartos novos
+            metrics.add(Metrics.Counter.ROOM_MOVES, moveRows.length);
+            return plan;
+        } finally {
+            catalogLock.writeLock().unlock();
+            metrics.record(Metrics.Operation.OPTIMIZE, t0);
+        }
+    }
+
+    // Muda as reservas ativas das linhas rows para os quartos roomIds. Primeiro tira-as todas dos quartos antigos e só
+    // depois as põe nos novos, para que duas reservas que trocam de quarto não apaguem a ocupação uma da outra no calendário.
+    // Chamado com o trinco de escrita e tableLock (ou no carregamento).
+    private void moveReservations(int[] rows, int[] roomIds) {
+        for (int row : rows) {
+            IntervalTree tree = roomIntervals.get(reservations.roomId(row));
+            if (tree != null) tree.remove(reservations.startDay(row), reservations.id(row));
+            calendar.release(reservations.roomId(row), reservations.startDay(row), reservations.endDay(row));
+            unindexStayDays(reservations.roomId(row), reservations.startDay(row), reservations.endDay(row));
+        }
+        for (int k = 0; k < rows.length; k++) {
+            int row = rows[k];
+            reservations.setRoomId(row, roomIds[k]);
+            roomIntervals.get(roomIds[k]).insert(reservations.startDay(row), reservations.endDay(row), reservations.id(row));
+            calendar.occupy(roomIds[k], reservations.startDay(row), reservations.endDay(row));
+            indexStayDays(roomIds[k], reservations.startDay(row), reservations.endDay(row));
+        }
+    }
+
+    public Result cancelReservation(int id) {
+        long t0 = Metrics.start();
+        catalogLock.readLock().lock();
+        try {
+            int row;
+            IntervalTree tree;
+            synchronized (tableLock) {
+                row = reservationRows.get(id); // Verifica se a reserva existe
+                if (row < 0) return Result.of(Result.Code.RESERVATION_NOT_FOUND);
+                tree = roomIntervals.get(reservations.roomId(row));
+            }
+            // Sem árvore, o quarto já não existe e a reserva não pode estar ativa
+            synchronized (tree != null ? tree : tableLock) {
+                ArrayList<String> records = new ArrayList<>();
+                synchronized (tableLock) {
+                    if (!reservations.isActive(row)) return Result.of(Result.Code.ALREADY_CANCELLED);
+
+                    cancel(row);
+                    records.add("RES_CANCEL," + id);
+                    metrics.increment(Metrics.Counter.CANCELLATIONS);
+                    if (tree != null) offerFreedRoom(reservations.roomId(row), tree, reservations.startDay(row), reservations.endDay(row), records);
+                }
+                logChanges(records); // Depois de largar tableLock, ainda com o trinco do quarto (ver bookRoom)
+                return Result.ok();
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+            metrics.record(Metrics.Operation.CANCEL, t0);
+        }
+    }
+
+    public Reservation findReservation(int id) { // Encontra a reserva através do ID
+        synchronized (tableLock) {
+            int row = reservationRows.get(id);
+            return row < 0 ? null : reservations.toReservation(row);
+        }
+    }
+
+    public int reservationCount() {
+        synchronized (tableLock) {
+            return reservations.size();
+        }
+    }
+
+    // Todas as reservas (ativas e canceladas), pela ordem em que foram guardadas.
+    // As reservas são copiadas primeiro, para não bloquear novas reservas enquanto a ação corre.
+    public void forEachReservation(Consumer<Reservation> action) {
+        ArrayList<Reservation> copy;
+        synchronized (tableLock) {
+            copy = new ArrayList<>(reservations.size());
+            for (int row = 0; row < reservations.size(); row++) copy.add(reservations.toReservation(row));
+        }
+        copy.forEach(action);
+    }
+
+    // Reservas ativas do quarto que terminam em from ou depois, por ordem de check-in
+    public void forEachReservationOfRoom(int roomId, LocalDate from, Consumer<Reservation> action) {
+        IntList ids = new IntList();
+        catalogLock.readLock().lock();
+        try {
+            IntervalTree tree = roomIntervals.get(roomId);
+            if (tree == null) return;
+            synchronized (tree) {
+                tree.forEachEndingFrom((int) from.toEpochDay(), ids::add);
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+        forEachById(ids, action);
+    }
+
+    // Reservas ativas do hóspede que terminam em from ou depois
+    public void forEachReservationOfGuest(int guestId, LocalDate from, Consumer<Reservation> action) {
+        int fromDay = (int) from.toEpochDay();
+        ArrayList<Reservation> found = new ArrayList<>();
+        synchronized (tableLock) {
+            IntList rows = guestReservations.get(guestId); // Só as reservas ativas deste hóspede
+            for (int i = 0; rows != null && i < rows.size(); i++) {
+                int row = rows.get(i);
+                if (reservations.endDay(row) >= fromDay) found.add(reservations.toReservation(row));
+            }
+        }
+        found.forEach(action);
+    }
+
+    // Ids das reservas ativas com check-in em [from, to], por ordem de data (lidos à medida que são consumidos)
+    public IntStream arrivalsBetween(LocalDate from, LocalDate to) {
+        return arrivals.between((int) from.toEpochDay(), (int) to.toEpochDay());
+    }
+
+    // Ids das reservas ativas com check-out em [from, to], por ordem de data
+    public IntStream departuresBetween(LocalDate from, LocalDate to) {
+        return departures.between((int) from.toEpochDay(), (int) to.toEpochDay());
+    }
+
+    // Ids das reservas ativas que incluem o dia indicado: o calendário dá os quartos ocupados
+    // e a árvore de intervalos de cada um dá a reserva que cobre esse dia.
+    public void forEachInHouse(LocalDate date, IntConsumer action) {
+        int day = (int) date.toEpochDay();
+        IntList ids = new IntList();
+        catalogLock.readLock().lock();
+        try {
+            BitSet occupied;
+            synchronized (tableLock) {
+                occupied = calendar.occupiedOn(day);
+            }
+            for (int roomId = occupied.nextSetBit(0); roomId >= 0; roomId = occupied.nextSetBit(roomId + 1)) {
+                IntervalTree tree = roomIntervals.get(roomId);
+                if (tree == null) continue;
+                synchronized (tree) {
+                    tree.forEachOverlapping(day, day, ids::add);
+                }
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+        for (int i = 0; i < ids.size(); i++) action.accept(ids.get(i));
+    }
+
+    public boolean hasConflict(int roomId, LocalDate start, LocalDate end, int ignoreReservationId) { // Verifica se há conflito de reservas
+        return hasConflict(roomId, EpochDay.of(start), EpochDay.of(end), ignoreReservationId);
+    }
+
+    // O mesmo com as datas em dias desde 1970-01-01: só comparações de int na árvore do quarto
+    public boolean hasConflict(int roomId, int startDay, int endDay, int ignoreReservationId) {
+        long t0 = Metrics.start();
+        catalogLock.readLock().lock();
+        try {
+            IntervalTree tree = roomIntervals.get(roomId); // Só as reservas ativas deste quarto interessam
+            if (tree == null) return false;
+            synchronized (tree) {
+                return tree.overlaps(startDay, endDay, ignoreReservationId);
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+            metrics.record(Metrics.Operation.HAS_CONFLICT, t0);
+        }
+    }
+
+    // Número de reservas ativas do quarto, em O(1)
+    public int activeReservationsOfRoom(int roomId) {
+        catalogLock.readLock().lock();
+        try {
+            IntervalTree tree = roomIntervals.get(roomId);
+            if (tree == null) return 0;
+            synchronized (tree) {
+                return tree.size();
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // Número de reservas ativas do hóspede, em O(1)
+    public int activeReservationsOfGuest(int guestId) {
+        synchronized (tableLock) {
+            IntList rows = guestReservations.get(guestId);
+            return rows == null ? 0 : rows.size();
+        }
+    }
+
+    private void forEachById(IntList ids, Consumer<Reservation> action) {
+        for (int i = 0; i < ids.size(); i++) {
+            Reservation r = findReservation(ids.get(i));
+            if (r != null) action.accept(r);
+        }
+    }
+
+    // Guarda a reserva em memória (datas em dias desde 1970-01-01) e retorna a linha onde ficou.
+    // Se estiver ativa entra também nos índices de ocupação.
+    private int storeReservation(int id, int roomId, int guestId, int nGuests, int startDay, int endDay, boolean active) {
+        return storeReservation(id, roomId, guestId, nGuests, startDay, endDay, active, 0);
+    }
+
+    private int storeReservation(int id, int roomId, int guestId, int nGuests, int startDay, int endDay, boolean active, int groupId) {
+        int row = reservations.add(id, roomId, guestId, nGuests, startDay, endDay, active, groupId);
+        registerReservation(row);
+        return row;
+    }
+
+    // Atualiza o índice por id, os índices de ocupação e o próximo id para uma linha já guardada
+    private void registerReservation(int row) {
+        int id = reservations.id(row);
+        reservationRows.put(id, row);
+        indexGroup(row);
+        if (reservations.isActive(row)) indexReservation(row);
+        nextReservationId.accumulateAndGet(id + 1, Math::max);
+    }
+
+    private void indexGroup(int row) {
+        int groupId = reservations.groupId(row);
+        if (groupId == 0) return;
+        IntList rows = groupRows.get(groupId);
+        if (rows == null) {
+            rows = new IntList(4);
+            groupRows.put(groupId, rows);
+        }
+        rows.add(row);
+    }
+
+    // Chamado com o trinco do quarto e tableLock (ou com o trinco de escrita)
+    private void cancel(int row) {
+        unindexReservation(row);
+        reservations.setActive(row, false);
+    }
+
+    private int findReservationRow(int id) { // Linha da reserva em reservations, ou -1 se não existir
+        return reservationRows.get(id);
+    }
+
+    // Acrescenta uma reserva ativa ao índice de intervalos do quarto e aos índices partilhados.
+    // Só é usado no carregamento e no diário, com o trinco de escrita.
+    private void indexReservation(int row) {
+        int roomId = reservations.roomId(row);
+        IntervalTree tree = roomIntervals.get(roomId);
+        if (tree == null) { // Reserva de um quarto que já não existe
+            tree = new IntervalTree();
+            roomIntervals.put(roomId, tree);
+        }
+        tree.insert(reservations.startDay(row), reservations.endDay(row), reservations.id(row));
+        indexShared(row);
+    }
+
+    // Índices partilhados por todos os quartos (calendário de ocupação, índices por data e índice do hóspede).
+    // Chamado com tableLock.
+    private void indexShared(int row) {
+        int roomId = reservations.roomId(row);
+        int start = reservations.startDay(row);
+        int end = reservations.endDay(row);
+
+        calendar.occupy(roomId, start, end);
+        arrivals.add(start, reservations.id(row));
+        departures.add(end, reservations.id(row));
+        indexStayDays(roomId, start, end);
+
+        int guestId = reservations.guestId(row);
+        IntList rows = guestReservations.get(guestId);
+        if (rows == null) {
+            rows = new IntList();
+            guestReservations.put(guestId, rows);
+        }
+        rows.add(row);
+    }
+
+    // startsByCapacity e endsByCapacity (reservas de quartos que já não existem ficam de fora)
+    private void indexStayDays(int roomId, int start, int end) {
+        Room room = roomById(roomId);
+        if (room == null) return;
+        startsByCapacity[capacityGroup(room)].add(start, roomId);
+        endsByCapacity[capacityGroup(room)].add(end, roomId);
+    }
+
+    private void unindexStayDays(int roomId, int start, int end) {
+        Room room = roomById(roomId);
+        if (room == null) return;
+        startsByCapacity[capacityGroup(room)].remove(start, roomId);
+        endsByCapacity[capacityGroup(room)].remove(end, roomId);
+    }
+
+    // Retira uma reserva dos índices de ocupação e do índice do hóspede (ex.: quando é cancelada)
+    private void unindexReservation(int row) {
+        int roomId = reservations.roomId(row);
+        IntervalTree tree = roomIntervals.get(roomId);
+        if (tree == null) return;
+        int start = reservations.startDay(row);
+        if (!tree.remove(start, reservations.id(row))) return;
+        calendar.release(roomId, start, reservations.endDay(row));
+        arrivals.remove(start, reservations.id(row));
+        departures.remove(reservations.endDay(row), reservations.id(row));
+        unindexStayDays(roomId, start, reservations.endDay(row));
+
+        int guestId = reservations.guestId(row);
+        IntList rows = guestReservations.get(guestId);
+        if (rows != null && rows.removeValue(row) && rows.isEmpty()) guestReservations.remove(guestId);
+    }
+
+    // ---- Lista de espera ----
+
+    // Põe um pedido na lista de espera (ver Waitlist). Só é aceite quando não há nenhum quarto com capacidade suficiente
+    // livre nessas datas (senão ROOMS_AVAILABLE): a partir daí, o pedido só pode passar a caber com um cancelamento.
+    // Um check-in antes de hoje é INVALID_DATES.
+    // autoBook: reservar logo o quarto libertado; senão o quarto é só oferecido (ver acceptOffer).
+    // A verificação e a entrada na lista são feitas com tableLock, como a libertação do quarto num cancelamento,
+    // por isso um cancelamento nunca fica entre as duas sem ser visto.
+    public Result joinWaitlist(int guestId, int numberOfGuests, LocalDate start, LocalDate end, boolean autoBook) {
+        int startDay = EpochDay.of(start);
+        int endDay = EpochDay.of(end);
+        catalogLock.readLock().lock();
+        try {
+            if (guestById(guestId) == null) return Result.of(Result.Code.GUEST_NOT_FOUND);
+            if (numberOfGuests < MIN_CAPACITY || numberOfGuests > MAX_CAPACITY) return Result.of(Result.Code.INVALID_GUEST_COUNT);
+            if (!isValidPeriod(startDay, endDay) || startDay < EpochDay.of(LocalDate.now())) return Result.of(Result.Code.INVALID_DATES);
+
+            BitSet candidates = new BitSet();
+            for (int c = numberOfGuests; c <= MAX_CAPACITY; c++) candidates.or(roomsByCapacity[c]);
+            synchronized (tableLock) {
+                if (!calendar.freeDuring(candidates, startDay, endDay).isEmpty()) return Result.of(Result.Code.ROOMS_AVAILABLE);
+                Waitlist.Entry e = waitlist.add(0, guestId, numberOfGuests, startDay, endDay, autoBook);
+                logChange("WAIT_ADD," + e.getId() + "," + guestId + "," + numberOfGuests + "," + EpochDay.format(startDay) + "," + EpochDay.format(endDay) + "," + autoBook);
+                return Result.ok(e.getId());
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // Retira um pedido da lista (à espera, oferecido ou já reservado; a reserva, se houver, fica)
+    public Result leaveWaitlist(int entryId) {
+        catalogLock.readLock().lock();
+        try {
+            synchronized (tableLock) {
+                if (!waitlist.remove(entryId)) return Result.of(Result.Code.NOT_ON_WAITLIST);
+                logChange("WAIT_DEL," + entryId);
+                return Result.ok();
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // Cópia dos pedidos da lista de espera, por ordem de pedido
+    public List<Waitlist.Entry> waitlist() {
+        synchronized (tableLock) {
+            return waitlist.entries();
+        }
+    }
+
+    // Aceita o quarto oferecido a um pedido: reserva-o (bookRoom) e marca o pedido como reservado.
+    // Se entretanto o quarto tiver sido reservado por outra pessoa, o pedido volta a ficar à espera, com a mesma
+    // prioridade, e o resultado é o de bookRoom (CONFLICT).
+    public Result acceptOffer(int entryId) {
+        catalogLock.readLock().lock();
+        try {
+            int roomId;
+            Waitlist.Entry e;
+            synchronized (tableLock) {
+                e = waitlist.get(entryId);
+                if (e == null) return Result.of(Result.Code.NOT_ON_WAITLIST);
+                if (e.getOfferedRoom() == 0 || e.getReservationId() != 0) return Result.of(Result.Code.NO_OFFER);
+                roomId = e.getOfferedRoom();
+            }
+            Result r = bookRoom(roomId, e.getGuestId(), e.getNumberOfGuests(), e.getStartDay(), e.getEndDay());
+            synchronized (tableLock) {
+                if (waitlist.get(entryId) != e || e.getOfferedRoom() != roomId || e.getReservationId() != 0) return r; // Mudou entretanto
+                if (r.isOk()) {
+                    waitlist.booked(e, r.getId());
+                    logChange("WAIT_BOOKED," + entryId + "," + r.getId());
+                } else {
+                    waitlist.offer(e, 0);
+                    logChange("WAIT_OFFER," + entryId + ",0");
+                }
+            }
+            return r;
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // Depois de um cancelamento no quarto roomId: o intervalo livre à volta da estadia cancelada [startDay, endDay] vai
+    // da estadia anterior à seguinte, mas nunca antes de hoje. Procura nele (Waitlist.match) o pedido mais antigo que
+    // cabe e começa até endDay (os que começam depois já cabiam antes do cancelamento). Um pedido com autoBook fica reservado neste quarto e a
+    // procura continua nos dois bocados que sobram do intervalo; a um pedido só de aviso é oferecido o quarto
+    // (que não fica reservado) e a procura nesse bocado termina.
+    // Chamado com o trinco de leitura, o trinco da árvore do quarto e tableLock; os registos para o diário vão para
+    // records, que quem chama escreve depois de largar tableLock.
+    private void offerFreedRoom(int roomId, IntervalTree tree, int startDay, int endDay, List<String> records) {
+        if (waitlist.isEmpty()) return;
+        Room room = roomById(roomId);
+        if (room == null) return;
+        int today = EpochDay.of(LocalDate.now());
+        expireWaitlist(today);
+        int before = tree.endBefore(startDay);
+        int after = tree.startAfter(endDay);
+        IntList gaps = new IntList(); // Pares (início, fim) por procurar
+        gaps.add(Math.max(today, before + 1)); // Sem estadia antes: before + 1 = MIN_VALUE + 1
+        gaps.add(after == Integer.MAX_VALUE ? Integer.MAX_VALUE : after - 1);
+        while (!gaps.isEmpty()) {
+            int gapEnd = gaps.removeLast();
+            int gapStart = gaps.removeLast();
+            Waitlist.Entry e = waitlist.match(room.getCapacity(), gapStart, gapEnd, endDay);
+            if (e == null) continue;
+            if (guestById(e.getGuestId()) == null) { // Hóspede removido entretanto: o pedido sai e o bocado é revisto
+                waitlist.remove(e.getId());
+                records.add("WAIT_DEL," + e.getId());
+                gaps.add(gapStart);
+                gaps.add(gapEnd);
+                continue;
+            }
+            if (!e.isAutoBook()) {
+                waitlist.offer(e, roomId);
+                records.add("WAIT_OFFER," + e.getId() + "," + roomId);
+                metrics.increment(Metrics.Counter.WAITLIST_OFFERS);
+                continue;
+            }
+
+            int id = nextReservationId.getAndIncrement();
+            tree.insert(e.getStartDay(), e.getEndDay(), id);
+            int row = reservations.add(id, roomId, e.getGuestId(), e.getNumberOfGuests(), e.getStartDay(), e.getEndDay(), true);
+            reservationRows.put(id, row);
+            indexShared(row);
+            waitlist.booked(e, id);
+            records.add("RES_ADD," + id + "," + roomId + "," + e.getGuestId() + "," + e.getNumberOfGuests() + "," + EpochDay.format(e.getStartDay()) + "," + EpochDay.format(e.getEndDay()));
+            records.add("WAIT_BOOKED," + e.getId() + "," + id);
+            metrics.increment(Metrics.Counter.BOOKINGS);
+            metrics.increment(Metrics.Counter.WAITLIST_BOOKINGS);
+            gaps.add(gapStart);
+            gaps.add(e.getStartDay() - 1);
+            gaps.add(e.getEndDay() + 1);
+            gaps.add(gapEnd);
+        }
+    }
+
+    // Tira da lista de espera os pedidos à espera cujo check-in já passou (ver Waitlist.expire). Não vai para o diário:
+    // no arranque, os pedidos repostos pelo diário ou pelo espera.csv expiram da mesma maneira.
+    // Chamado com tableLock (ou no carregamento e na compactação).
+    private void expireWaitlist() {
+        expireWaitlist(EpochDay.of(LocalDate.now()));
+    }
+
+    private void expireWaitlist(int today) {
+        if (waitlist.expire(today) > 0) dirtyTables.getAndUpdate(d -> d | DIRTY_WAITLIST);
+    }
+
+    // WAIT_ADD,id,guestId,n,início,fim,autoBook; WAIT_DEL,id; WAIT_OFFER,id,quarto (0 = de novo à espera); WAIT_BOOKED,id,reserva
+    private void replayWaitlist(String[] p) {
+        int id = Integer.parseInt(p[1]);
+        Waitlist.Entry e = waitlist.get(id);
+        switch (p[0]) {
+            case "WAIT_ADD" -> {
+                if (e == null) waitlist.add(id, Integer.parseInt(p[2]), Integer.parseInt(p[3]), EpochDay.parse(p[4]), EpochDay.parse(p[5]), Boolean.parseBoolean(p[6]));
+            }
+            case "WAIT_DEL" -> waitlist.remove(id);
+            case "WAIT_OFFER" -> {
+                if (e != null && e.getReservationId() == 0) waitlist.offer(e, Integer.parseInt(p[2]));
+            }
+            case "WAIT_BOOKED" -> {
+                if (e != null) waitlist.booked(e, Integer.parseInt(p[2]));
+            }
+            default -> {
+            }
+        }
+    }
+
+    // ---- Arquivo ----
+
+    // Move para o arquivo as reservas canceladas e as que terminaram antes de cutoff, por mês de check-out.
+    // As tabelas em memória e os índices ficam só com as estadias atuais e futuras, e o reservas.csv deixa de as ter
+    // na compactação seguinte. Retorna o número de reservas arquivadas (-1 se o arquivo não pôde ser escrito).
+    // O arquivo é escrito antes de o diário registar a operação: se o processo parar entre os dois passos,
+    // as reservas continuam nas tabelas e o próximo arquivamento volta a escrevê-las (as repetidas são ignoradas na leitura).
+    public int archiveReservations(LocalDate cutoff) {
+        long t0 = Metrics.start();
+        int cutoffDay = (int) cutoff.toEpochDay();
+        catalogLock.writeLock().lock();
+        try {
+            synchronized (tableLock) {
+                ReservationStore old = selectArchivable(cutoffDay);
+                if (old.size() == 0) return 0;
+
+                archive.append(old);
+                dropArchived(cutoffDay);
+                logChange("RES_ARCHIVE," + cutoff);
+                writer.requestCompaction(); // Reescreve o reservas.csv já sem as reservas arquivadas
+                return old.size();
+            }
+        } catch (IOException e) {
+            System.out.println("Erro ao escrever o arquivo: " + e.getMessage());
+            return -1;
+        } finally {
+            catalogLock.writeLock().unlock();
+            metrics.record(Metrics.Operation.ARCHIVE, t0);
+        }
+    }
+
+    // Arquiva com a janela de retenção por omissão (hotel.archive.retentionDays a contar de hoje)
+    public int archiveReservations() {
+        return archiveReservations(LocalDate.now().minusDays(ARCHIVE_RETENTION_DAYS));
+    }
+
+    // Ocupação por dia, por grupo de capacidade e por quarto em [from, to] (ver OccupancyAnalytics).
+    // As reservas são copiadas com tableLock e o cálculo corre em paralelo, sem trincos.
+    public OccupancyAnalytics occupancyAnalytics(LocalDate from, LocalDate to) {
+        long t0 = Metrics.start();
+        List<Room> roomRows;
+        ReservationStore rows;
+        catalogLock.readLock().lock();
+        try {
+            roomRows = rooms();
+            synchronized (tableLock) {
+                rows = reservations.copy();
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+        try {
+            return OccupancyAnalytics.compute(rows, roomRows, EpochDay.of(from), EpochDay.of(to));
+        } finally {
+            metrics.record(Metrics.Operation.ANALYTICS, t0);
+        }
+    }
+
+    // Procura uma reserva no arquivo (só lê os meses que a podem conter)
+    public Reservation findArchivedReservation(int id) {
+        long t0 = Metrics.start();
+        try {
+            return archive.find(id);
+        } finally {
+            metrics.record(Metrics.Operation.ARCHIVE_QUERY, t0);
+        }
+    }
+
+    // Reservas arquivadas com check-out em [from, to]
+    public void forEachArchivedReservation(LocalDate from, LocalDate to, Consumer<Reservation> action) {
+        long t0 = Metrics.start();
+        archive.forEach(from, to, action);
+        metrics.record(Metrics.Operation.ARCHIVE_QUERY, t0);
+    }
+
+    private boolean isArchivable(int row, int cutoffDay) {
+        return !reservations.isActive(row) || reservations.endDay(row) < cutoffDay;
+    }
+
+    private ReservationStore selectArchivable(int cutoffDay) {
+        ReservationStore selected = new ReservationStore();
+        for (int row = 0; row < reservations.size(); row++) {
+            if (isArchivable(row, cutoffDay)) {
+                selected.add(reservations.id(row), reservations.roomId(row), reservations.guestId(row), reservations.numberOfGuests(row),
+                        reservations.startDay(row), reservations.endDay(row), reservations.isActive(row), reservations.groupId(row));
+            }
+        }
+        return selected;
+    }
+
+    // Reaplica um arquivamento do diário. Normalmente as reservas já estão no arquivo; as que não estiverem
+    // (ex.: canceladas depois do arquivamento, quando os CSV já refletiam o diário) são arquivadas agora.
+    private void replayArchive(int cutoffDay) {
+        ReservationStore missing = archive.notArchived(selectArchivable(cutoffDay));
+        if (missing.size() > 0) {
+            try {
+                archive.append(missing);
+            } catch (IOException e) {
+                System.out.println("Erro ao escrever o arquivo: " + e.getMessage());
+                return; // As reservas ficam nas tabelas
+            }
+        }
+        dropArchived(cutoffDay);
+    }
+
+    // Tira das tabelas as reservas arquivadas e reconstrói os índices de reservas, sem baixar o próximo id.
+    // Chamado com o trinco de escrita (arquivamento ou diário).
+    private void dropArchived(int cutoffDay) {
+        ReservationStore kept = new ReservationStore(reservations.size());
+        for (int row = 0; row < reservations.size(); row++) {
+            if (!isArchivable(row, cutoffDay)) {
+                kept.add(reservations.id(row), reservations.roomId(row), reservations.guestId(row), reservations.numberOfGuests(row),
+                        reservations.startDay(row), reservations.endDay(row), true, reservations.groupId(row));
+                kept.setAutoAssigned(kept.size() - 1, reservations.isAutoAssigned(row));
+            }
+        }
+        int next = nextReservationId.get();
+        installReservations(kept);
+        nextReservationId.accumulateAndGet(next, Math::max);
+    }
+
+    // ---- CSV ----
+
+    // Garante que textos são guardados corretamente no formato CSV.
+    // Se o texto tiver vírgulas ou aspas, envolve o texto entre aspas
+    // e duplica aspas internas para evitar erros ao ler o ficheiro.
+    static String escapeCsv(String s) {
+        if (s == null) return "";
+        if (s.contains(",") || s.contains("\"")) {
+            s = s.replace("\"", "\"\"");
+            return "\"" + s + "\"";
+        }
+        return s;
+    }
+    // Divide uma linha do CSV em colunas, respeitando aspas.
+    // Permite ler corretamente campos que contenham vírgulas ou aspas.
+    static String[] splitCsvLine(String line) {
+        ArrayList<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean inQuotes = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (c == '"') {
+                if (inQuotes && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cur.append('"');
+                    i++;
+                } else {
+                    inQuotes = !inQuotes;
+                }
+            } else if (c == ',' && !inQuotes) {
+                out.add(cur.toString());
+                cur.setLength(0);
+            } else {
+                cur.append(c);
+            }
+        }
+        out.add(cur.toString());
+        return out.toArray(new String[0]);
+    }
+
+    // Guarda todos os quartos no ficheiro CSV.
+    // Cada linha representa um quarto.
+    // Substitui totalmente o conteúdo do ficheiro. Retorna false se não foi possível escrever.
+    boolean saveRooms() {
+        return saveRooms(rooms);
+    }
+
+    private boolean saveRooms(Iterable<Room> rows) {
+        long t0 = Metrics.start();
+        File tmp = new File(roomsCsv.getPath() + ".tmp");
+        try {
+            try (PrintWriter pw = new PrintWriter(tmp)) {
+                pw.println("id,number,capacity");
+                for (Room r : rows) {
+                    pw.printf("%d,%d,%d%n", r.getId(), r.getNumber(), r.getCapacity());
+                }
+                if (pw.checkError()) throw new IOException("falha ao escrever " + tmp);
+            }
+            replaceFile(tmp, roomsCsv);
+            metrics.add(Metrics.Counter.CSV_BYTES, roomsCsv.length());
+            return true;
+        } catch (Exception e) {
+            System.out.println("Erro ao guardar quartos: " + e.getMessage());
+            return false;
+        } finally {
+            metrics.record(Metrics.Operation.SAVE_ROOMS, t0);
+        }
+    }
+    // Carrega os quartos para memória.
+    // Reconstrói a tabela rooms e atualiza contadores e IDs.
+    void loadRooms() {
+        installRooms(readRooms());
+    }
+
+    // Lê os quartos da cópia binária, se estiver atualizada, ou do CSV.
+    // Não altera o estado em memória, por isso pode correr em paralelo com as outras tabelas.
+    List<Room> readRooms() {
+        long t0 = Metrics.start();
+        List<Room> snapshot = BinarySnapshot.readRooms(roomsSnapshot, roomsCsv);
+        List<Room> loaded = snapshot != null ? snapshot : readRoomsCsv(roomsCsv);
+        metrics.record(Metrics.Operation.READ_ROOMS, t0);
+        return loaded;
+    }
+
+    // Lê o ficheiro CSV de quartos (ficheiro mapeado, ver MappedCsvReader).
+    static List<Room> readRoomsCsv(File f) {
+        ArrayList<Room> loaded = new ArrayList<>();
+        if (!f.exists()) return loaded;
+
+        try (MappedCsvReader in = new MappedCsvReader(f)) {
+            in.nextRow(); // header
+
+            while (in.nextRow()) {
+                if (in.fieldCount() < 3) continue;
+
+                int id = in.readInt();
+                int number = in.readInt();
+                int cap = in.readInt();
+
+                loaded.add(new Room(id, number, cap));
+            }
+        } catch (Exception e) {
+            System.out.println("Erro ao carregar quartos: " + e.getMessage());
+        }
+        return loaded;
+    }
+
+    private void installRooms(List<Room> loaded) {
+        rooms.clear();
+        nextRoomId = 1;
+        roomHandles.clear();
+        roomIntervals.clear();
+        for (BitSet bucket : roomsByCapacity) bucket.clear();
+        calendar.clearRooms();
+
+        for (Room room : loaded) storeRoom(room);
+    }
+
+    // Guarda todos os hóspedes no ficheiro CSV.
+    // Usa escapeCsv para evitar erros com vírgulas ou aspas.
+    boolean saveGuests() {
+        return saveGuests(guests);
+    }
+
+    private boolean saveGuests(Iterable<Guest> rows) {
+        long t0 = Metrics.start();
+        File tmp = new File(guestsCsv.getPath() + ".tmp");
+        try {
+            try (PrintWriter pw = new PrintWriter(tmp)) {
+                pw.println("id,name,email,contact,documentType,documentNumber");
+
+                for (Guest g : rows) {
+                    pw.printf("%d,%s,%s,%d,%s,%d%n", g.getId(), escapeCsv(g.getName()), escapeCsv(g.getEmail()), g.getContact(), escapeCsv(g.getTypeOfDocument()), g.getDocumentNumber());
+                }
+                if (pw.checkError()) throw new IOException("falha ao escrever " + tmp);
+            }
+            replaceFile(tmp, guestsCsv);
+            metrics.add(Metrics.Counter.CSV_BYTES, guestsCsv.length());
+            return true;
+        } catch (Exception e) {
+            System.out.println("Erro ao guardar hóspedes: " + e.getMessage());
+            return false;
+        } finally {
+            metrics.record(Metrics.Operation.SAVE_GUESTS, t0);
+        }
+    }
+
+    // Carrega hóspedes para memória.
+    void loadGuests() {
+        installGuests(readGuests());
+    }
+
+    List<Guest> readGuests() {
+        long t0 = Metrics.start();
+        List<Guest> snapshot = BinarySnapshot.readGuests(guestsSnapshot, guestsCsv);
+        List<Guest> loaded = snapshot != null ? snapshot : readGuestsCsv(guestsCsv);
+        metrics.record(Metrics.Operation.READ_GUESTS, t0);
+        return loaded;
+    }
+
+    // Lê hóspedes do ficheiro CSV.
+    // Converte cada linha num objeto Guest; linhas inválidas são ignoradas.
+    static List<Guest> readGuestsCsv(File f) {
+        ArrayList<Guest> loaded = new ArrayList<>();
+        if (!f.exists()) return loaded;
+
+        try (MappedCsvReader in = new MappedCsvReader(f)) {
+            in.nextRow(); // header
+
+            while (in.nextRow()) {
+                try {
+                    if (in.fieldCount() >= 6) {
+                        int id = in.readInt();
+                        String name = in.readString();
+                        String email = in.readString();
+                        int contact = in.readInt();
+                        String docType = in.readString();
+                        int docNumber = in.readInt();
+
+                        loaded.add(new Guest(id, name, email, contact, docType, docNumber));
+                    }
+                } catch (Exception ignore) {
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("Erro ao carregar hóspedes: " + e.getMessage());
+        }
+        return loaded;
+    }
+
+    private void installGuests(List<Guest> loaded) {
+        guests.clear();
+        nextGuestId = 1;
+        guestHandles.clear();
+        guestIndex.clear();
+
+        for (Guest guest : loaded) storeGuest(guest);
+    }
+
+    // Guarda reservas no CSV incluindo estado ativo/inativo.
+    boolean saveReservations() {
+        return saveReservations(reservations);
+    }
+
+    private boolean saveReservations(ReservationStore rows) {
+        long t0 = Metrics.start();
+        File tmp = new File(reservationsCsv.getPath() + ".tmp");
+        try {
+            try (PrintWriter pw = new PrintWriter(tmp)) {
+                pw.println("id,roomId,guestId,numberOfGuests,startDate,endDate,active,groupId,autoAssigned");
+
+                StringBuilder line = new StringBuilder(64); // Reutilizado: sem printf nem LocalDate por linha
+                for (int i = 0; i < rows.size(); i++) {
+                    line.setLength(0);
+                    pw.println(rows.appendCsv(line, i));
+                }
+                if (pw.checkError()) throw new IOException("falha ao escrever " + tmp);
+            }
+            replaceFile(tmp, reservationsCsv);
+            metrics.add(Metrics.Counter.CSV_BYTES, reservationsCsv.length());
+            return true;
+        } catch (Exception e) {
+            System.out.println("Erro ao guardar reservas: " + e.getMessage());
+            return false;
+        } finally {
+            metrics.record(Metrics.Operation.SAVE_RESERVATIONS, t0);
+        }
+    }
+
+    // Grava a lista de espera (cópia feita com tableLock, ver Waitlist.entries)
+    private boolean saveWaitlist(List<Waitlist.Entry> rows) {
+        long t0 = Metrics.start();
+        File tmp = new File(waitlistCsv.getPath() + ".tmp");
+        try {
+            Waitlist.writeCsv(tmp, rows);
+            replaceFile(tmp, waitlistCsv);
+            metrics.add(Metrics.Counter.CSV_BYTES, waitlistCsv.length());
+            return true;
+        } catch (Exception e) {
+            System.out.println("Erro ao guardar a lista de espera: " + e.getMessage());
+            return false;
+        } finally {
+            metrics.record(Metrics.Operation.SAVE_WAITLIST, t0);
+        }
+    }
+
+    // Carrega reservas para memória e restaura estado ativo/inativo.
+    void loadReservations() {
+        installReservations(readReservations());
+    }
+
+    ReservationStore readReservations() {
+        long t0 = Metrics.start();
+        ReservationStore snapshot = BinarySnapshot.readReservations(reservationsSnapshot, reservationsCsv);
+        ReservationStore loaded = snapshot != null ? snapshot : readReservationsCsv(reservationsCsv);
+        metrics.record(Metrics.Operation.READ_RESERVATIONS, t0);
+        return loaded;
+    }
+
+    // Lê reservas do CSV, incluindo o estado ativo/inativo, diretamente para um armazenamento por colunas.
+    static ReservationStore readReservationsCsv(File f) {
+        ReservationStore loaded = new ReservationStore();
+        if (!f.exists()) return loaded;
+
+        try (MappedCsvReader in = new MappedCsvReader(f)) {
+            in.nextRow(); // header
+
+            while (in.nextRow()) {
+                if (in.fieldCount() < 7) continue;
+
+                int id = in.readInt();
+                int roomId = in.readInt();
+                int guestId = in.readInt();
+                int nGuests = in.readInt();
+                int start = in.readEpochDay();
+                int end = in.readEpochDay();
+                boolean active = in.readBoolean();
+                int groupId = in.fieldCount() >= 8 ? in.readInt() : 0; // Coluna acrescentada com as reservas de grupo
+                boolean autoAssigned = in.fieldCount() >= 9 && in.readBoolean(); // Coluna acrescentada com a atribuição automática
+
+                int row = loaded.add(id, roomId, guestId, nGuests, start, end, active, groupId);
+                loaded.setAutoAssigned(row, autoAssigned);
+            }
+        } catch (Exception e) {
+            System.out.println("Erro ao carregar reservas: " + e.getMessage());
+        }
+        return loaded;
+    }
+
+    // Passa a usar as reservas lidas e reconstrói os índices
+    private void installReservations(ReservationStore loaded) {
+        long t0 = Metrics.start();
+        reservations = loaded;
+        nextReservationId.set(1);
+        reservationRows.clear();
+        groupRows.clear();
+        roomIntervals.clear();
+        for (Room room : rooms) roomIntervals.put(room.getId(), new IntervalTree()); // Cada quarto tem sempre a sua árvore
+        guestReservations.clear();
+        arrivals.clear();
+        departures.clear();
+        for (int c = 0; c <= MAX_CAPACITY; c++) {
+            startsByCapacity[c].clear();
+            endsByCapacity[c].clear();
+        }
+        calendar.clearOccupancy();
+
+        for (int row = 0; row < loaded.size(); row++) registerReservation(row);
+        metrics.record(Metrics.Operation.INDEX_RESERVATIONS, t0);
+    }
+
+    // Carrega as três tabelas e a lista de espera. A leitura dos ficheiros (cópia binária ou CSV) corre em paralelo;
+    // a colocação em memória e a construção dos índices são feitas depois, numa só thread.
+    void loadAll() {
+        CompletableFuture<List<Room>> roomRows = CompletableFuture.supplyAsync(this::readRooms);
+        CompletableFuture<List<Guest>> guestRows = CompletableFuture.supplyAsync(this::readGuests);
+        CompletableFuture<ReservationStore> reservationData = CompletableFuture.supplyAsync(this::readReservations);
+
+        installRooms(roomRows.join());
+        installGuests(guestRows.join());
+        installReservations(reservationData.join());
+        waitlist.readCsv(waitlistCsv); // Pequena, sem cópia binária
+    }
+
+    // Grava as tabelas indicadas (null = tabela sem alterações) nos CSV e, se todos forem guardados, nas cópias binárias.
+    // Retorna false se algum CSV não foi guardado.
+    private boolean writeTables(List<Room> roomRows, List<Guest> guestRows, ReservationStore reservationRows, List<Waitlist.Entry> waitlistRows) {
+        boolean saved = (roomRows == null || saveRooms(roomRows))
+                & (guestRows == null || saveGuests(guestRows))
+                & (reservationRows == null || saveReservations(reservationRows))
+                & (waitlistRows == null || saveWaitlist(waitlistRows));
+        if (saved) writeSnapshots(roomRows, guestRows, reservationRows);
+        return saved;
+    }
+
+    // Atualiza as cópias binárias, logo depois de os CSV serem reescritos.
+    // Uma falha aqui não é grave: a cópia antiga fica desatualizada e o arranque volta a usar os CSV.
+    private void writeSnapshots(List<Room> roomRows, List<Guest> guestRows, ReservationStore reservationRows) {
+        long t0 = Metrics.start();
+        try {
+            if (roomRows != null) BinarySnapshot.writeRooms(roomsSnapshot, roomsCsv, roomRows, roomRows.size());
+            if (guestRows != null) BinarySnapshot.writeGuests(guestsSnapshot, guestsCsv, guestRows, guestRows.size());
+            if (reservationRows != null) BinarySnapshot.writeReservations(reservationsSnapshot, reservationsCsv, reservationRows);
+            metrics.add(Metrics.Counter.SNAPSHOT_BYTES, snapshotBytes());
+        } catch (IOException e) {
+            System.out.println("Erro ao guardar cópia binária: " + e.getMessage());
+        } finally {
+            metrics.record(Metrics.Operation.WRITE_SNAPSHOTS, t0);
+        }
+    }
+
+    private long snapshotBytes() {
+        return new File(roomsSnapshot).length() + new File(guestsSnapshot).length() + new File(reservationsSnapshot).length();
+    }
+
+    // Troca o ficheiro pelo temporário já escrito, de uma só vez: uma escrita interrompida nunca deixa um CSV a meio
+    private static void replaceFile(File tmp, File target) throws IOException {
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ---- Diário ----
+
+    // Regista uma alteração (ver WriteBehind: escrita imediata, em grupo ou só no fecho) e marca a tabela como alterada.
+    private void logChange(String record) {
+        long t0 = Metrics.start();
+        markDirty(record);
+        try {
+            writer.submit(record);
+        } catch (IOException e) {
+            System.out.println("Erro ao escrever no diário: " + e.getMessage());
+            writer.requestCompaction(); // Sem diário, a alteração (a tabela já está marcada) só fica guardada nos CSV
+            return;
+        }
+        if (writer.mode() == WriteBehind.Mode.SHUTDOWN) return;
+        metrics.record(Metrics.Operation.JOURNAL_APPEND, t0);
+        metrics.increment(Metrics.Counter.JOURNAL_RECORDS);
+        metrics.add(Metrics.Counter.JOURNAL_BYTES, record.length() + 1); // Aproximado: um byte por carácter, mais a mudança de linha
+    }
+
+    // Regista várias alterações de uma vez (ex.: importação): uma só escrita no diário
+    private void logChanges(List<String> records) {
+        if (records.isEmpty()) return;
+        long t0 = Metrics.start();
+        for (String record : records) markDirty(record); // Um cancelamento junta registos de reservas e da lista de espera
+        try {
+            writer.submitAll(records);
+        } catch (IOException e) {
+            System.out.println("Erro ao escrever no diário: " + e.getMessage());
+            writer.requestCompaction();
+            return;
+        }
+        if (writer.mode() == WriteBehind.Mode.SHUTDOWN) return;
+        metrics.record(Metrics.Operation.JOURNAL_APPEND, t0);
+        metrics.add(Metrics.Counter.JOURNAL_RECORDS, records.size());
+        long bytes = 0;
+        for (String record : records) bytes += record.length() + 1;
+        metrics.add(Metrics.Counter.JOURNAL_BYTES, bytes);
+    }
+
+    // Marca a tabela alterada pelo registo, para a compactação só reescrever as tabelas que mudaram
+    private void markDirty(String record) {
+        int table = record.startsWith("RES_") ? DIRTY_RESERVATIONS : record.startsWith("GUEST_") ? DIRTY_GUESTS
+                : record.startsWith("WAIT_") ? DIRTY_WAITLIST : DIRTY_ROOMS;
+        if ((dirtyTables.get() & table) == 0) dirtyTables.getAndUpdate(d -> d | table);
+    }
+
+    // Reescreve os CSV (e as cópias binárias) com o estado atual e esvazia o diário, na thread de quem chama.
+    // Usado no fecho e nos benchmarks, com o motor parado (trinco de escrita ou uma só thread); compactionLock impede
+    // que corra ao mesmo tempo que uma compactação em segundo plano.
+    // O diário só é apagado se todos os ficheiros forem guardados com sucesso.
+    void compactJournal() {
+        synchronized (compactionLock) {
+            compactJournalLocked();
+        }
+    }
+
+    private void compactJournalLocked() {
+        long t0 = Metrics.start();
+        try {
+            writer.flushPending(); // A fila fica incluída nos CSV; escrevê-la primeiro mantém a ordem do diário
+        } catch (IOException e) {
+            System.out.println("Erro ao escrever no diário: " + e.getMessage());
+        }
+        expireWaitlist();
+        int dirty = dirtyTables.getAndSet(0);
+        if (!writeTables(rooms(), guests(), reservations, waitlist.entries())) {
+            dirtyTables.getAndUpdate(d -> d | dirty | DIRTY_ALL);
+            return;
+        }
+        metrics.increment(Metrics.Counter.COMPACTIONS);
+        synchronized (journal) {
+            try {
+                journal.truncate();
+            } catch (IOException e) {
+                System.out.println("Erro ao limpar o diário: " + e.getMessage());
+            }
+        }
+        metrics.record(Metrics.Operation.COMPACTION, t0);
+    }
+
+    // Compactação feita pela thread de escrita (ver WriteBehind). Com o motor bloqueado só grava a fila do diário,
+    // roda o diário e copia as tabelas alteradas; os CSV e as cópias binárias são escritos depois, sem trincos,
+    // por isso as operações não ficam à espera da escrita de ficheiros grandes.
+    // Até os CSV estarem escritos, as alterações continuam no segmento anterior do diário. compactionLock fica na mão
+    // até ao fim (dropPrevious), para que compactJournal não troque os CSV nem apague o segmento pelo meio.
+    private void compactInBackground() {
+        synchronized (compactionLock) {
+            compactInBackgroundLocked();
+        }
+    }
+
+    private void compactInBackgroundLocked() {
+        long t0 = Metrics.start();
+        List<Room> roomRows = null;
+        List<Guest> guestRows = null;
+        ReservationStore reservationRows = null;
+        List<Waitlist.Entry> waitlistRows = null;
+        int dirty;
+
+        catalogLock.writeLock().lock();
+        try {
+            synchronized (tableLock) {
+                synchronized (journal) {
+                    writer.flushPending();
+                    journal.rotate();
+                }
+                expireWaitlist();
+                dirty = dirtyTables.getAndSet(0);
+                if ((dirty & DIRTY_ROOMS) != 0) roomRows = rooms();
+                if ((dirty & DIRTY_GUESTS) != 0) guestRows = guests();
+                if ((dirty & DIRTY_RESERVATIONS) != 0) reservationRows = reservations.copy();
+                if ((dirty & DIRTY_WAITLIST) != 0) waitlistRows = waitlist.entries();
+            }
+        } catch (IOException e) {
+            System.out.println("Erro ao rodar o diário: " + e.getMessage());
+            return;
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+
+        if (!writeTables(roomRows, guestRows, reservationRows, waitlistRows)) {
+            dirtyTables.getAndUpdate(d -> d | dirty); // Tenta de novo na próxima compactação; o segmento anterior fica
+            return;
+        }
+        try {
+            journal.dropPrevious();
+        } catch (IOException e) {
+            System.out.println("Erro ao limpar o diário: " + e.getMessage());
+        }
+        metrics.increment(Metrics.Counter.COMPACTIONS);
+        metrics.record(Metrics.Operation.COMPACTION, t0);
+    }
+
+    // Reaplica o diário sobre os dados carregados dos CSV.
+    private void replayJournal() {
+        long t0 = Metrics.start();
+        try {
+            journal.replay(this::applyJournalRecord);
+        } catch (IOException e) {
+            System.out.println("Erro ao ler o diário: " + e.getMessage());
+        }
+        metrics.record(Metrics.Operation.REPLAY_JOURNAL, t0);
+    }
+
+    // RES_GROUP,groupId,guestId,início,fim,n,quarto:hóspedes,... (ids groupId..groupId+n-1).
+    // Um registo cortado a meio (n diferente do número de quartos) é ignorado por inteiro: o grupo é tudo ou nada.
+    private void replayGroup(String[] p) {
+        int groupId = Integer.parseInt(p[1]);
+        int guestId = Integer.parseInt(p[2]);
+        int startDay = EpochDay.parse(p[3]);
+        int endDay = EpochDay.parse(p[4]);
+        int n = Integer.parseInt(p[5]);
+        if (p.length != 6 + n) return;
+        int[] rooms = new int[n];
+        int[] guestCounts = new int[n];
+        for (int i = 0; i < n; i++) {
+            String[] room = p[6 + i].split(":");
+            rooms[i] = Integer.parseInt(room[0]);
+            guestCounts[i] = Integer.parseInt(room[1]);
+        }
+        for (int i = 0; i < n; i++) {
+            if (findReservationRow(groupId + i) < 0) storeReservation(groupId + i, rooms[i], guestId, guestCounts[i], startDay, endDay, true, groupId);
+        }
+    }
+
+    // RES_GROUP_CANCEL,groupId,n,reserva,... Como em RES_GROUP, um registo cortado a meio é ignorado por inteiro.
+    private void replayGroupCancel(String[] p) {
+        int n = Integer.parseInt(p[2]);
+        if (p.length != 3 + n) return;
+        for (int i = 0; i < n; i++) {
+            int row = findReservationRow(Integer.parseInt(p[3 + i]));
+            if (row >= 0 && reservations.isActive(row)) cancel(row);
+        }
+    }
+
+    // RES_MOVE,n,reserva:quarto,... Um registo cortado a meio é ignorado. As reservas que já estão no quarto indicado
+    // (ex.: o CSV já tem a mudança) ou que deixaram de estar ativas ficam como estão.
+    private void replayMove(String[] p) {
+        int n = Integer.parseInt(p[1]);
+        if (p.length != 2 + n) return;
+        IntList rows = new IntList(n);
+        IntList roomIds = new IntList(n);
+        for (int i = 0; i < n; i++) {
+            String[] move = p[2 + i].split(":");
+            int row = findReservationRow(Integer.parseInt(move[0]));
+            int roomId = Integer.parseInt(move[1]);
+            if (row < 0 || !reservations.isActive(row) || reservations.roomId(row) == roomId || roomIntervals.get(roomId) == null) continue;
+            rows.add(row);
+            roomIds.add(roomId);
+        }
+        int[] moveRows = new int[rows.size()];
+        int[] moveRooms = new int[rows.size()];
+        for (int k = 0; k < moveRows.length; k++) {
+            moveRows[k] = rows.get(k);
+            moveRooms[k] = roomIds.get(k);
+        }
+        moveReservations(moveRows, moveRooms);
+    }
+
+    // Aplica um registo do diário. Os registos podem já estar refletidos nos CSV
+    // (ex.: falha entre a compactação e a limpeza do diário), por isso cada operação é idempotente.
+    private void applyJournalRecord(String line) {
+        String[] p = splitCsvLine(line);
+        markDirty(line);
+
+        try {
+            switch (p[0]) {
+                case "ROOM_ADD" -> {
+                    int id = Integer.parseInt(p[1]);
+                    if (findRoom(id) == null) {
+                        storeRoom(new Room(id, Integer.parseInt(p[2]), Integer.parseInt(p[3])));
+                    }
+                }
+                case "ROOM_DEL" -> deleteRoomById(Integer.parseInt(p[1]));
+                case "GUEST_ADD" -> {
+                    int id = Integer.parseInt(p[1]);
+                    if (findGuest(id) == null) {
+                        storeGuest(new Guest(id, p[2], p[3], Integer.parseInt(p[4]), p[5], Integer.parseInt(p[6])));
+                    }
+                }
+                case "GUEST_DEL" -> deleteGuestById(Integer.parseInt(p[1]));
+                case "RES_ADD", "RES_ASSIGN" -> { // RES_ASSIGN: mesmo formato, quarto escolhido por assignRooms
+                    int id = Integer.parseInt(p[1]);
+                    if (findReservationRow(id) < 0) {
+                        int row = storeReservation(id, Integer.parseInt(p[2]), Integer.parseInt(p[3]), Integer.parseInt(p[4]),
+                                EpochDay.parse(p[5]), EpochDay.parse(p[6]), true);
+                        reservations.setAutoAssigned(row, p[0].equals("RES_ASSIGN"));
+                    }
+                }
+                case "RES_GROUP" -> replayGroup(p);
+                case "RES_GROUP_CANCEL" -> replayGroupCancel(p);
+                case "RES_MOVE" -> replayMove(p);
+                case "RES_CANCEL" -> {
+                    int row = findReservationRow(Integer.parseInt(p[1]));
+                    if (row >= 0 && reservations.isActive(row)) cancel(row);
+                }
+                case "RES_ARCHIVE" -> replayArchive(EpochDay.parse(p[1]));
+                case "WAIT_ADD", "WAIT_DEL", "WAIT_OFFER", "WAIT_BOOKED" -> replayWaitlist(p);
+                default -> {
+                }
+            }
+        } catch (Exception ignore) { // Registo incompleto (ex.: escrita interrompida)
+        }
+    }
+}
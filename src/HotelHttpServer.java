@@ -0,0 +1,662 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+// Interface HTTP/JSON local sobre o HotelEngine, com uma virtual thread por pedido.
+// Cobre as mesmas operações dos menus de quartos, hóspedes e reservas. Os dados dos POST podem vir
+// num objeto JSON simples no corpo ou nos parâmetros do URL; as datas usam o formato YYYY-MM-DD.
+//
+//   GET    /rooms                         lista de quartos
+//   POST   /rooms                         {"number", "capacity"}
+//   GET    /rooms/{id}                    quarto
+//   DELETE /rooms/{id}                    remove o quarto (se não tiver reservas ativas)
+//   GET    /rooms/{id}/reservations       reservas ativas do quarto que ainda não terminaram (?from=)
+//   GET    /rooms/available?from=&to=     quartos livres em todo o intervalo (to por omissão = from)
+//   GET    /rooms/occupied?date=          quartos ocupados na data (por omissão hoje)
+//   GET    /rooms/search?guests=&from=&to=&limit=  quartos livres com capacidade >= guests, capacidade mais justa primeiro
+//   GET    /availability?roomId=&from=&to=  verifica se o quarto pode ser reservado
+//   GET    /guests, POST /guests          {"name", "email", "contact", "documentType", "documentNumber"}
+//   GET    /guests/{id}, DELETE /guests/{id}, GET /guests/{id}/reservations
+//   GET    /guests/search?documentType=&documentNumber=, ?email=, ?name=&limit=  procura por documento, email ou início das palavras do nome
+//   GET    /reservations                  todas as reservas
+//   POST   /reservations                  {"roomId", "guestId", "numberOfGuests", "startDate", "endDate"}
+//   GET    /reservations/{id}, DELETE /reservations/{id} (cancela)
+//   POST   /reservations/group            {"guestId", "numberOfGuests", "startDate", "endDate", "rooms": "1,2,3" ou "count"} todos ou nenhum
+//   GET    /reservations/group/{id}, DELETE /reservations/group/{id} (cancela o grupo)
+//   POST   /reservations/import           lote em JSONL (ou CSV com Content-Type text/csv), ver ReservationImport; resultado por linha
+//   POST   /reservations/assign           {"guestId", "numberOfGuests", "startDate", "endDate"} reserva sem escolher o quarto (atribuição automática)
+//   POST   /reservations/reassign         {"from", "improve"} reotimiza os quartos das reservas atribuídas automaticamente com check-in a partir de from
+//                                         (improve=false: plano novo de raiz, em vez de só as mudanças que compensam)
+//   GET    /reservations/arrivals?from=&to=, /reservations/departures?from=&to=, /reservations/in-house?date=
+//   POST   /archive                       {"before"} arquiva as canceladas e as terminadas antes da data (por omissão, a janela de retenção)
+//   GET    /archive?from=&to=             reservas arquivadas com check-out no intervalo
+//   GET    /archive/{id}                  reserva arquivada
+//   GET    /analytics?from=&to=&by=day|room  ocupação por dia (por omissão) ou por quarto, em CSV (ver OccupancyAnalytics)
+//   GET    /waitlist                      pedidos da lista de espera
+//   POST   /waitlist                      {"guestId", "numberOfGuests", "startDate", "endDate", "autoBook"} só sem quartos livres (ver Waitlist)
+//   POST   /waitlist/{id}/accept          reserva o quarto oferecido ao pedido; DELETE /waitlist/{id} retira o pedido
+//
+// Execução: java -cp out HotelHttpServer [porta]   (por omissão 8080; ficheiros na pasta atual)
+// Com -Dhotel.reassign.at=HH:mm (ex.: 03:00) a reotimização dos quartos corre todos os dias a essa hora.
+public class HotelHttpServer {
+
+    static final int DEFAULT_PORT = 8080;
+    static final int BACKLOG = Integer.getInteger("hotel.http.backlog", 4096); // Ligações à espera de serem aceites
+
+    static {
+        // Por omissão o HttpServer do JDK só mantém 200 ligações keep-alive inativas e fecha as restantes,
+        // o que obriga os clientes com muitas ligações a voltar a ligar-se. Tem de ser definido antes de criar o servidor.
+        if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null) {
+            System.setProperty("sun.net.httpserver.maxIdleConnections", "10000");
+        }
+    }
+
+    private final HotelEngine engine;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "hotel-reassign");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public HotelHttpServer(HotelEngine engine, int port) throws IOException {
+        this.engine = engine;
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.createContext("/rooms", this::rooms);
+        server.createContext("/guests", this::guests);
+        server.createContext("/reservations", this::reservations);
+        server.createContext("/availability", this::availability);
+        server.createContext("/archive", this::archive);
+        server.createContext("/analytics", this::analytics);
+        server.createContext("/waitlist", this::waitlist);
+        server.setExecutor(executor);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+
+        HotelEngine engine = new HotelEngine();
+        engine.load();
+        HotelStats.register(engine);
+        HotelHttpServer http = new HotelHttpServer(engine, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> { // Ctrl+C: termina os pedidos e grava os dados
+            http.stop(1);
+            engine.close();
+        }));
+        http.start();
+        System.out.println("A escutar em http://localhost:" + http.port());
+        String reassignAt = System.getProperty("hotel.reassign.at");
+        if (reassignAt != null) http.scheduleReassignment(LocalTime.parse(reassignAt));
+    }
+
+    public void start() { server.start(); }
+
+    // Deixa de aceitar pedidos e espera até delaySeconds pelos que estão a meio
+    public void stop(int delaySeconds) {
+        scheduler.shutdownNow();
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    // Reotimiza a atribuição de quartos todos os dias à hora at, para as reservas com check-in a partir do dia seguinte
+    // (as chegadas do próprio dia mantêm o quarto que já foi comunicado). Volta a agendar-se depois de cada execução.
+    public void scheduleReassignment(LocalTime at) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.toLocalDate().atTime(at);
+        if (!next.isAfter(now)) next = next.plusDays(1);
+        scheduler.schedule(() -> {
+            try {
+                RoomAssignment plan = engine.optimizeAssignments(LocalDate.now().plusDays(1), true);
+                System.out.println("Reotimização dos quartos: " + (plan.isImprovement() ? plan.moved() : 0) + " reservas mudadas de quarto.");
+            } catch (RuntimeException e) {
+                System.out.println("Erro na reotimização dos quartos: " + e.getMessage());
+            }
+            scheduleReassignment(at);
+        }, Duration.between(now, next).toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public int port() { return server.getAddress().getPort(); }
+
+    // ---- Quartos ----
+
+    private void rooms(HttpExchange ex) throws IOException {
+        handle(ex, () -> {
+            String[] path = path(ex, "/rooms");
+            String method = ex.getRequestMethod();
+            Map<String, String> q = query(ex);
+
+            if (path.length == 0) {
+                if (method.equals("GET")) {
+                    StringBuilder sb = new StringBuilder("[");
+                    for (Room room : engine.rooms()) appendItem(sb, roomJson(room));
+                    send(ex, 200, sb.append(']').toString());
+                } else if (method.equals("POST")) {
+                    Map<String, String> p = body(ex, q);
+                    Result r = engine.addRoom(intParam(p, "number"), intParam(p, "capacity"));
+                    sendResult(ex, r, 201);
+                } else {
+                    methodNotAllowed(ex);
+                }
+                return;
+            }
+
+            if (path[0].equals("available") && method.equals("GET")) {
+                LocalDate from = dateParam(q, "from");
+                LocalDate to = q.containsKey("to") ? dateParam(q, "to") : from;
+                if (!HotelEngine.isValidPeriod(from, to)) {
+                    sendResult(ex, Result.of(Result.Code.INVALID_DATES), 200);
+                    return;
+                }
+                sendRoomIds(ex, engine.freeRoomsDuring(from, to));
+                return;
+            }
+            if (path[0].equals("search") && method.equals("GET")) {
+                int guests = intParam(q, "guests");
+                LocalDate from = dateParam(q, "from");
+                LocalDate to = q.containsKey("to") ? dateParam(q, "to") : from;
+                if (guests < 1 || guests > HotelEngine.MAX_CAPACITY) {
+                    sendResult(ex, Result.of(Result.Code.INVALID_GUEST_COUNT), 200);
+                    return;
+                }
+                if (!HotelEngine.isValidPeriod(from, to)) {
+                    sendResult(ex, Result.of(Result.Code.INVALID_DATES), 200);
+                    return;
+                }
+                int limit = q.containsKey("limit") ? intParam(q, "limit") : Integer.MAX_VALUE;
+                StringBuilder sb = new StringBuilder("[");
+                for (Room room : engine.searchAvailableRooms(guests, from, to, limit)) appendItem(sb, roomJson(room));
+                send(ex, 200, sb.append(']').toString());
+                return;
+            }
+            if (path[0].equals("occupied") && method.equals("GET")) {
+                LocalDate date = q.containsKey("date") ? dateParam(q, "date") : LocalDate.now();
+                sendRoomIds(ex, engine.occupiedRoomsOn(date));
+                return;
+            }
+
+            int id = parseId(path[0]);
+            if (path.length == 1 && method.equals("GET")) {
+                Room room = engine.findRoom(id);
+                if (room == null) sendResult(ex, Result.of(Result.Code.ROOM_NOT_FOUND), 200);
+                else send(ex, 200, roomJson(room));
+            } else if (path.length == 1 && method.equals("DELETE")) {
+                sendResult(ex, engine.removeRoom(id), 200);
+            } else if (path.length == 2 && path[1].equals("reservations") && method.equals("GET")) {
+                LocalDate from = q.containsKey("from") ? dateParam(q, "from") : LocalDate.now();
+                sendReservations(ex, action -> engine.forEachReservationOfRoom(id, from, action));
+            } else {
+                notFound(ex);
+            }
+        });
+    }
+
+    private void sendRoomIds(HttpExchange ex, BitSet ids) throws IOException {
+        StringBuilder sb = new StringBuilder("[");
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            Room room = engine.findRoom(id);
+            if (room != null) appendItem(sb, roomJson(room)); // Reserva de um quarto que já não existe
+        }
+        send(ex, 200, sb.append(']').toString());
+    }
+
+    private void availability(HttpExchange ex) throws IOException {
+        handle(ex, () -> {
+            if (!ex.getRequestMethod().equals("GET")) {
+                methodNotAllowed(ex);
+                return;
+            }
+            Map<String, String> q = query(ex);
+            LocalDate from = dateParam(q, "from");
+            LocalDate to = q.containsKey("to") ? dateParam(q, "to") : from;
+            Result r = engine.checkAvailability(intParam(q, "roomId"), from, to);
+            if (r.isOk() || r.getCode() == Result.Code.CONFLICT) {
+                send(ex, 200, "{\"available\":" + r.isOk() + "}");
+            } else {
+                sendResult(ex, r, 200);
+            }
+        });
+    }
+
+    // ---- Hóspedes ----
+
+    private void guests(HttpExchange ex) throws IOException {
+        handle(ex, () -> {
+            String[] path = path(ex, "/guests");
+            String method = ex.getRequestMethod();
+            Map<String, String> q = query(ex);
+
+            if (path.length == 0) {
+                if (method.equals("GET")) {
+                    StringBuilder sb = new StringBuilder("[");
+                    for (Guest guest : engine.guests()) appendItem(sb, guestJson(guest));
+                    send(ex, 200, sb.append(']').toString());
+                } else if (method.equals("POST")) {
+                    Map<String, String> p = body(ex, q);
+                    Result r = engine.addGuest(textParam(p, "name"), textParam(p, "email"), intParam(p, "contact"),
+                            textParam(p, "documentType"), intParam(p, "documentNumber"));
+                    sendResult(ex, r, 201);
+                } else {
+                    methodNotAllowed(ex);
+                }
+                return;
+            }
+
+            if (path.length == 1 && path[0].equals("search") && method.equals("GET")) {
+                List<Guest> found;
+                if (q.containsKey("documentNumber")) {
+                    Guest guest = engine.findGuestByDocument(textParam(q, "documentType"), intParam(q, "documentNumber"));
+                    found = guest == null ? List.of() : List.of(guest);
+                } else if (q.containsKey("email")) {
+                    found = engine.findGuestsByEmail(textParam(q, "email"));
+                } else {
+                    found = engine.searchGuestsByName(textParam(q, "name"), q.containsKey("limit") ? intParam(q, "limit") : Integer.MAX_VALUE);
+                }
+                StringBuilder sb = new StringBuilder("[");
+                for (Guest guest : found) appendItem(sb, guestJson(guest));
+                send(ex, 200, sb.append(']').toString());
+                return;
+            }
+
+            int id = parseId(path[0]);
+            if (path.length == 1 && method.equals("GET")) {
+                Guest guest = engine.findGuest(id);
+                if (guest == null) sendResult(ex, Result.of(Result.Code.GUEST_NOT_FOUND), 200);
+                else send(ex, 200, guestJson(guest));
+            } else if (path.length == 1 && method.equals("DELETE")) {
+                sendResult(ex, engine.removeGuest(id), 200);
+            } else if (path.length == 2 && path[1].equals("reservations") && method.equals("GET")) {
+                LocalDate from = q.containsKey("from") ? dateParam(q, "from") : LocalDate.now();
+                sendReservations(ex, action -> engine.forEachReservationOfGuest(id, from, action));
+            } else {
+                notFound(ex);
+            }
+        });
+    }
+
+    // ---- Reservas ----
+
+    private void reservations(HttpExchange ex) throws IOException {
+        handle(ex, () -> {
+            String[] path = path(ex, "/reservations");
+            String method = ex.getRequestMethod();
+            Map<String, String> q = query(ex);
+
+            if (path.length == 0) {
+                if (method.equals("GET")) {
+                    sendReservations(ex, engine::forEachReservation);
+                } else if (method.equals("POST")) {
+                    Map<String, String> p = body(ex, q);
+                    Result r = engine.bookRoom(intParam(p, "roomId"), intParam(p, "guestId"), intParam(p, "numberOfGuests"),
+                            dateParam(p, "startDate"), dateParam(p, "endDate"));
+                    sendResult(ex, r, 201);
+                } else {
+                    methodNotAllowed(ex);
+                }
+                return;
+            }
+
+            if (path.length >= 1 && path[0].equals("group")) {
+                groupReservations(ex, path, method, q);
+                return;
+            }
+
+            if (path.length == 1 && path[0].equals("import") && method.equals("POST")) {
+                // Corpo em JSONL, ou CSV com Content-Type text/csv
+                String contentType = String.valueOf(ex.getRequestHeaders().getFirst("Content-Type"));
+                String text;
+                try (InputStream in = ex.getRequestBody()) {
+                    text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+                ReservationImport batch = ReservationImport.parse(text.lines().toList(), !contentType.contains("csv"));
+                batch.run(engine);
+                send(ex, 200, batch.reportJson());
+                return;
+            }
+
+            if (path.length == 1 && path[0].equals("assign") && method.equals("POST")) {
+                Map<String, String> p = body(ex, q);
+                Result r = engine.assignRoom(intParam(p, "guestId"), intParam(p, "numberOfGuests"), dateParam(p, "startDate"), dateParam(p, "endDate"));
+                if (r.isOk()) send(ex, 201, reservationJson(engine.findReservation(r.getId()))); // Com o quarto escolhido
+                else sendResult(ex, r, 201);
+                return;
+            }
+
+            if (path.length == 1 && path[0].equals("reassign") && method.equals("POST")) {
+                Map<String, String> p = body(ex, q);
+                LocalDate from = p.containsKey("from") ? dateParam(p, "from") : LocalDate.now().plusDays(1);
+                send(ex, 200, assignmentJson(engine.optimizeAssignments(from, !"false".equals(p.get("improve")))));
+                return;
+            }
+
+            if (path.length == 1 && method.equals("GET")) {
+                switch (path[0]) {
+                    case "arrivals" -> sendReservationIds(ex, engine.arrivalsBetween(dateParam(q, "from"), dateParam(q, "to")));
+                    case "departures" -> sendReservationIds(ex, engine.departuresBetween(dateParam(q, "from"), dateParam(q, "to")));
+                    case "in-house" -> {
+                        LocalDate date = q.containsKey("date") ? dateParam(q, "date") : LocalDate.now();
+                        IntStream.Builder ids = IntStream.builder();
+                        engine.forEachInHouse(date, ids::add);
+                        sendReservationIds(ex, ids.build());
+                    }
+                    default -> {
+                        Reservation r = engine.findReservation(parseId(path[0]));
+                        if (r == null) sendResult(ex, Result.of(Result.Code.RESERVATION_NOT_FOUND), 200);
+                        else send(ex, 200, reservationJson(r));
+                    }
+                }
+            } else if (path.length == 1 && method.equals("DELETE")) {
+                sendResult(ex, engine.cancelReservation(parseId(path[0])), 200);
+            } else {
+                notFound(ex);
+            }
+        });
+    }
+
+    // POST /reservations/group: {"guestId", "startDate", "endDate", "numberOfGuests", "rooms": "1,2,3"} ou {"count": N} para escolha automática
+    // GET /reservations/group/{id}: reservas do grupo; DELETE /reservations/group/{id}: cancela o grupo
+    private void groupReservations(HttpExchange ex, String[] path, String method, Map<String, String> q) throws IOException {
+        if (path.length == 1 && method.equals("POST")) {
+            Map<String, String> p = body(ex, q);
+            int guestId = intParam(p, "guestId");
+            int nGuests = intParam(p, "numberOfGuests");
+            LocalDate start = dateParam(p, "startDate");
+            LocalDate end = dateParam(p, "endDate");
+            Result r;
+            if (p.containsKey("rooms")) {
+                int[] roomIds;
+                try {
+                    roomIds = Arrays.stream(textParam(p, "rooms").split(",")).map(String::trim).filter(s -> !s.isEmpty()).mapToInt(Integer::parseInt).toArray();
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("rooms inválido");
+                }
+                int[] guests = new int[roomIds.length];
+                Arrays.fill(guests, nGuests);
+                r = engine.bookGroup(guestId, roomIds, guests, start, end);
+            } else {
+                r = engine.bookGroup(guestId, intParam(p, "count"), nGuests, start, end);
+            }
+            sendResult(ex, r, 201);
+        } else if (path.length == 2 && method.equals("GET")) {
+            List<Reservation> members = engine.groupReservations(parseId(path[1]));
+            if (members.isEmpty()) {
+                sendResult(ex, Result.of(Result.Code.RESERVATION_NOT_FOUND), 200);
+                return;
+            }
+            sendReservations(ex, members::forEach);
+        } else if (path.length == 2 && method.equals("DELETE")) {
+            sendResult(ex, engine.cancelGroup(parseId(path[1])), 200);
+        } else {
+            notFound(ex);
+        }
+    }
+
+    // ---- Arquivo ----
+
+    private void archive(HttpExchange ex) throws IOException {
+        handle(ex, () -> {
+            String[] path = path(ex, "/archive");
+            String method = ex.getRequestMethod();
+            Map<String, String> q = query(ex);
+
+            if (path.length == 0 && method.equals("POST")) {
+                Map<String, String> p = body(ex, q);
+                int archived = p.containsKey("before") ? engine.archiveReservations(dateParam(p, "before")) : engine.archiveReservations();
+                if (archived < 0) send(ex, 500, "{\"error\":\"ARCHIVE_FAILED\"}");
+                else send(ex, 200, "{\"ok\":true,\"archived\":" + archived + "}");
+            } else if (path.length == 0 && method.equals("GET")) {
+                LocalDate from = dateParam(q, "from");
+                LocalDate to = q.containsKey("to") ? dateParam(q, "to") : from;
+                sendReservations(ex, action -> engine.forEachArchivedReservation(from, to, action));
+            } else if (path.length == 1 && method.equals("GET")) {
+                Reservation r = engine.findArchivedReservation(parseId(path[0]));
+                if (r == null) sendResult(ex, Result.of(Result.Code.RESERVATION_NOT_FOUND), 200);
+                else send(ex, 200, reservationJson(r));
+            } else {
+                notFound(ex);
+            }
+        });
+    }
+
+    // ---- Estatísticas de ocupação ----
+
+    private void analytics(HttpExchange ex) throws IOException {
+        handle(ex, () -> {
+            Map<String, String> q = query(ex);
+            if (!ex.getRequestMethod().equals("GET") || path(ex, "/analytics").length != 0) {
+                notFound(ex);
+                return;
+            }
+            LocalDate from = dateParam(q, "from");
+            LocalDate to = dateParam(q, "to");
+            if (!HotelEngine.isValidPeriod(from, to)) {
+                sendResult(ex, Result.of(Result.Code.INVALID_DATES), 200);
+                return;
+            }
+            OccupancyAnalytics a = engine.occupancyAnalytics(from, to);
+            StringWriter csv = new StringWriter();
+            try (PrintWriter pw = new PrintWriter(csv)) {
+                if ("room".equals(q.get("by"))) a.writeRoomCsv(pw);
+                else a.writeDailyCsv(pw);
+            }
+            send(ex, 200, "text/csv; charset=utf-8", csv.toString());
+        });
+    }
+
+    // ---- Lista de espera ----
+
+    private void waitlist(HttpExchange ex) throws IOException {
+        handle(ex, () -> {
+            String[] path = path(ex, "/waitlist");
+            String method = ex.getRequestMethod();
+            Map<String, String> q = query(ex);
+
+            if (path.length == 0 && method.equals("GET")) {
+                StringBuilder sb = new StringBuilder("[");
+                for (Waitlist.Entry e : engine.waitlist()) appendItem(sb, waitlistJson(e));
+                send(ex, 200, sb.append(']').toString());
+            } else if (path.length == 0 && method.equals("POST")) {
+                Map<String, String> p = body(ex, q);
+                Result r = engine.joinWaitlist(intParam(p, "guestId"), intParam(p, "numberOfGuests"), dateParam(p, "startDate"),
+                        dateParam(p, "endDate"), "true".equals(p.get("autoBook")));
+                sendResult(ex, r, 201);
+            } else if (path.length == 2 && path[1].equals("accept") && method.equals("POST")) {
+                sendResult(ex, engine.acceptOffer(parseId(path[0])), 201);
+            } else if (path.length == 1 && method.equals("DELETE")) {
+                sendResult(ex, engine.leaveWaitlist(parseId(path[0])), 200);
+            } else {
+                notFound(ex);
+            }
+        });
+    }
+
+    private void sendReservations(HttpExchange ex, Consumer<Consumer<Reservation>> source) throws IOException {
+        StringBuilder sb = new StringBuilder("[");
+        source.accept(r -> appendItem(sb, reservationJson(r)));
+        send(ex, 200, sb.append(']').toString());
+    }
+
+    private void sendReservationIds(HttpExchange ex, IntStream ids) throws IOException {
+        StringBuilder sb = new StringBuilder("[");
+        ids.forEach(id -> {
+            Reservation r = engine.findReservation(id);
+            if (r != null) appendItem(sb, reservationJson(r));
+        });
+        send(ex, 200, sb.append(']').toString());
+    }
+
+    // ---- JSON ----
+
+    static String roomJson(Room r) {
+        return "{\"id\":" + r.getId() + ",\"number\":" + r.getNumber() + ",\"capacity\":" + r.getCapacity() + "}";
+    }
+
+    static String guestJson(Guest g) {
+        return "{\"id\":" + g.getId() + ",\"name\":" + Json.quote(g.getName()) + ",\"email\":" + Json.quote(g.getEmail())
+                + ",\"contact\":" + g.getContact() + ",\"documentType\":" + Json.quote(g.getTypeOfDocument())
+                + ",\"documentNumber\":" + g.getDocumentNumber() + "}";
+    }
+
+    static String reservationJson(Reservation r) {
+        return "{\"id\":" + r.getId() + ",\"roomId\":" + r.getRoomId() + ",\"guestId\":" + r.getGuestId()
+                + ",\"numberOfGuests\":" + r.getNumberOfGuests() + ",\"startDate\":\"" + EpochDay.format(r.getStartDay())
+                + "\",\"endDate\":\"" + EpochDay.format(r.getEndDay()) + "\",\"active\":" + r.isActive()
+                + (r.getGroupId() != 0 ? ",\"groupId\":" + r.getGroupId() : "") + "}";
+    }
+
+    static String assignmentJson(RoomAssignment plan) {
+        return "{\"applied\":" + plan.isImprovement() + ",\"reservations\":" + plan.size()
+                + ",\"moved\":" + (plan.isImprovement() ? plan.moved() : 0) + ",\"unplaced\":" + plan.unplaced()
+                + ",\"previousScore\":" + plan.originalScore() + ",\"score\":" + plan.score() + ",\"netGain\":" + plan.netGain()
+                + ",\"previousShortGaps\":" + plan.originalShortGaps() + ",\"shortGaps\":" + plan.shortGaps() + "}";
+    }
+
+    static String waitlistJson(Waitlist.Entry e) {
+        return "{\"id\":" + e.getId() + ",\"guestId\":" + e.getGuestId() + ",\"numberOfGuests\":" + e.getNumberOfGuests()
+                + ",\"startDate\":\"" + EpochDay.format(e.getStartDay()) + "\",\"endDate\":\"" + EpochDay.format(e.getEndDay())
+                + "\",\"autoBook\":" + e.isAutoBook() + ",\"offeredRoom\":" + e.getOfferedRoom() + ",\"reservationId\":" + e.getReservationId() + "}";
+    }
+
+    private static void appendItem(StringBuilder sb, String json) {
+        if (sb.length() > 1) sb.append(',');
+        sb.append(json);
+    }
+
+    // ---- Pedido e resposta ----
+
+    private interface Handler {
+        void run() throws IOException;
+    }
+
+    // Pedido inválido (parâmetro em falta ou mal formado) -> 400; qualquer outra falha -> 500
+    private static void handle(HttpExchange ex, Handler handler) throws IOException {
+        try (ex) {
+            try {
+                handler.run();
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                send(ex, 400, "{\"error\":\"BAD_REQUEST\",\"message\":" + Json.quote(e.getMessage()) + "}");
+            } catch (RuntimeException e) {
+                send(ex, 500, "{\"error\":\"INTERNAL\",\"message\":" + Json.quote(String.valueOf(e.getMessage())) + "}");
+            }
+        }
+    }
+
+    // Resultado de uma operação do motor: sucesso com o código indicado, ou o erro com o estado HTTP correspondente
+    private static void sendResult(HttpExchange ex, Result r, int okStatus) throws IOException {
+        if (r.isOk()) {
+            send(ex, okStatus, r.getId() < 0 ? "{\"ok\":true}" : "{\"ok\":true,\"id\":" + r.getId() + "}");
+            return;
+        }
+        int status = switch (r.getCode()) {
+            case ROOM_NOT_FOUND, GUEST_NOT_FOUND, RESERVATION_NOT_FOUND, NOT_ON_WAITLIST -> 404;
+            case CONFLICT, ALREADY_CANCELLED, HAS_ACTIVE_RESERVATIONS, DUPLICATE_DOCUMENT, NOT_ENOUGH_ROOMS, ROOMS_AVAILABLE, NO_OFFER -> 409;
+            default -> 400;
+        };
+        send(ex, status, "{\"ok\":false,\"error\":\"" + r.getCode() + "\"}");
+    }
+
+    private static void send(HttpExchange ex, int status, String json) throws IOException {
+        send(ex, status, "application/json; charset=utf-8", json);
+    }
+
+    private static void send(HttpExchange ex, int status, String contentType, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", contentType);
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void notFound(HttpExchange ex) throws IOException {
+        send(ex, 404, "{\"error\":\"NOT_FOUND\"}");
+    }
+
+    private static void methodNotAllowed(HttpExchange ex) throws IOException {
+        send(ex, 405, "{\"error\":\"METHOD_NOT_ALLOWED\"}");
+    }
+
+    // Partes do caminho depois do prefixo (ex.: /rooms/5/reservations -> ["5", "reservations"])
+    private static String[] path(HttpExchange ex, String prefix) {
+        String rest = ex.getRequestURI().getPath().substring(prefix.length());
+        while (rest.startsWith("/")) rest = rest.substring(1);
+        while (rest.endsWith("/")) rest = rest.substring(0, rest.length() - 1);
+        return rest.isEmpty() ? new String[0] : rest.split("/");
+    }
+
+    private static Map<String, String> query(HttpExchange ex) {
+        Map<String, String> out = new HashMap<>();
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) return out;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            out.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    // Dados de um POST: objeto JSON no corpo (se existir) por cima dos parâmetros do URL
+    private static Map<String, String> body(HttpExchange ex, Map<String, String> query) throws IOException {
+        String text;
+        try (InputStream in = ex.getRequestBody()) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        if (text.isBlank()) return query;
+        Map<String, String> params = new HashMap<>(query);
+        params.putAll(Json.parseObject(text));
+        return params;
+    }
+
+    private static int parseId(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Id inválido: " + s);
+        }
+    }
+
+    private static String textParam(Map<String, String> p, String name) {
+        String v = p.get(name);
+        if (v == null || v.isBlank()) throw new IllegalArgumentException("Falta o parâmetro " + name);
+        return v.trim();
+    }
+
+    private static int intParam(Map<String, String> p, String name) {
+        String v = textParam(p, name);
+        try {
+            return Integer.parseInt(v);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parâmetro " + name + " inválido: " + v);
+        }
+    }
+
+    private static LocalDate dateParam(Map<String, String> p, String name) {
+        return LocalDate.parse(textParam(p, name));
+    }
+}
@@ -1,43 +1,26 @@
 import java.io.File;
-import java.io.PrintWriter;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Scanner;
+import java.util.stream.IntStream;
 
+// Menu de consola. Só lê os dados do utilizador e mostra os resultados;
+// as operações, os dados e a persistência estão no HotelEngine.
 public class HotelManagement {
 
-    // Limites
-    static final int MAX_ROOMS = 200; // Número máximo de quartos
-    static final int MAX_GUESTS = 500; // Número máximo de hóspedes
-    static final int MAX_RESERVATIONS = 1000; //Número máximo de reservas
-
-    // Ficheiros CSV
-    static final String ROOMS_CSV = "quartos.csv"; // Ficheiro de memória local para os quartos
-    static final String GUESTS_CSV = "hospedes.csv"; // Ficheiro de memória local para os hóspedes
-    static final String RESERVATIONS_CSV = "reservas.csv"; //Ficheiro de memória local para as reservas
-
     static Scanner scanner = new Scanner(System.in);
 
-    // Armazenamento e contadores
-    static Room[] rooms = new Room[MAX_ROOMS]; // Array de criação e armazenamento dos quartos
-    static int roomCount = 0; // Contador para número de quartos
-    static int nextRoomId = 1; // Incrementador de ID de quartos
-
-    static Guest[] guests = new Guest[MAX_GUESTS];
-    static int guestCount = 0;
-    static int nextGuestId = 1;
-
-    static Reservation[] reservations = new Reservation[MAX_RESERVATIONS];
-    static int reservationCount = 0;
-    static int nextReservationId = 1;
+    static HotelEngine engine = new HotelEngine(); // Ficheiros na pasta atual
 
     public static void main(String[] args) {
 
-        // Carrega ficheiros de memória local
-        loadRooms();
-        loadGuests();
-        loadReservations();
+        // Carrega ficheiros de memória local e reaplica as alterações feitas depois da última escrita dos CSV
+        engine.load();
+        HotelStats.register(engine); // Métricas visíveis por JMX (ex.: JConsole)
 
         int option;
         do { // Menu Principal
@@ -45,6 +28,9 @@ public class HotelManagement {
             System.out.println("1 - Quartos");
             System.out.println("2 - Hóspedes");
             System.out.println("3 - Reservas");
+            System.out.println("4 - Estatísticas");
+            System.out.println("5 - Relatório de ocupação");
+            System.out.println("6 - Lista de espera");
             System.out.println("0 - Sair");
 
             option = readInt(); // Função que lida com exceções de input
@@ -53,7 +39,13 @@ public class HotelManagement {
                 case 1 -> roomMenu();
                 case 2 -> guestMenu();
                 case 3 -> reservationMenu();
-                case 0 -> System.out.println("Adeus!");
+                case 4 -> showStatistics();
+                case 5 -> occupancyReport();
+                case 6 -> waitlistMenu();
+                case 0 -> {
+                    engine.close();
+                    System.out.println("Adeus!");
+                }
                 default -> System.out.println("Opção Inválida.");
             }
 
@@ -103,6 +95,7 @@ public class HotelManagement {
             System.out.println("3 - Listar quartos livres (hoje)");
             System.out.println("4 - Listar quartos ocupados (hoje)");
             System.out.println("5 - Remover quarto");
+            System.out.println("6 - Procurar quartos livres (por nº de hóspedes e datas)");
             System.out.println("0 - Voltar atrás");
 
             op = readInt();
@@ -113,6 +106,7 @@ public class HotelManagement {
                 case 3 -> listAvailableRoomsToday();
                 case 4 -> listOccupiedRoomsToday();
                 case 5 -> removeRoom();
+                case 6 -> searchAvailableRooms();
                 case 0 -> {
                 }
                 default -> System.out.println("Opção inválida.");
@@ -128,6 +122,9 @@ public class HotelManagement {
             System.out.println("1 - Adicionar hóspede");
             System.out.println("2 - Listar hóspedes");
             System.out.println("3 - Remover hóspede");
+            System.out.println("4 - Procurar hóspede por documento");
+            System.out.println("5 - Procurar hóspedes por email");
+            System.out.println("6 - Procurar hóspedes por nome");
             System.out.println("0 - Voltar atrás");
 
             op = readInt();
@@ -136,6 +133,9 @@ public class HotelManagement {
                 case 1 -> addGuest();
                 case 2 -> listGuests();
                 case 3 -> removeGuest();
+                case 4 -> findGuestByDocument();
+                case 5 -> findGuestsByEmail();
+                case 6 -> searchGuestsByName();
                 case 0 -> {
                 }
                 default -> System.out.println("Opção inválida.");
@@ -152,6 +152,18 @@ public class HotelManagement {
             System.out.println("3 - Listar Reservas por quarto");
             System.out.println("4 - Listar Reservas por hóspede");
             System.out.println("5 - Cancelar Reserva");
+            System.out.println("6 - Check-ins entre datas");
+            System.out.println("7 - Check-outs entre datas");
+            System.out.println("8 - Hóspedes alojados numa data");
+            System.out.println("9 - Arquivar reservas canceladas e antigas");
+            System.out.println("10 - Procurar reserva arquivada (por ID)");
+            System.out.println("11 - Listar reservas arquivadas (check-out entre datas)");
+            System.out.println("12 - Importar reservas de um ficheiro (CSV ou JSONL)");
+            System.out.println("13 - Reserva de grupo (vários quartos, mesmas datas)");
+            System.out.println("14 - Listar reservas de um grupo");
+            System.out.println("15 - Cancelar reserva de grupo");
+            System.out.println("16 - Criar Reserva sem escolher o quarto (atribuição automática)");
+            System.out.println("17 - Reotimizar os quartos das reservas futuras");
             System.out.println("0 - Voltar atrás");
 
             op = readInt();
@@ -162,6 +174,18 @@ public class HotelManagement {
                 case 3 -> listReservationsByRoom();
                 case 4 -> listReservationsByGuest();
                 case 5 -> cancelReservation();
+                case 6 -> listArrivals();
+                case 7 -> listDepartures();
+                case 8 -> listInHouse();
+                case 9 -> archiveReservations();
+                case 10 -> findArchivedReservation();
+                case 11 -> listArchivedReservations();
+                case 12 -> importReservations();
+                case 13 -> createGroupReservation();
+                case 14 -> listGroupReservations();
+                case 15 -> cancelGroupReservation();
+                case 16 -> createAssignedReservation();
+                case 17 -> optimizeAssignments();
                 case 0 -> {
                 }
                 default -> System.out.println("Opção inválida.");
@@ -169,38 +193,29 @@ public class HotelManagement {
         } while (op != 0);
     }
 
-    static void addRoom() { // Impede que o número máximo de quartos seja excedido
-        if (roomCount >= MAX_ROOMS) {
-            System.out.println("Limite que quarto alcançado.");
-            return;
-        }
-
-        int id = nextRoomId++;
-
+    static void addRoom() {
         System.out.print("Número do quarto: ");
         int number = readInt();
 
         System.out.print("Capacidade: ");
         int capacity = readInt();
 
-        if (capacity < 1 || capacity > 6) {
+        Result result = engine.addRoom(number, capacity);
+        if (result.getCode() == Result.Code.INVALID_CAPACITY) {
             System.out.println("Deve introduzir uma capacidade entre 1 e 6.");
             return;
         }
 
-        rooms[roomCount++] = new Room(id, number, capacity);
-        saveRooms();
-
-        System.out.println("Quarto adicionado com ID: " + id);
+        System.out.println("Quarto adicionado com ID: " + result.getId());
     }
 
     static void listRooms() {
-        if (roomCount == 0) {
+        if (engine.roomCount() == 0) {
             System.out.println("Não há quartos.");
             return;
         }
-        for (int i = 0; i < roomCount; i++) {
-            printRoom(rooms[i]);
+        for (Room room : engine.rooms()) {
+            printRoom(room);
 
         }
     }
@@ -209,99 +224,71 @@ public class HotelManagement {
         System.out.print("ID do quarto a remover: ");
         int id = readInt();
 
-        Room room = findRoomById(id); // Confirma que o quarto existe
-        if (room == null) {
-            System.out.println("Quarto não encontrado.");
-            return;
-        }
-
-        // Impede a eliminação do quarto caso esteja reservado
-        for (int i = 0; i < reservationCount; i++) {
-            Reservation r = reservations[i];
-            if (r.isActive() && r.getRoomId() == id) {
-                System.out.println("O quarto não pode ser removido, pois tem reservas ativas!");
-                return;
-            }
-        }
-
-        deleteRoomById(id);
-        saveRooms();
-        System.out.println("Quarto removido.");
-    }
-
-    static Room findRoomById(int id) { // Procura e retorna quartos com id recebido. Se não encontrar retorna null
-        for (int i = 0; i < roomCount; i++) {
-            if (rooms[i].getId() == id) return rooms[i];
+        switch (engine.removeRoom(id).getCode()) {
+            case ROOM_NOT_FOUND -> System.out.println("Quarto não encontrado."); // Confirma que o quarto existe
+            case HAS_ACTIVE_RESERVATIONS -> System.out.println("O quarto não pode ser removido, pois tem reservas ativas!"); // Impede a eliminação do quarto caso esteja reservado
+            default -> System.out.println("Quarto removido.");
         }
-        return null;
     }
 
-    // Como um array tem tamanho fixo não é possível eliminar posições.
-    // Desloca os elementos seguintes ao id que o utilizador pretende eliminar uma posição para trás.
-    // Diminui o contador de quartos válidos
-    static void deleteRoomById(int id) {
-        for (int i = 0; i < roomCount; i++) {
-            if (rooms[i].getId() == id) {
-                for (int j = i; j < roomCount - 1; j++) rooms[j] = rooms[j + 1];
-                rooms[roomCount - 1] = null;
-                roomCount--;
-                return;
-            }
+    static void listAvailableRoomsToday() {
+        if (engine.roomCount() == 0) {
+            System.out.println("Não há quartos.");
+            return;
         }
-    }
-
-    static boolean isRoomOccupiedToday(int roomId) {
-        LocalDate today = LocalDate.now();
 
-        for (int i = 0; i < reservationCount; i++) {
-            Reservation r = reservations[i];
-            if (r == null) continue;
+        BitSet free = engine.freeRoomsOn(LocalDate.now());
 
-            if (r.isActive() && r.getRoomId() == roomId) {
-                boolean todayInside = !today.isBefore(r.getStartDate()) && !today.isAfter(r.getEndDate());
-                if (todayInside) return true;
-            }
+        if (free.isEmpty()) {
+            System.out.println("Não há quartos livres hoje.");
+            return;
+        }
+        for (int id = free.nextSetBit(0); id >= 0; id = free.nextSetBit(id + 1)) {
+            printRoom(engine.findRoom(id));
         }
-        return false;
     }
 
-    static void listAvailableRoomsToday() {
-        if (roomCount == 0) {
+    static void listOccupiedRoomsToday() {
+        if (engine.roomCount() == 0) {
             System.out.println("Não há quartos.");
             return;
         }
 
+        BitSet occupied = engine.occupiedRoomsOn(LocalDate.now());
         boolean found = false;
 
-        for (int i = 0; i < roomCount; i++) {
-            Room room = rooms[i];
-            if (!isRoomOccupiedToday(room.getId())) {
-                printRoom(room);
-                found = true;
-            }
+        for (int id = occupied.nextSetBit(0); id >= 0; id = occupied.nextSetBit(id + 1)) {
+            Room room = engine.findRoom(id);
+            if (room == null) continue; // Reserva de um quarto que já não existe
+            printRoom(room);
+            found = true;
         }
 
-        if (!found) System.out.println("Não há quartos livres hoje.");
+        if (!found) System.out.println("Não há quartos ocupados hoje.");
     }
 
-    static void listOccupiedRoomsToday() {
-        if (roomCount == 0) {
-            System.out.println("Não há quartos.");
+    // Quartos com capacidade suficiente livres em todo o período, os de capacidade mais justa primeiro
+    static void searchAvailableRooms() {
+        System.out.print("Número de hóspedes: ");
+        int nGuests = readInt();
+        if (nGuests < 1 || nGuests > 6) {
+            System.out.println("Número de hóspedes inválido (1..6).");
             return;
         }
 
-        boolean found = false;
-
-        for (int i = 0; i < roomCount; i++) {
-            Room room = rooms[i];
-            if (isRoomOccupiedToday(room.getId())) {
-                printRoom(room);
-                found = true;
-
-            }
+        LocalDate start = readDate("Check-in (YYYY-MM-DD): ");
+        LocalDate end = readDate("Check-out (YYYY-MM-DD): ");
+        if (!HotelEngine.isValidPeriod(start, end)) {
+            System.out.println("Data inválida: início > fim ou período com mais de " + HotelEngine.MAX_STAY_DAYS + " dias.");
+            return;
         }
 
-        if (!found) System.out.println("Não há quartos ocupados hoje.");
+        List<Room> found = engine.searchAvailableRooms(nGuests, start, end);
+        if (found.isEmpty()) {
+            System.out.println("Não há quartos livres para esse período.");
+            return;
+        }
+        for (Room room : found) printRoom(room);
     }
 
     static void printRoom(Room room) {
@@ -330,19 +317,14 @@ public class HotelManagement {
         System.out.println("ID do hóspede: " + reservations.getGuestId());
         System.out.println("Data de check-in " + reservations.getStartDate());
         System.out.println("Data de check-out: " + reservations.getEndDate());
+        if (reservations.getGroupId() != 0) System.out.println("Grupo: " + reservations.getGroupId());
+        if (!reservations.isActive()) System.out.println("Cancelada");
         System.out.println("---------------------------");
     }
 
 
-    static void addGuest() {
-        // Verifica se o número máximo de hóspedes é excedido.
-        if (guestCount >= MAX_GUESTS) {
-            System.out.println("Número máximo de hóspedes atingido.");
-            return;
-        }
-
-        int id = nextGuestId++;
 
+    static void addGuest() {
         System.out.print("Nome: ");
         String name = readLine();
 
@@ -358,82 +340,79 @@ public class HotelManagement {
         System.out.print("Número do Documento: ");
         int docNumber = readInt();
 
-        guests[guestCount++] = new Guest(id, name, email, contact, type, docNumber);
+        Result result = engine.addGuest(name, email, contact, type, docNumber);
+        if (result.getCode() == Result.Code.DUPLICATE_DOCUMENT) { // O mesmo documento não pode ser registado duas vezes
+            Guest existing = engine.findGuestByDocument(type, docNumber);
+            System.out.println("Já existe um hóspede com este documento" + (existing == null ? "." : " (ID " + existing.getId() + ")."));
+            return;
+        }
+        System.out.println("Hóspede adicionado com ID: " + result.getId());
+    }
+
+    static void findGuestByDocument() {
+        System.out.print("Tipo de Documento: ");
+        String type = readLine();
+
+        System.out.print("Número do Documento: ");
+        int docNumber = readInt();
 
-        saveGuests(); // adiciona ao CSV
-        System.out.println("Hóspede adicionado com ID: " + id);
+        Guest guest = engine.findGuestByDocument(type, docNumber);
+        if (guest == null) System.out.println("Hóspede não encontrado.");
+        else printGuests(guest);
     }
 
-    static void listGuests() {
-        if (guestCount == 0) {
-            System.out.println("Não há hóspedes.");
-            return;
-        }
-        for (int i = 0; i < guestCount; i++) {
-            printGuests(guests[i]);
-        }
+    static void findGuestsByEmail() {
+        System.out.print("Email: ");
+        printGuestList(engine.findGuestsByEmail(readLine()));
     }
 
-    static void removeGuest() {
-        System.out.print("Id do Hóspede a remover: ");
-        int id = readInt();
+    static void searchGuestsByName() { // Não distingue acentos nem maiúsculas; basta o início de cada palavra (ex.: "joao sil")
+        System.out.print("Nome (ou início das palavras): ");
+        printGuestList(engine.searchGuestsByName(readLine(), 50));
+    }
 
-        Guest g = findGuestById(id);
-        if (g == null) {
-            System.out.println("Hóspede não encontrado.");
+    static void printGuestList(List<Guest> found) {
+        if (found.isEmpty()) {
+            System.out.println("Nenhum hóspede encontrado.");
             return;
         }
-
-        // Caso o hóspede tenha reserva ativa, não o remove
-        for (int i = 0; i < reservationCount; i++) {
-            Reservation r = reservations[i];
-            if (r.isActive() && r.getGuestId() == id) {
-                System.out.println("Impossível remover, hóspede com reserva ativa.");
-                return;
-            }
+        for (Guest guest : found) {
+            printGuests(guest);
         }
-
-        deleteGuestById(id);
-        saveGuests();
-        System.out.println("Hóspede removido.");
     }
 
-    // Encontra o hóspede por id
-    static Guest findGuestById(int id) {
-        for (int i = 0; i < guestCount; i++) {
-            if (guests[i].getId() == id) return guests[i];
+    static void listGuests() {
+        if (engine.guestCount() == 0) {
+            System.out.println("Não há hóspedes.");
+            return;
+        }
+        for (Guest guest : engine.guests()) {
+            printGuests(guest);
         }
-        return null;
     }
 
-    // Remove o hóspede através do id
-    static void deleteGuestById(int id) {
-        for (int i = 0; i < guestCount; i++) {
-            if (guests[i].getId() == id) {
-                for (int j = i; j < guestCount - 1; j++) guests[j] = guests[j + 1];
-                guests[guestCount - 1] = null;
-                guestCount--;
-                return;
-            }
+    static void removeGuest() {
+        System.out.print("Id do Hóspede a remover: ");
+        int id = readInt();
+
+        switch (engine.removeGuest(id).getCode()) {
+            case GUEST_NOT_FOUND -> System.out.println("Hóspede não encontrado.");
+            case HAS_ACTIVE_RESERVATIONS -> System.out.println("Impossível remover, hóspede com reserva ativa."); // Caso o hóspede tenha reserva ativa, não o remove
+            default -> System.out.println("Hóspede removido.");
         }
     }
 
 
     static void createReservation() {
-        if (roomCount == 0 || guestCount == 0) { // Garante que o utilizador introduz pelo menos um quarto e um hóspede
+        if (engine.roomCount() == 0 || engine.guestCount() == 0) { // Garante que o utilizador introduz pelo menos um quarto e um hóspede
             System.out.println("Precisa de adicionar um quarto e um hóspede primeiro.");
             return;
         }
-        if (reservationCount >= MAX_RESERVATIONS) { // Valida se ainda é possivel adicionar mais reservas
-            System.out.println("Limite de reservas atingido.");
-            return;
-        }
-
-        int id = nextReservationId++;
 
+        // O quarto e o hóspede são confirmados logo a seguir a cada pergunta; o motor volta a validar tudo em bookRoom
         System.out.print("ID do quarto: ");
         int roomId = readInt();
-        Room room = findRoomById(roomId); // Verifica que o quarto existe
+        Room room = engine.findRoom(roomId); // Verifica que o quarto existe
         if (room == null) {
             System.out.println("Quarto não encontrado.");
             return;
@@ -441,8 +420,7 @@ public class HotelManagement {
 
         System.out.print("ID do hóspede: ");
         int guestId = readInt();
-        Guest guest = findGuestById(guestId); // Verifica se o hóspede existe
-        if (guest == null) {
+        if (engine.findGuest(guestId) == null) { // Verifica se o hóspede existe
             System.out.println("Hóspede não encontrado.");
             return;
         }
@@ -457,293 +435,404 @@ public class HotelManagement {
         LocalDate start = readDate("Check-in (YYYY-MM-DD): ");
         LocalDate end = readDate("Check-out (YYYY-MM-DD): ");
 
-        if (start.isAfter(end)) { // Verifica se a data de chack-in é antes da data de check-out.
-            System.out.println("Data inválida: início > fim.");
-            return;
-        }
-
-        if (hasConflict(roomId, start, end, -1)) { // Impede double booking
-            System.out.println("Conflito: quarto já reservado para as datas pretendeidas.");
-            return;
+        Result result = engine.bookRoom(roomId, guestId, nGuests, start, end);
+        switch (result.getCode()) {
+            case OK -> System.out.println("Reserva criada com o ID: " + result.getId());
+            case INVALID_DATES -> System.out.println("Data inválida: início > fim ou estadia com mais de " + HotelEngine.MAX_STAY_DAYS + " dias.");
+            case CONFLICT -> { // Impede double booking
+                System.out.println("Conflito: quarto já reservado para as datas pretendeidas.");
+                offerWaitlist(guestId, nGuests, start, end);
+            }
+            default -> printFailure(result);
         }
-
-        reservations[reservationCount++] = new Reservation(id, roomId, guestId, nGuests, start, end);
-        saveReservations(); // Guarda no CSV reservas
-        System.out.println("Reserva criada com o ID: " + id);
     }
 
     static void listAllReservations() {
-        if (reservationCount == 0) { // Verifica se há reservas
+        if (engine.reservationCount() == 0) { // Verifica se há reservas
             System.out.println("Não há reservas.");
             return;
         }
-        for (int i = 0; i < reservationCount; i++) { // Lista todas as reservas ativas
-            printReservations(reservations[i]);
-        }
+        engine.forEachReservation(HotelManagement::printReservations);
     }
 
     static void listReservationsByRoom() {
         System.out.print("ID do quarto: ");
         int roomId = readInt();
 
-        LocalDate today = LocalDate.now(); // Guarda a data atual
-        boolean found = false;
-
-        for (int i = 0; i < reservationCount; i++) { // Lista todos os quartos reservados na data atual
-            Reservation r = reservations[i];
-            if (r.isActive() && r.getRoomId() == roomId && !r.getEndDate().isBefore(today)) {
-                printReservations(r);
-                found = true;
-            }
-        }
+        // Reservas ativas do quarto que ainda não terminaram, por ordem de check-in
+        boolean[] found = {false};
+        engine.forEachReservationOfRoom(roomId, LocalDate.now(), r -> {
+            printReservations(r);
+            found[0] = true;
+        });
 
-        if (!found) System.out.println("Não há reservas para este quarto.");
+        if (!found[0]) System.out.println("Não há reservas para este quarto.");
     }
 
     static void listReservationsByGuest() { // Lista as reservas por hóspede.
         System.out.print("ID de hóspede: ");
         int guestId = readInt();
 
-        LocalDate today = LocalDate.now();
-        boolean found = false;
-
-        for (int i = 0; i < reservationCount; i++) {
-            Reservation r = reservations[i];
-            if (r.isActive() && r.getGuestId() == guestId && !r.getEndDate().isBefore(today)) {
-                printReservations(r);
-                found = true;
-            }
-        }
+        boolean[] found = {false};
+        engine.forEachReservationOfGuest(guestId, LocalDate.now(), r -> {
+            printReservations(r);
+            found[0] = true;
+        });
 
-        if (!found) System.out.println("Hóspede sem reservas.");
+        if (!found[0]) System.out.println("Hóspede sem reservas.");
     }
 
     static void cancelReservation() { // Faz o cancelamento de uma reserva
         System.out.print("ID da reserva a cancelar: ");
         int id = readInt();
 
-        Reservation r = findReservationById(id); // Verifica se a reserva existe
-        if (r == null) {
-            System.out.println("Reserva não encontrada.");
-            return;
-        }
-        if (!r.isActive()) { // Verifica se a reserva ainda está ativa
-            System.out.println("Reserva já cancelada.");
-            return;
+        switch (engine.cancelReservation(id).getCode()) {
+            case RESERVATION_NOT_FOUND -> System.out.println("Reserva não encontrada."); // Verifica se a reserva existe
+            case ALREADY_CANCELLED -> System.out.println("Reserva já cancelada."); // Verifica se a reserva ainda está ativa
+            default -> System.out.println("Reserva cancelada.");
         }
+    }
 
-        r.cancel();
-        saveReservations();
-        System.out.println("Reserva cancelada.");
+    static void listArrivals() { // Lista os check-ins entre duas datas, por ordem de data
+        LocalDate from = readDate("De (YYYY-MM-DD): ");
+        LocalDate to = readDate("Até (YYYY-MM-DD): ");
+        printReservationIds(engine.arrivalsBetween(from, to), "Não há check-ins nesse período.");
     }
 
-    static Reservation findReservationById(int id) { // Encontra a reserva através do ID
-        for (int i = 0; i < reservationCount; i++) {
-            if (reservations[i].getId() == id) return reservations[i];
-        }
-        return null;
+    static void listDepartures() { // Lista os check-outs entre duas datas, por ordem de data
+        LocalDate from = readDate("De (YYYY-MM-DD): ");
+        LocalDate to = readDate("Até (YYYY-MM-DD): ");
+        printReservationIds(engine.departuresBetween(from, to), "Não há check-outs nesse período.");
     }
 
-    static boolean hasConflict(int roomId, LocalDate start, LocalDate end, int ignoreReservationId) { // Verifica se há conflito de reservas
-        for (int i = 0; i < reservationCount; i++) {
-            Reservation r = reservations[i];
-            if (!r.isActive()) continue;
-            if (r.getRoomId() != roomId) continue;
-            if (r.getId() == ignoreReservationId) continue;
+    static void listInHouse() { // Lista as reservas com hóspedes alojados na data indicada
+        LocalDate day = readDate("Data (YYYY-MM-DD): ");
+        boolean[] found = {false};
+        engine.forEachInHouse(day, id -> {
+            printReservations(engine.findReservation(id));
+            found[0] = true;
+        });
+        if (!found[0]) System.out.println("Não há hóspedes alojados nessa data.");
+    }
 
-            boolean overlap = !start.isAfter(r.getEndDate()) && !end.isBefore(r.getStartDate());
-            if (overlap) return true;
-        }
-        return false;
+    static void archiveReservations() { // Move as reservas canceladas e as que terminaram há mais de N dias para o arquivo
+        System.out.print("Arquivar estadias terminadas há mais de quantos dias? (" + HotelEngine.ARCHIVE_RETENTION_DAYS + " por omissão, -1): ");
+        int days = readInt();
+        if (days < 0) days = HotelEngine.ARCHIVE_RETENTION_DAYS;
+
+        int archived = engine.archiveReservations(LocalDate.now().minusDays(days));
+        if (archived < 0) System.out.println("Não foi possível escrever o arquivo.");
+        else System.out.println(archived + " reservas arquivadas.");
     }
 
-    // Garante que textos são guardados corretamente no formato CSV.
-    // Se o texto tiver vírgulas ou aspas, envolve o texto entre aspas
-    // e duplica aspas internas para evitar erros ao ler o ficheiro.
-    static String escapeCsv(String s) {
-        if (s == null) return "";
-        if (s.contains(",") || s.contains("\"")) {
-            s = s.replace("\"", "\"\"");
-            return "\"" + s + "\"";
+    static void importReservations() { // Importa um lote de reservas e grava o relatório ao lado do ficheiro
+        System.out.print("Ficheiro (CSV ou .jsonl): ");
+        File file = new File(readLine());
+
+        ReservationImport batch;
+        try {
+            batch = ReservationImport.read(file);
+        } catch (IOException e) {
+            System.out.println("Não foi possível ler o ficheiro: " + e.getMessage());
+            return;
         }
-        return s;
-    }
-    // Divide uma linha do CSV em colunas, respeitando aspas.
-    // Permite ler corretamente campos que contenham vírgulas ou aspas.
-    static String[] splitCsvLine(String line) {
-        ArrayList<String> out = new ArrayList<>();
-        StringBuilder cur = new StringBuilder();
-        boolean inQuotes = false;
-
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-
-            if (c == '"') {
-                if (inQuotes && i + 1 < line.length() && line.charAt(i + 1) == '"') {
-                    cur.append('"');
-                    i++;
-                } else {
-                    inQuotes = !inQuotes;
-                }
-            } else if (c == ',' && !inQuotes) {
-                out.add(cur.toString());
-                cur.setLength(0);
-            } else {
-                cur.append(c);
-            }
+        batch.run(engine);
+        System.out.println(batch.accepted() + " reservas importadas, " + batch.rejected() + " recusadas.");
+
+        File report = new File(file.getPath() + ".relatorio.csv");
+        try {
+            batch.writeReport(report);
+            System.out.println("Relatório por linha em " + report.getPath());
+        } catch (IOException e) {
+            System.out.println("Não foi possível escrever o relatório: " + e.getMessage());
         }
-        out.add(cur.toString());
-        return out.toArray(new String[0]);
     }
 
-    // Guarda todos os quartos no ficheiro CSV.
-    // Cada linha representa um quarto.
-    // Substitui totalmente o conteúdo do ficheiro.
-    static void saveRooms() {
-        try (PrintWriter pw = new PrintWriter(ROOMS_CSV)) {
-            pw.println("id,number,capacity");
-            for (int i = 0; i < roomCount; i++) {
-                Room r = rooms[i];
-                pw.printf("%d,%d,%d%n", r.getId(), r.getNumber(), r.getCapacity());
+    static void createGroupReservation() { // Reserva vários quartos de uma vez: ou ficam todos reservados ou nenhum
+        System.out.print("ID do hóspede responsável: ");
+        int guestId = readInt();
+        if (engine.findGuest(guestId) == null) {
+            System.out.println("Hóspede não encontrado.");
+            return;
+        }
+        LocalDate start = readDate("Check-in (YYYY-MM-DD): ");
+        LocalDate end = readDate("Check-out (YYYY-MM-DD): ");
+        System.out.print("Número de hóspedes por quarto: ");
+        int nGuests = readInt();
+
+        System.out.println("1 - Escolher os quartos");
+        System.out.println("2 - Escolher automaticamente");
+        Result result;
+        if (readInt() == 1) {
+            System.out.print("IDs dos quartos (separados por vírgulas): ");
+            int[] roomIds;
+            try {
+                roomIds = Arrays.stream(readLine().split(",")).map(String::trim).filter(s -> !s.isEmpty()).mapToInt(Integer::parseInt).toArray();
+            } catch (NumberFormatException e) {
+                System.out.println("Lista de quartos inválida.");
+                return;
+            }
+            int[] guests = new int[roomIds.length];
+            Arrays.fill(guests, nGuests);
+            result = engine.bookGroup(guestId, roomIds, guests, start, end);
+        } else {
+            System.out.print("Número de quartos: ");
+            result = engine.bookGroup(guestId, readInt(), nGuests, start, end);
+        }
+
+        switch (result.getCode()) {
+            case OK -> {
+                List<Reservation> members = engine.groupReservations(result.getId());
+                System.out.println("Grupo " + result.getId() + " criado com " + members.size() + " reservas (IDs "
+                        + members.get(0).getId() + " a " + members.get(members.size() - 1).getId() + ").");
             }
-        } catch (Exception e) {
-            System.out.println("Erro ao guardar quartos: " + e.getMessage());
+            case CONFLICT -> System.out.println("Conflito: pelo menos um dos quartos já está reservado nessas datas. Nenhuma reserva foi criada.");
+            case NOT_ENOUGH_ROOMS -> System.out.println("Não há quartos livres suficientes para esse número de hóspedes nessas datas.");
+            default -> printFailure(result);
         }
     }
-    // Carrega os quartos do ficheiro CSV para memória.
-    // Reconstrói o array rooms e atualiza contadores e IDs.
-    static void loadRooms() {
-        roomCount = 0;
-        nextRoomId = 1;
-
-        File f = new File(ROOMS_CSV);
-        if (!f.exists()) return;
-
-        try (Scanner fileScanner = new Scanner(f)) {
-            if (fileScanner.hasNextLine()) fileScanner.nextLine(); // header
-
-            while (fileScanner.hasNextLine() && roomCount < MAX_ROOMS) {
-                String line = fileScanner.nextLine().trim();
-                if (line.isEmpty()) continue;
-
-                String[] p = splitCsvLine(line);
-                if (p.length < 3) continue;
 
-                int id = Integer.parseInt(p[0].trim());
-                int number = Integer.parseInt(p[1].trim());
-                int cap = Integer.parseInt(p[2].trim());
+    static void listGroupReservations() {
+        System.out.print("ID do grupo: ");
+        List<Reservation> members = engine.groupReservations(readInt());
+        if (members.isEmpty()) System.out.println("Grupo não encontrado.");
+        for (Reservation r : members) printReservations(r);
+    }
 
-                rooms[roomCount++] = new Room(id, number, cap);
-                if (id >= nextRoomId) nextRoomId = id + 1;
-            }
-        } catch (Exception e) {
-            System.out.println("Erro ao carregar quartos: " + e.getMessage());
+    static void cancelGroupReservation() {
+        System.out.print("ID do grupo a cancelar: ");
+        switch (engine.cancelGroup(readInt()).getCode()) {
+            case RESERVATION_NOT_FOUND -> System.out.println("Grupo não encontrado.");
+            case ALREADY_CANCELLED -> System.out.println("Reservas do grupo já canceladas.");
+            default -> System.out.println("Reservas do grupo canceladas.");
         }
     }
 
-    // Guarda todos os hóspedes no ficheiro CSV.
-    // Usa escapeCsv para evitar erros com vírgulas ou aspas.
-    static void saveGuests() {
-        try (PrintWriter pw = new PrintWriter(GUESTS_CSV)) {
-            pw.println("id,name,email,contact,documentType,documentNumber");
+    static void createAssignedReservation() { // O motor escolhe o quarto que deixa menos intervalos livres entre estadias
+        System.out.print("ID do hóspede: ");
+        int guestId = readInt();
+        if (engine.findGuest(guestId) == null) {
+            System.out.println("Hóspede não encontrado.");
+            return;
+        }
+        System.out.print("Número de hóspedes: ");
+        int nGuests = readInt();
+        LocalDate start = readDate("Check-in (YYYY-MM-DD): ");
+        LocalDate end = readDate("Check-out (YYYY-MM-DD): ");
 
-            for (int i = 0; i < guestCount; i++) {
-                Guest g = guests[i];
-                pw.printf("%d,%s,%s,%d,%s,%d%n", g.getId(), escapeCsv(g.getName()), escapeCsv(g.getEmail()), g.getContact(), escapeCsv(g.getTypeOfDocument()), g.getDocumentNumber());
-            }
-        } catch (Exception e) {
-            System.out.println("Erro ao guardar hóspedes: " + e.getMessage());
+        Result result = engine.assignRoom(guestId, nGuests, start, end);
+        if (result.isOk()) {
+            System.out.println("Reserva criada com o ID: " + result.getId() + " (quarto " + engine.findReservation(result.getId()).getRoomId() + ")");
+        } else {
+            printFailure(result);
+            if (result.getCode() == Result.Code.NOT_ENOUGH_ROOMS) offerWaitlist(guestId, nGuests, start, end);
         }
     }
 
-    // Carrega hóspedes do ficheiro CSV.
-    // Converte cada linha num objeto Guest.
-    static void loadGuests() {
-        guestCount = 0;
-        nextGuestId = 1;
+    static void optimizeAssignments() { // Redistribui pelos quartos as reservas com atribuição automática que ainda não começaram
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        System.out.print("Reservas com check-in a partir de (YYYY-MM-DD, Enter = " + tomorrow + "): ");
+        String raw = scanner.nextLine().trim();
+        LocalDate from;
+        try {
+            from = raw.isEmpty() ? tomorrow : LocalDate.parse(raw);
+        } catch (DateTimeParseException e) {
+            System.out.println("Data inválida. Use o formato - YYYY-MM-DD.");
+            return;
+        }
+        System.out.print("1 - Só mudanças que compensam, a partir da atribuição atual; 0 - Plano novo de raiz: ");
+        boolean improve = readInt() == 1;
+
+        RoomAssignment plan = engine.optimizeAssignments(from, improve);
+        System.out.printf("Reservas: %d, custo dos intervalos: %d -> %d, intervalos curtos: %d -> %d%n",
+                plan.size(), plan.originalScore(), plan.score(), plan.originalShortGaps(), plan.shortGaps());
+        if (plan.isImprovement()) System.out.println(plan.moved() + " reservas mudadas de quarto.");
+        else if (plan.unplaced() > 0) System.out.println("Sem alterações: " + plan.unplaced() + " reservas não cabiam no novo plano.");
+        else System.out.println("Sem alterações: o ganho (" + plan.netGain() + ", descontadas as mudanças) não chega ao mínimo.");
+    }
 
-        File f = new File(GUESTS_CSV);
-        if (!f.exists()) return;
+    static void findArchivedReservation() {
+        System.out.print("ID da reserva: ");
+        Reservation r = engine.findArchivedReservation(readInt());
+        if (r == null) System.out.println("Reserva não encontrada no arquivo.");
+        else printReservations(r);
+    }
 
-        try (Scanner fileScanner = new Scanner(f)) {
-            if (fileScanner.hasNextLine()) fileScanner.nextLine(); // header
+    static void listArchivedReservations() {
+        LocalDate from = readDate("De (YYYY-MM-DD): ");
+        LocalDate to = readDate("Até (YYYY-MM-DD): ");
+        boolean[] found = {false};
+        engine.forEachArchivedReservation(from, to, r -> {
+            printReservations(r);
+            found[0] = true;
+        });
+        if (!found[0]) System.out.println("Não há reservas arquivadas nesse período.");
+    }
 
-            while (fileScanner.hasNextLine() && guestCount < MAX_GUESTS) {
-                String line = fileScanner.nextLine().trim();
-                if (line.isEmpty()) continue;
+    static void printReservationIds(IntStream ids, String emptyMessage) {
+        boolean[] found = {false};
+        ids.forEach(id -> {
+            printReservations(engine.findReservation(id));
+            found[0] = true;
+        });
+        if (!found[0]) System.out.println(emptyMessage);
+    }
 
-                String[] parts = splitCsvLine(line);
+    // Tamanho das tabelas e dos ficheiros, contadores e latências das operações desde o arranque
+    static void showStatistics() {
+        System.out.println("\n--- Estatísticas ---");
+        for (Metrics.Gauge g : Metrics.Gauge.values()) System.out.printf("%-40s %d%n", g.label + ":", engine.gauge(g));
 
-                try {
-                    if (parts.length >= 6) {
-                        int id = Integer.parseInt(parts[0].trim());
-                        String name = parts[1].trim();
-                        String email = parts[2].trim();
-                        int contact = Integer.parseInt(parts[3].trim());
-                        String docType = parts[4].trim();
-                        int docNumber = Integer.parseInt(parts[5].trim());
+        if (!Metrics.ENABLED) {
+            System.out.println("Contadores e latências desligados (-Dhotel.metrics=false).");
+            return;
+        }
+        Metrics metrics = engine.metrics();
+        for (Metrics.Counter c : Metrics.Counter.values()) System.out.printf("%-40s %d%n", c.label + ":", metrics.count(c));
 
-                        guests[guestCount++] = new Guest(id, name, email, contact, docType, docNumber);
-                        if (id >= nextGuestId) nextGuestId = id + 1;
-                    }
-                } catch (Exception ignore) {
-                }
-            }
-        } catch (Exception e) {
-            System.out.println("Erro ao carregar hóspedes: " + e.getMessage());
+        System.out.printf("%n%-30s %8s %10s %10s %10s %10s%n", "Operação (µs)", "n", "média", "p50", "p99", "máx");
+        for (Metrics.Operation op : Metrics.Operation.values()) {
+            LatencyHistogram h = metrics.latency(op);
+            if (h.count() == 0) continue;
+            System.out.printf("%-30s %8d %10.1f %10.1f %10.1f %10.1f%n", op.label, h.count(),
+                    h.mean() / 1e3, h.percentile(0.50) / 1e3, h.percentile(0.99) / 1e3, h.max() / 1e3);
         }
     }
 
-    // Guarda reservas no CSV incluindo estado ativo/inativo.
-    static void saveReservations() {
-        try (PrintWriter pw = new PrintWriter(RESERVATIONS_CSV)) {
-            pw.println("id,roomId,guestId,numberOfGuests,startDate,endDate,active");
+    static void occupancyReport() { // Ocupação por dia, por capacidade e por quarto, com exportação para CSV
+        LocalDate from = readDate("De (YYYY-MM-DD): ");
+        LocalDate to = readDate("Até (YYYY-MM-DD): ");
+        if (!HotelEngine.isValidPeriod(from, to)) {
+            System.out.println("Data inválida: início > fim ou período com mais de " + HotelEngine.MAX_STAY_DAYS + " dias.");
+            return;
+        }
+
+        OccupancyAnalytics a = engine.occupancyAnalytics(from, to);
+        System.out.printf("%nQuartos: %d, dias: %d, ocupação média: %.1f%%, hóspedes-noite: %d%n",
+                a.roomCount(), a.days(), a.averageOccupancy() * 100, a.guestNights());
+        for (int c = HotelEngine.MIN_CAPACITY; c <= HotelEngine.MAX_CAPACITY; c++) {
+            if (a.roomsWithCapacity(c) > 0) System.out.printf("  Capacidade %d (%d quartos): %.1f%%%n", c, a.roomsWithCapacity(c), a.averageOccupancy(c) * 100);
+        }
 
-            for (int i = 0; i < reservationCount; i++) {
-                Reservation r = reservations[i];
-                pw.printf("%d,%d,%d,%d,%s,%s,%b%n", r.getId(), r.getRoomId(), r.getGuestId(), r.getNumberOfGuests(), r.getStartDate().toString(), r.getEndDate().toString(), r.isActive());
+        if (a.days() <= 62) { // Períodos longos só na exportação
+            System.out.printf("%n%-12s %9s %8s %9s %9s %9s%n", "Data", "Ocupados", "Taxa", "Hóspedes", "Chegadas", "Partidas");
+            for (int i = 0; i < a.days(); i++) {
+                System.out.printf("%-12s %9d %7.1f%% %9d %9d %9d%n", EpochDay.format(a.day(i)), a.occupied(i), a.occupancyRate(i) * 100,
+                        a.guests(i), a.arrivals(i), a.departures(i));
             }
-        } catch (Exception e) {
-            System.out.println("Erro ao guardar reservas: " + e.getMessage());
         }
-    }
 
-    // Carrega reservas do CSV e restaura estado ativo/inativo.
-    static void loadReservations() {
-        reservationCount = 0;
-        nextReservationId = 1;
+        System.out.print("Exportar para CSV? (1 - Sim, 0 - Não): ");
+        if (readInt() != 1) return;
+        System.out.print("Prefixo dos ficheiros (ex.: ocupacao): ");
+        File prefix = new File(readLine());
+        try {
+            a.export(prefix);
+            System.out.println("Gravados " + prefix.getPath() + "-dias.csv e " + prefix.getPath() + "-quartos.csv");
+        } catch (IOException e) {
+            System.out.println("Não foi possível exportar: " + e.getMessage());
+        }
+    }
 
-        File f = new File(RESERVATIONS_CSV);
-        if (!f.exists()) return;
+    static void waitlistMenu() {
+        int op;
+        do {
+            System.out.println("\n--- Lista de Espera ---");
+            System.out.println("1 - Entrar na lista de espera");
+            System.out.println("2 - Listar pedidos");
+            System.out.println("3 - Aceitar quarto oferecido");
+            System.out.println("4 - Retirar pedido");
+            System.out.println("0 - Voltar atrás");
 
-        try (Scanner fileScanner = new Scanner(f)) {
-            if (fileScanner.hasNextLine()) fileScanner.nextLine(); // header
+            op = readInt();
 
-            while (fileScanner.hasNextLine() && reservationCount < MAX_RESERVATIONS) {
-                String line = fileScanner.nextLine().trim();
-                if (line.isEmpty()) continue;
+            switch (op) {
+                case 1 -> joinWaitlist();
+                case 2 -> listWaitlist();
+                case 3 -> acceptWaitlistOffer();
+                case 4 -> leaveWaitlist();
+                case 0 -> {
+                }
+                default -> System.out.println("Opção inválida.");
+            }
+        } while (op != 0);
+    }
 
-                String[] p = splitCsvLine(line);
-                if (p.length < 7) continue;
+    static void joinWaitlist() {
+        System.out.print("ID do hóspede: ");
+        int guestId = readInt();
+        System.out.print("Número de hóspedes: ");
+        int nGuests = readInt();
+        LocalDate start = readDate("Check-in (YYYY-MM-DD): ");
+        LocalDate end = readDate("Check-out (YYYY-MM-DD): ");
+        addToWaitlist(guestId, nGuests, start, end);
+    }
 
-                int id = Integer.parseInt(p[0].trim());
-                int roomId = Integer.parseInt(p[1].trim());
-                int guestId = Integer.parseInt(p[2].trim());
-                int nGuests = Integer.parseInt(p[3].trim());
-                LocalDate start = LocalDate.parse(p[4].trim());
-                LocalDate end = LocalDate.parse(p[5].trim());
-                boolean active = Boolean.parseBoolean(p[6].trim());
+    // Depois de uma reserva recusada por falta de quarto
+    static void offerWaitlist(int guestId, int nGuests, LocalDate start, LocalDate end) {
+        System.out.print("Entrar na lista de espera para estas datas? (1 - Sim, 0 - Não): ");
+        if (readInt() == 1) addToWaitlist(guestId, nGuests, start, end);
+    }
 
-                Reservation r = new Reservation(id, roomId, guestId, nGuests, start, end);
-                if (!active) r.cancel();
+    static void addToWaitlist(int guestId, int nGuests, LocalDate start, LocalDate end) {
+        System.out.print("Reservar automaticamente quando um cancelamento libertar um quarto? (1 - Sim, 0 - Só avisar): ");
+        boolean autoBook = readInt() == 1;
 
-                reservations[reservationCount++] = r;
+        Result result = engine.joinWaitlist(guestId, nGuests, start, end, autoBook);
+        switch (result.getCode()) {
+            case OK -> System.out.println("Pedido " + result.getId() + " na lista de espera.");
+            case ROOMS_AVAILABLE -> System.out.println("Há quartos livres para estas datas (ver Quartos > Procurar quartos livres).");
+            case INVALID_DATES -> System.out.println("Data inválida: check-in no passado ou início > fim.");
+            default -> printFailure(result);
+        }
+    }
 
-                if (id >= nextReservationId) nextReservationId = id + 1;
+    static void listWaitlist() {
+        List<Waitlist.Entry> entries = engine.waitlist();
+        if (entries.isEmpty()) {
+            System.out.println("A lista de espera está vazia.");
+            return;
+        }
+        for (Waitlist.Entry e : entries) System.out.println(e);
+    }
+
+    static void acceptWaitlistOffer() {
+        System.out.print("ID do pedido: ");
+        Result result = engine.acceptOffer(readInt());
+        switch (result.getCode()) {
+            case OK -> System.out.println("Reserva criada com o ID: " + result.getId());
+            case CONFLICT -> System.out.println("O quarto oferecido já foi reservado. O pedido volta a ficar à espera.");
+            default -> printFailure(result);
+        }
+    }
+
+    static void leaveWaitlist() {
+        System.out.print("ID do pedido: ");
+        Result result = engine.leaveWaitlist(readInt());
+        if (result.isOk()) System.out.println("Pedido retirado da lista de espera.");
+        else printFailure(result);
+    }
+
+    // Mensagem para os códigos de erro que não têm uma mensagem própria no menu
+    static void printFailure(Result result) {
+        switch (result.getCode()) {
+            case ROOM_NOT_FOUND -> System.out.println("Quarto não encontrado.");
+            case GUEST_NOT_FOUND -> System.out.println("Hóspede não encontrado.");
+            case RESERVATION_NOT_FOUND -> System.out.println("Reserva não encontrada.");
+            case INVALID_CAPACITY -> System.out.println("Deve introduzir uma capacidade entre 1 e 6.");
+            case INVALID_GUEST_COUNT -> System.out.println("Número de hóspedes inválido.");
+            case INVALID_DATES -> System.out.println("Data inválida: início > fim ou estadia com mais de " + HotelEngine.MAX_STAY_DAYS + " dias.");
+            case CONFLICT -> System.out.println("Conflito: quarto já reservado para as datas pretendeidas.");
+            case ALREADY_CANCELLED -> System.out.println("Reserva já cancelada.");
+            case HAS_ACTIVE_RESERVATIONS -> System.out.println("Existem reservas ativas.");
+            case DUPLICATE_DOCUMENT -> System.out.println("Já existe um hóspede com este documento.");
+            case INVALID_FORMAT -> System.out.println("Linha inválida.");
+            case NOT_ENOUGH_ROOMS -> System.out.println("Não há quartos livres suficientes.");
+            case ROOMS_AVAILABLE -> System.out.println("Há quartos livres para estas datas.");
+            case NOT_ON_WAITLIST -> System.out.println("Pedido da lista de espera não encontrado.");
+            case NO_OFFER -> System.out.println("Este pedido não tem nenhum quarto oferecido.");
+            case OK -> {
             }
-        } catch (Exception e) {
-            System.out.println("Erro ao carregar reservas: " + e.getMessage());
         }
     }
 }
-
@@ -0,0 +1,119 @@
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// Expõe as métricas de um HotelEngine por JMX (ex.: no JConsole ou no VisualVM, em HotelManagement:type=HotelEngine).
+// Um atributo por valor de estado e por contador e, para cada operação medida, o número de chamadas
+// e a latência média, p50, p99, p99.9 e máxima em microssegundos. A operação reset põe os contadores a zero.
+public class HotelStats implements DynamicMBean {
+
+    static final String OBJECT_NAME = "HotelManagement:type=HotelEngine";
+
+    private static final String[] LATENCY_SUFFIXES = {"Count", "MeanMicros", "P50Micros", "P99Micros", "P999Micros", "MaxMicros"};
+
+    private final HotelEngine engine;
+    private final MBeanInfo info;
+
+    public HotelStats(HotelEngine engine) {
+        this.engine = engine;
+
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (Metrics.Gauge g : Metrics.Gauge.values()) attributes.add(attribute(g.key, "long", g.label));
+        for (Metrics.Counter c : Metrics.Counter.values()) attributes.add(attribute(c.key, "long", c.label));
+        for (Metrics.Operation op : Metrics.Operation.values()) {
+            for (String suffix : LATENCY_SUFFIXES) {
+                attributes.add(attribute(op.key + suffix, suffix.equals("Count") ? "long" : "double", op.label));
+            }
+        }
+        MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Põe os contadores e histogramas a zero",
+                null, "void", MBeanOperationInfo.ACTION);
+        info = new MBeanInfo(HotelStats.class.getName(), "Métricas do HotelEngine",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[]{reset}, null);
+    }
+
+    // Regista as métricas do motor no servidor JMX da JVM (substitui um registo anterior com o mesmo nome)
+    public static void register(HotelEngine engine) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(new HotelStats(engine), name);
+        } catch (JMException e) {
+            System.out.println("Erro ao registar as métricas no JMX: " + e.getMessage());
+        }
+    }
+
+    private static MBeanAttributeInfo attribute(String name, String type, String description) {
+        return new MBeanAttributeInfo(name, type, description, true, false, false);
+    }
+
+    @Override
+    public Object getAttribute(String name) throws AttributeNotFoundException {
+        for (Metrics.Gauge g : Metrics.Gauge.values()) {
+            if (g.key.equals(name)) return engine.gauge(g);
+        }
+        Metrics metrics = engine.metrics();
+        for (Metrics.Counter c : Metrics.Counter.values()) {
+            if (c.key.equals(name)) return metrics.count(c);
+        }
+        for (Metrics.Operation op : Metrics.Operation.values()) {
+            if (!name.startsWith(op.key)) continue;
+            LatencyHistogram h = metrics.latency(op);
+            switch (name.substring(op.key.length())) {
+                case "Count" -> { return h.count(); }
+                case "MeanMicros" -> { return h.mean() / 1e3; }
+                case "P50Micros" -> { return h.percentile(0.50) / 1e3; }
+                case "P99Micros" -> { return h.percentile(0.99) / 1e3; }
+                case "P999Micros" -> { return h.percentile(0.999) / 1e3; }
+                case "MaxMicros" -> { return h.max() / 1e3; }
+                default -> { }
+            }
+        }
+        throw new AttributeNotFoundException(name);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        AttributeList list = new AttributeList();
+        for (String name : names) {
+            try {
+                list.add(new Attribute(name, getAttribute(name)));
+            } catch (AttributeNotFoundException ignore) { // Atributos desconhecidos ficam de fora
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Atributo só de leitura: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+        if (!"reset".equals(action)) throw new ReflectionException(new NoSuchMethodException(action));
+        engine.metrics().reset();
+        return null;
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        return info;
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.Arrays;
+
+// Tabela de dispersão de int para int com endereçamento aberto (sondagem linear), sem objetos por entrada.
+// Os valores têm de ser >= 0: uma posição com valor -1 está livre e get retorna -1 quando a chave não existe.
+public class IntIntMap {
+
+    public static final int NO_VALUE = -1;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+    private int resizeAt;
+
+    public IntIntMap() {
+        this(16);
+    }
+
+    public IntIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public int size() { return size; }
+
+    public int get(int key) {
+        int i = hash(key) & mask;
+        int v;
+        while ((v = values[i]) != NO_VALUE) {
+            if (keys[i] == key) return v;
+            i = (i + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != NO_VALUE;
+    }
+
+    // Associa value (>= 0) à chave. Retorna o valor anterior ou NO_VALUE.
+    public int put(int key, int value) {
+        if (value < 0) throw new IllegalArgumentException("value tem de ser >= 0");
+
+        int i = hash(key) & mask;
+        int v;
+        while ((v = values[i]) != NO_VALUE) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return v;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeAt) rehash(values.length << 1);
+        return NO_VALUE;
+    }
+
+    public int remove(int key) {
+        int i = hash(key) & mask;
+        int v;
+        while ((v = values[i]) != NO_VALUE) {
+            if (keys[i] == key) {
+                shiftBack(i);
+                size--;
+                return v;
+            }
+            i = (i + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    public void clear() {
+        Arrays.fill(values, NO_VALUE);
+        size = 0;
+    }
+
+    // Remoção sem lápides (ver IntObjectMap.shiftBack)
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            int v = values[i];
+            if (v == NO_VALUE) break;
+
+            int home = hash(keys[i]) & mask;
+            boolean movable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (movable) {
+                keys[hole] = keys[i];
+                values[hole] = v;
+                hole = i;
+            }
+        }
+        values[hole] = NO_VALUE;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldValues.length; j++) {
+            int v = oldValues[j];
+            if (v == NO_VALUE) continue;
+            int i = hash(oldKeys[j]) & mask;
+            while (values[i] != NO_VALUE) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = v;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.Arrays;
+
+// Lista de ints que cresce conforme necessário (evita List<Integer>).
+public class IntList {
+
+    private int[] items;
+    private int size = 0;
+
+    public IntList() {
+        this(4);
+    }
+
+    public IntList(int initialCapacity) {
+        items = new int[Math.max(1, initialCapacity)];
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public int get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException(index);
+        return items[index];
+    }
+
+    public void add(int value) {
+        if (size == items.length) items = Arrays.copyOf(items, size * 2);
+        items[size++] = value;
+    }
+
+    public int removeLast() {
+        if (size == 0) throw new IndexOutOfBoundsException(0);
+        return items[--size];
+    }
+
+    // Remove a primeira ocorrência do valor, mantendo a ordem dos restantes. Retorna false se não existir.
+    public boolean removeValue(int value) {
+        for (int i = 0; i < size; i++) {
+            if (items[i] == value) {
+                System.arraycopy(items, i + 1, items, i, size - i - 1);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clear() { size = 0; }
+}
@@ -0,0 +1,202 @@
+import java.util.function.IntConsumer;
+
+// Árvore de intervalos (AVL aumentada) com as reservas ativas de um quarto.
+// Os nós estão ordenados pela data de início (em dias desde 1970-01-01) e, em caso de empate, pelo id da reserva.
+// Cada nó guarda o maior fim da sua subárvore, o que permite ignorar ramos inteiros na pesquisa de sobreposições.
+public class IntervalTree {
+
+    private static class Node {
+        final int start;
+        final int end;
+        final int id;
+        int maxEnd;
+        int height = 1;
+        Node left;
+        Node right;
+
+        Node(int start, int end, int id) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.maxEnd = end;
+        }
+    }
+
+    private Node root;
+    private int size = 0;
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    // Insere o intervalo [start, end] (ambos inclusivos) associado à reserva id.
+    public void insert(int start, int end, int id) {
+        root = insert(root, start, end, id);
+    }
+
+    // Remove o intervalo da reserva id que começa em start. Retorna false se não existir.
+    public boolean remove(int start, int id) {
+        int before = size;
+        root = remove(root, start, id);
+        return size < before;
+    }
+
+    // Verifica se algum intervalo (exceto o da reserva ignoreId) se sobrepõe a [start, end].
+    // Custo O(log k + m), em que m é o número de intervalos ignorados pelo caminho.
+    public boolean overlaps(int start, int end, int ignoreId) {
+        return overlaps(root, start, end, ignoreId);
+    }
+
+    // Percorre, por ordem de início, os intervalos que terminam em fromDay ou depois,
+    // passando o id da reserva de cada um. Ramos que acabam todos antes de fromDay são ignorados.
+    public void forEachEndingFrom(int fromDay, IntConsumer action) {
+        forEachEndingFrom(root, fromDay, action);
+    }
+
+    private static void forEachEndingFrom(Node n, int fromDay, IntConsumer action) {
+        if (n == null || n.maxEnd < fromDay) return;
+        forEachEndingFrom(n.left, fromDay, action);
+        if (n.end >= fromDay) action.accept(n.id);
+        forEachEndingFrom(n.right, fromDay, action);
+    }
+
+    // Percorre, por ordem de início, os intervalos que se sobrepõem a [start, end]
+    public void forEachOverlapping(int start, int end, IntConsumer action) {
+        forEachOverlapping(root, start, end, action);
+    }
+
+    private static void forEachOverlapping(Node n, int start, int end, IntConsumer action) {
+        if (n == null || n.maxEnd < start) return;
+        forEachOverlapping(n.left, start, end, action);
+        if (n.start > end) return;
+        if (n.end >= start) action.accept(n.id);
+        forEachOverlapping(n.right, start, end, action);
+    }
+
+    // Fim do intervalo com o maior início antes de day (Integer.MIN_VALUE se não houver).
+    // Como as reservas ativas de um quarto não se sobrepõem, é a estadia anterior a uma reserva que começa em day.
+    public int endBefore(int day) {
+        int end = Integer.MIN_VALUE;
+        for (Node n = root; n != null; ) {
+            if (n.start < day) {
+                end = n.end;
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return end;
+    }
+
+    // Menor início depois de day (Integer.MAX_VALUE se não houver)
+    public int startAfter(int day) {
+        int start = Integer.MAX_VALUE;
+        for (Node n = root; n != null; ) {
+            if (n.start > day) {
+                start = n.start;
+                n = n.left;
+            } else {
+                n = n.right;
+            }
+        }
+        return start;
+    }
+
+    private static boolean overlaps(Node n, int start, int end, int ignoreId) {
+        if (n == null || n.maxEnd < start) return false; // Nenhum intervalo deste ramo chega a start
+
+        if (n.start <= end && n.end >= start && n.id != ignoreId) return true;
+
+        if (overlaps(n.left, start, end, ignoreId)) return true;
+        if (n.start > end) return false; // Todos os nós à direita começam depois de end
+        return overlaps(n.right, start, end, ignoreId);
+    }
+
+    private static int compare(int start, int id, Node n) {
+        if (start != n.start) return Integer.compare(start, n.start);
+        return Integer.compare(id, n.id);
+    }
+
+    private Node insert(Node n, int start, int end, int id) {
+        if (n == null) {
+            size++;
+            return new Node(start, end, id);
+        }
+        int c = compare(start, id, n);
+        if (c < 0) n.left = insert(n.left, start, end, id);
+        else if (c > 0) n.right = insert(n.right, start, end, id);
+        else return n; // Já indexado
+        return balance(n);
+    }
+
+    private Node remove(Node n, int start, int id) {
+        if (n == null) return null;
+        int c = compare(start, id, n);
+        if (c < 0) {
+            n.left = remove(n.left, start, id);
+        } else if (c > 0) {
+            n.right = remove(n.right, start, id);
+        } else {
+            size--;
+            if (n.left == null) return n.right;
+            if (n.right == null) return n.left;
+
+            // Substitui pelo sucessor (menor nó da subárvore direita)
+            Node succ = n.right;
+            while (succ.left != null) succ = succ.left;
+            Node replacement = new Node(succ.start, succ.end, succ.id);
+            replacement.left = n.left;
+            replacement.right = removeMin(n.right);
+            return balance(replacement);
+        }
+        return balance(n);
+    }
+
+    private Node removeMin(Node n) {
+        if (n.left == null) return n.right;
+        n.left = removeMin(n.left);
+        return balance(n);
+    }
+
+    private static int height(Node n) { return n == null ? 0 : n.height; }
+
+    private static void update(Node n) {
+        n.height = 1 + Math.max(height(n.left), height(n.right));
+        int max = n.end;
+        if (n.left != null && n.left.maxEnd > max) max = n.left.maxEnd;
+        if (n.right != null && n.right.maxEnd > max) max = n.right.maxEnd;
+        n.maxEnd = max;
+    }
+
+    private static Node rotateRight(Node n) {
+        Node l = n.left;
+        n.left = l.right;
+        l.right = n;
+        update(n);
+        update(l);
+        return l;
+    }
+
+    private static Node rotateLeft(Node n) {
+        Node r = n.right;
+        n.right = r.left;
+        r.left = n;
+        update(n);
+        update(r);
+        return r;
+    }
+
+    private static Node balance(Node n) {
+        update(n);
+        int bf = height(n.left) - height(n.right);
+        if (bf > 1) {
+            if (height(n.left.left) < height(n.left.right)) n.left = rotateLeft(n.left);
+            return rotateRight(n);
+        }
+        if (bf < -1) {
+            if (height(n.right.right) < height(n.right.left)) n.right = rotateRight(n.right);
+            return rotateLeft(n);
+        }
+        return n;
+    }
+}
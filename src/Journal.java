@@ -0,0 +1,138 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Diário de alterações (write-ahead log) só de acréscimo.
+// Cada alteração aos dados é escrita numa linha no fim do ficheiro, em vez de se reescrever o CSV inteiro.
+// No arranque as linhas são reaplicadas sobre os CSV; a compactação volta a escrever os CSV e esvazia o diário.
+// Na compactação em segundo plano o diário é primeiro rodado para um segmento anterior (<ficheiro>.1),
+// que só é apagado depois de os CSV estarem escritos; as novas alterações continuam no ficheiro principal.
+public class Journal {
+
+    private final File file;
+    private final File previous;
+    private final int syncEvery; // Faz fsync a cada N registos (0 = só envia para o sistema operativo)
+
+    private FileOutputStream out;
+    private BufferedWriter writer;
+    private int records = 0; // Registos no ficheiro desde a última compactação
+    private int unsynced = 0;
+
+    public Journal(String path, int syncEvery) {
+        this.file = new File(path);
+        this.previous = new File(path + ".1");
+        this.syncEvery = syncEvery;
+    }
+
+    public int recordCount() { return records; }
+
+    public long fileSize() { return file.length() + previous.length(); }
+
+    public boolean hasPrevious() { return previous.exists(); }
+
+    // Lê todos os registos existentes, pela ordem em que foram escritos (primeiro o segmento anterior, se existir).
+    public void replay(Consumer<String> apply) throws IOException {
+        records = 0;
+        replay(previous, apply);
+        replay(file, apply);
+    }
+
+    private void replay(File f, Consumer<String> apply) throws IOException {
+        if (!f.exists()) return;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(f, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                apply.accept(line);
+                records++;
+            }
+        }
+    }
+
+    // Acrescenta um registo. A linha fica no sistema operativo antes de o método retornar.
+    public void append(String record) throws IOException {
+        if (writer == null) open(true);
+
+        writer.write(record);
+        writer.newLine();
+        writer.flush();
+        records++;
+
+        if (syncEvery > 0 && ++unsynced >= syncEvery) sync();
+    }
+
+    // Acrescenta vários registos com uma só escrita. O fsync segue syncEvery, como em append;
+    // com forceSync é feito sempre um fsync no fim (escrita em grupo, ver WriteBehind.flushPending).
+    public void appendAll(List<String> batch, boolean forceSync) throws IOException {
+        if (batch.isEmpty()) return;
+        if (writer == null) open(true);
+
+        for (String record : batch) {
+            writer.write(record);
+            writer.newLine();
+        }
+        writer.flush();
+        records += batch.size();
+
+        unsynced += batch.size();
+        if (forceSync || (syncEvery > 0 && unsynced >= syncEvery)) sync();
+    }
+
+    // Garante que os registos escritos chegaram ao disco.
+    public void sync() throws IOException {
+        if (out == null) return;
+        out.getChannel().force(false);
+        unsynced = 0;
+    }
+
+    // Esvazia o diário (e o segmento anterior). Só deve ser chamado depois de os CSV estarem atualizados.
+    public void truncate() throws IOException {
+        close();
+        open(false);
+        Files.deleteIfExists(previous.toPath());
+        records = 0;
+    }
+
+    // Passa os registos atuais para o segmento anterior e recomeça o diário vazio.
+    // Se ainda houver um segmento anterior (compactação falhada), os registos são acrescentados ao fim dele.
+    public void rotate() throws IOException {
+        close();
+        if (file.exists() && file.length() > 0) {
+            if (previous.exists()) {
+                Files.write(previous.toPath(), Files.readAllBytes(file.toPath()), StandardOpenOption.APPEND);
+                Files.delete(file.toPath());
+            } else {
+                Files.move(file.toPath(), previous.toPath());
+            }
+        }
+        records = 0;
+    }
+
+    // Apaga o segmento anterior, depois de a compactação o ter incorporado nos CSV
+    public void dropPrevious() throws IOException {
+        Files.deleteIfExists(previous.toPath());
+    }
+
+    public void close() throws IOException {
+        if (writer == null) return;
+        sync();
+        writer.close();
+        writer = null;
+        out = null;
+    }
+
+    private void open(boolean append) throws IOException {
+        out = new FileOutputStream(file, append);
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,121 @@
+import java.util.HashMap;
+import java.util.Map;
+
+// JSON mínimo para a interface HTTP: escrita de textos e leitura de objetos simples
+// ({"chave": valor, ...} com textos, números, true/false ou null, sem objetos nem listas dentro).
+public class Json {
+
+    // Texto entre aspas, com os caracteres especiais escapados
+    public static String quote(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    // Lê um objeto simples e retorna os valores como texto (null para null).
+    // Lança IllegalArgumentException se o texto não for um objeto desse tipo.
+    public static Map<String, String> parseObject(String text) {
+        Parser p = new Parser(text);
+        Map<String, String> out = new HashMap<>();
+        p.skipSpaces();
+        p.expect('{');
+        p.skipSpaces();
+        if (p.peek() == '}') {
+            p.pos++;
+        } else {
+            while (true) {
+                p.skipSpaces();
+                String key = p.readString();
+                p.skipSpaces();
+                p.expect(':');
+                p.skipSpaces();
+                out.put(key, p.readValue());
+                p.skipSpaces();
+                char c = p.next();
+                if (c == '}') break;
+                if (c != ',') throw new IllegalArgumentException("Esperava ',' ou '}' na posição " + (p.pos - 1));
+            }
+        }
+        p.skipSpaces();
+        if (p.pos != text.length()) throw new IllegalArgumentException("Texto a mais depois do objeto");
+        return out;
+    }
+
+    private static class Parser {
+        final String s;
+        int pos = 0;
+
+        Parser(String s) { this.s = s; }
+
+        char peek() {
+            if (pos >= s.length()) throw new IllegalArgumentException("Fim inesperado do JSON");
+            return s.charAt(pos);
+        }
+
+        char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        void expect(char c) {
+            if (next() != c) throw new IllegalArgumentException("Esperava '" + c + "' na posição " + (pos - 1));
+        }
+
+        void skipSpaces() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+        }
+
+        String readValue() {
+            char c = peek();
+            if (c == '"') return readString();
+            if (c == '{' || c == '[') throw new IllegalArgumentException("Só são aceites valores simples");
+            int start = pos;
+            while (pos < s.length() && ",}] \t\r\n".indexOf(s.charAt(pos)) < 0) pos++;
+            String literal = s.substring(start, pos);
+            if (literal.isEmpty()) throw new IllegalArgumentException("Valor em falta na posição " + start);
+            return literal.equals("null") ? null : literal;
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = next();
+                switch (e) {
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > s.length()) throw new IllegalArgumentException("Escape \\u incompleto");
+                        sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        pos += 4;
+                    }
+                    default -> sb.append(e); // \" \\ \/
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histograma de latências em nanossegundos, no estilo do HdrHistogram: escala logarítmica com 32 divisões
+// por potência de 2 (erro máximo de ~3%), de 1 ns a ~9 horas, em memória fixa (~10 KB).
+// Registar um valor não usa trincos (só operações atómicas), por isso várias threads podem medir ao mesmo tempo.
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 44; // Valores a partir de 2^45 ns contam como o maior balde
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.getAndIncrement(bucket(nanos));
+        sum.add(nanos);
+        if (nanos > max.get()) max.accumulate(nanos);
+    }
+
+    // Soma dos baldes: mais lento de ler, mas poupa um contador em cada medição
+    public long count() {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += counts.get(i);
+        return n;
+    }
+
+    public long max() { return max.get(); }
+
+    public double mean() {
+        long n = count();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    // Valor abaixo do qual ficam a fração p (0..1) das medições (aproximado ao centro do balde)
+    public long percentile(double p) {
+        long n = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) n += snapshot[i] = counts.get(i);
+        if (n == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(p * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(middle(i), max.get());
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        sum.reset();
+        max.reset();
+    }
+
+    // Valores até 31 têm um balde cada; acima disso cada potência de 2 é dividida em 32 baldes iguais
+    private static int bucket(long v) {
+        if (v < SUB_BUCKETS) return (int) v;
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(v), MAX_EXPONENT);
+        int sub = (int) (Math.min(v, (2L << MAX_EXPONENT) - 1) >>> (exponent - SUB_BITS)) - SUB_BUCKETS;
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long middle(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long width = 1L << (exponent - SUB_BITS);
+        long low = (SUB_BUCKETS + bucket % SUB_BUCKETS) * width;
+        return low + width / 2;
+    }
+}
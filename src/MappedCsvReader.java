@@ -0,0 +1,241 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+// Leitor de CSV que mapeia o ficheiro em memória (FileChannel.map) e interpreta os campos
+// diretamente a partir dos bytes: inteiros e datas ISO são lidos sem criar Strings intermédias.
+// Só os campos de texto dão origem a uma String. As aspas seguem as regras de escapeCsv/splitCsvLine.
+// Limitado a ficheiros até 2 GB (tamanho máximo de um mapeamento).
+public class MappedCsvReader implements AutoCloseable {
+
+    private final MappedByteBuffer buf;
+    private final int limit;
+
+    private int next = 0;      // Início da próxima linha
+    private int pos;           // Posição do próximo campo na linha atual
+    private int rowEnd;        // Fim da linha atual (exclusivo, sem espaços nem \r finais)
+    private int fieldCount;
+    private boolean rowDone;   // Já não há mais campos na linha atual
+
+    private byte[] scratch = new byte[64]; // Buffer reutilizado para os campos de texto
+
+    public MappedCsvReader(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Ficheiro demasiado grande: " + file);
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size); // O mapeamento continua válido após fechar o canal
+            limit = (int) size;
+        }
+    }
+
+    // Avança para a próxima linha não vazia. Retorna false no fim do ficheiro.
+    public boolean nextRow() {
+        while (next < limit) {
+            int start = next;
+            int end = start;
+            while (end < limit && buf.get(end) != '\n') end++;
+            next = end + 1;
+
+            // Equivalente a line.trim()
+            while (start < end && (buf.get(start) & 0xFF) <= ' ') start++;
+            while (end > start && (buf.get(end - 1) & 0xFF) <= ' ') end--;
+            if (start == end) continue;
+
+            pos = start;
+            rowEnd = end;
+            rowDone = false;
+            fieldCount = countFields(start, end);
+            return true;
+        }
+        return false;
+    }
+
+    // Número de campos da linha atual (como splitCsvLine(line).length)
+    public int fieldCount() { return fieldCount; }
+
+    private int countFields(int start, int end) {
+        int count = 1;
+        boolean inQuotes = false;
+        for (int i = start; i < end; i++) {
+            byte c = buf.get(i);
+            if (c == '"') inQuotes = !inQuotes; // "" dentro de aspas alterna duas vezes
+            else if (c == ',' && !inQuotes) count++;
+        }
+        return count;
+    }
+
+    public int readInt() {
+        checkField();
+        int i = skipSpaces(pos);
+        if (i < rowEnd && buf.get(i) == '"') return Integer.parseInt(readString()); // Campo entre aspas, caso raro
+
+        boolean negative = false;
+        if (i < rowEnd && (buf.get(i) == '-' || buf.get(i) == '+')) {
+            negative = buf.get(i) == '-';
+            i++;
+        }
+
+        long value = 0;
+        int digits = 0;
+        while (i < rowEnd) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) break;
+            value = value * 10 + d;
+            if (value > (long) Integer.MAX_VALUE + 1) throw invalidNumber();
+            digits++;
+            i++;
+        }
+        if (digits == 0) throw invalidNumber();
+        if (negative) value = -value;
+        if (value > Integer.MAX_VALUE) throw invalidNumber();
+
+        endField(i);
+        return (int) value;
+    }
+
+    // Lê uma data no formato YYYY-MM-DD e retorna-a em dias desde 1970-01-01 (como LocalDate.toEpochDay).
+    public int readEpochDay() {
+        checkField();
+        int i = skipSpaces(pos);
+
+        if (i + 10 <= rowEnd && buf.get(i + 4) == '-' && buf.get(i + 7) == '-') {
+            int year = digits(i, 4);
+            int month = digits(i + 5, 2);
+            int day = digits(i + 8, 2);
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= EpochDay.lengthOfMonth(year, month)) {
+                int after = skipSpaces(i + 10);
+                if (after == rowEnd || buf.get(after) == ',') {
+                    endField(i + 10);
+                    return EpochDay.of(year, month, day);
+                }
+            }
+        }
+        // Formato fora do habitual: deixa LocalDate.parse decidir (e lançar a mesma exceção que antes)
+        return (int) LocalDate.parse(readString()).toEpochDay();
+    }
+
+    // Equivalente a Boolean.parseBoolean(campo.trim())
+    public boolean readBoolean() {
+        checkField();
+        int i = skipSpaces(pos);
+        boolean value = false;
+        if (i + 4 <= rowEnd
+                && (buf.get(i) | 0x20) == 't' && (buf.get(i + 1) | 0x20) == 'r'
+                && (buf.get(i + 2) | 0x20) == 'u' && (buf.get(i + 3) | 0x20) == 'e') {
+            int after = skipSpaces(i + 4);
+            value = after == rowEnd || buf.get(after) == ',';
+        }
+        skipField();
+        return value;
+    }
+
+    // Lê um campo de texto: retira as aspas envolventes, converte "" em " e aplica trim().
+    public String readString() {
+        checkField();
+        int len = 0;
+        boolean inQuotes = false;
+        int i = pos;
+
+        for (; i < rowEnd; i++) {
+            byte c = buf.get(i);
+            if (c == '"') {
+                if (inQuotes && i + 1 < rowEnd && buf.get(i + 1) == '"') {
+                    len = append(len, (byte) '"');
+                    i++;
+                } else {
+                    inQuotes = !inQuotes;
+                }
+            } else if (c == ',' && !inQuotes) {
+                break;
+            } else {
+                len = append(len, c);
+            }
+        }
+        endField(i);
+        return new String(scratch, 0, len, StandardCharsets.UTF_8).trim();
+    }
+
+    // Ignora o campo atual
+    public void skipField() {
+        checkField();
+        boolean inQuotes = false;
+        int i = pos;
+        for (; i < rowEnd; i++) {
+            byte c = buf.get(i);
+            if (c == '"') inQuotes = !inQuotes;
+            else if (c == ',' && !inQuotes) break;
+        }
+        endField(i);
+    }
+
+    @Override
+    public void close() {
+        unmap(buf);
+    }
+
+    private int append(int len, byte c) {
+        if (len == scratch.length) {
+            byte[] bigger = new byte[len * 2];
+            System.arraycopy(scratch, 0, bigger, 0, len);
+            scratch = bigger;
+        }
+        scratch[len] = c;
+        return len + 1;
+    }
+
+    private void checkField() {
+        if (rowDone) throw new IllegalStateException("Não há mais campos na linha");
+    }
+
+    // Termina o campo que acaba em i (exclusivo): tem de vir a seguir uma vírgula ou o fim da linha
+    private void endField(int i) {
+        i = skipSpaces(i);
+        if (i >= rowEnd) {
+            rowDone = true;
+            pos = rowEnd;
+        } else if (buf.get(i) == ',') {
+            pos = i + 1;
+        } else {
+            throw invalidNumber();
+        }
+    }
+
+    private int skipSpaces(int i) {
+        while (i < rowEnd && (buf.get(i) & 0xFF) <= ' ') i++;
+        return i;
+    }
+
+    private int digits(int from, int n) {
+        int value = 0;
+        for (int i = from; i < from + n; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) return -1;
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private NumberFormatException invalidNumber() {
+        return new NumberFormatException("Valor inválido na coluna perto da posição " + pos);
+    }
+
+    // Liberta o mapeamento de imediato. Sem isto o ficheiro fica mapeado até ao próximo GC
+    // e, em Windows, não pode ser reescrito (ex.: pelos saveX na compactação do diário).
+    private static void unmap(ByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException ignore) { // Fica a cargo do GC
+        }
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.concurrent.atomic.LongAdder;
+
+// Métricas de um HotelEngine: contadores sem trincos (LongAdder) e um histograma de latência por operação.
+// Desligam-se com -Dhotel.metrics=false. ENABLED é uma constante, por isso com as métricas desligadas o JIT
+// elimina as medições e as operações não chegam a ler o relógio.
+// Os valores de estado (tamanho das tabelas, bytes dos ficheiros) são calculados quando são pedidos (ver HotelEngine.gauge).
+public class Metrics {
+
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("hotel.metrics", "true"));
+
+    // Operações medidas. O nome é usado no JMX, a descrição na consola.
+    public enum Operation {
+        HAS_CONFLICT("hasConflict", "Verificar conflito"),
+        CHECK_AVAILABILITY("checkAvailability", "Verificar disponibilidade"),
+        SEARCH("searchAvailableRooms", "Procurar quartos livres"),
+        BOOK("bookRoom", "Criar reserva"),
+        GROUP_BOOK("bookGroup", "Criar reserva de grupo"),
+        GROUP_CANCEL("cancelGroup", "Cancelar reserva de grupo"),
+        CANCEL("cancelReservation", "Cancelar reserva"),
+        JOURNAL_APPEND("journalAppend", "Registar alteração no diário"),
+        GROUP_COMMIT("groupCommit", "Escrita em grupo no diário"),
+        COMPACTION("compaction", "Compactação (CSV e cópias)"),
+        SAVE_ROOMS("saveRooms", "Guardar quartos (CSV)"),
+        SAVE_GUESTS("saveGuests", "Guardar hóspedes (CSV)"),
+        SAVE_RESERVATIONS("saveReservations", "Guardar reservas (CSV)"),
+        SAVE_WAITLIST("saveWaitlist", "Guardar lista de espera (CSV)"),
+        WRITE_SNAPSHOTS("writeSnapshots", "Guardar cópias binárias"),
+        READ_ROOMS("readRooms", "Ler quartos"),
+        READ_GUESTS("readGuests", "Ler hóspedes"),
+        READ_RESERVATIONS("readReservations", "Ler reservas"),
+        INDEX_RESERVATIONS("installReservations", "Construir índices de reservas"),
+        REPLAY_JOURNAL("replayJournal", "Reaplicar o diário"),
+        IMPORT("importReservations", "Importar reservas em lote"),
+        ASSIGN("assignRooms", "Atribuir quartos automaticamente"),
+        OPTIMIZE("optimizeAssignments", "Reotimizar atribuição de quartos"),
+        ANALYTICS("occupancyAnalytics", "Estatísticas de ocupação"),
+        ARCHIVE("archiveReservations", "Arquivar reservas"),
+        ARCHIVE_QUERY("archiveQuery", "Consultar o arquivo"),
+        LOAD("load", "Carregamento completo");
+
+        final String key;
+        final String label;
+
+        Operation(String key, String label) {
+            this.key = key;
+            this.label = label;
+        }
+    }
+
+    public enum Counter {
+        BOOKINGS("bookings", "Reservas criadas"),
+        CONFLICTS("conflicts", "Reservas recusadas por conflito"),
+        CANCELLATIONS("cancellations", "Reservas canceladas"),
+        ROOM_MOVES("roomMoves", "Reservas mudadas de quarto"),
+        WAITLIST_BOOKINGS("waitlistBookings", "Reservas feitas a partir da lista de espera"),
+        WAITLIST_OFFERS("waitlistOffers", "Quartos oferecidos à lista de espera"),
+        JOURNAL_RECORDS("journalRecords", "Registos escritos no diário"),
+        JOURNAL_BYTES("journalBytesWritten", "Bytes escritos no diário"),
+        COMPACTIONS("compactions", "Compactações do diário"),
+        CSV_BYTES("csvBytesWritten", "Bytes escritos nos CSV"),
+        SNAPSHOT_BYTES("snapshotBytesWritten", "Bytes escritos nas cópias binárias");
+
+        final String key;
+        final String label;
+
+        Counter(String key, String label) {
+            this.key = key;
+            this.label = label;
+        }
+    }
+
+    public enum Gauge {
+        ROOMS("rooms", "Quartos"),
+        GUESTS("guests", "Hóspedes"),
+        RESERVATIONS("reservations", "Reservas (ativas e canceladas)"),
+        ACTIVE_RESERVATIONS("activeReservations", "Reservas ativas"),
+        WAITLIST("waitlist", "Pedidos na lista de espera"),
+        JOURNAL_RECORDS("journalPendingRecords", "Registos no diário por compactar"),
+        PENDING_WRITES("pendingWrites", "Alterações em fila para o diário"),
+        JOURNAL_BYTES("journalFileBytes", "Tamanho do diário (bytes)"),
+        CSV_BYTES("csvFileBytes", "Tamanho dos CSV (bytes)"),
+        SNAPSHOT_BYTES("snapshotFileBytes", "Tamanho das cópias binárias (bytes)"),
+        ARCHIVED_RESERVATIONS("archivedReservations", "Reservas no arquivo"),
+        ARCHIVE_BYTES("archiveFileBytes", "Tamanho do arquivo (bytes)");
+
+        final String key;
+        final String label;
+
+        Gauge(String key, String label) {
+            this.key = key;
+            this.label = label;
+        }
+    }
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final LongAdder[] counters = new LongAdder[Counter.values().length];
+
+    public Metrics() {
+        for (int i = 0; i < latencies.length; i++) latencies[i] = new LatencyHistogram();
+        for (int i = 0; i < counters.length; i++) counters[i] = new LongAdder();
+    }
+
+    // Início de uma medição (0 com as métricas desligadas)
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    // Regista a duração de uma operação iniciada em start()
+    void record(Operation op, long start) {
+        if (ENABLED) latencies[op.ordinal()].record(System.nanoTime() - start);
+    }
+
+    void increment(Counter counter) {
+        if (ENABLED) counters[counter.ordinal()].increment();
+    }
+
+    void add(Counter counter, long n) {
+        if (ENABLED) counters[counter.ordinal()].add(n);
+    }
+
+    public LatencyHistogram latency(Operation op) {
+        return latencies[op.ordinal()];
+    }
+
+    public long count(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    public void reset() {
+        for (LatencyHistogram h : latencies) h.reset();
+        for (LongAdder c : counters) c.reset();
+    }
+}
@@ -0,0 +1,248 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Estatísticas de ocupação de [from, to] calculadas a partir de uma cópia das reservas ativas:
+// por dia (quartos ocupados, taxa de ocupação, hóspedes, chegadas e partidas), por grupo de capacidade e por quarto.
+// Em vez de verificar cada dia de cada reserva, cada reserva soma +1 no dia de início e -1 no dia a seguir ao fim
+// de um array de diferenças; a soma acumulada dá depois o valor de cada dia. O custo é O(reservas + dias).
+// As reservas são divididas em blocos processados em paralelo (fork/join); cada bloco tem os seus arrays,
+// que são somados no fim. As estadias incluem o dia de check-in e o de check-out (como no resto do motor).
+public class OccupancyAnalytics {
+
+    private static final int CHUNK = 1 << 15; // Reservas por tarefa
+
+    private final int fromDay;
+    private final int days;
+    private final int[] roomIds;             // Quartos existentes, por ordem de id
+    private final int[] roomCapacities;
+    private final int[] roomsPerCapacity;    // Nº de quartos de cada capacidade (0..MAX_CAPACITY)
+
+    // Séries por dia (índice = dia - fromDay)
+    private final int[] occupied;
+    private final long[] guests;
+    private final int[] arrivals;
+    private final int[] departures;
+    private final int[][] occupiedByCapacity; // [capacidade][dia]
+    private final int[] roomNights;           // Dias ocupados de cada quarto em [from, to], pela ordem de roomIds
+
+    private OccupancyAnalytics(int fromDay, int days, int[] roomIds, int[] roomCapacities, Partial total) {
+        this.fromDay = fromDay;
+        this.days = days;
+        this.roomIds = roomIds;
+        this.roomCapacities = roomCapacities;
+        this.roomsPerCapacity = new int[HotelEngine.MAX_CAPACITY + 1];
+        for (int c : roomCapacities) roomsPerCapacity[c]++;
+
+        // Somas acumuladas: diferenças -> valores por dia
+        occupied = new int[days];
+        guests = new long[days];
+        occupiedByCapacity = new int[HotelEngine.MAX_CAPACITY + 1][days];
+        int running = 0;
+        long runningGuests = 0;
+        int[] runningByCapacity = new int[HotelEngine.MAX_CAPACITY + 1];
+        for (int d = 0; d < days; d++) {
+            running += total.occupied[d];
+            runningGuests += total.guests[d];
+            occupied[d] = running;
+            guests[d] = runningGuests;
+            for (int c = 0; c <= HotelEngine.MAX_CAPACITY; c++) {
+                runningByCapacity[c] += total.byCapacity[c][d];
+                occupiedByCapacity[c][d] = runningByCapacity[c];
+            }
+        }
+        arrivals = total.arrivals;
+        departures = total.departures;
+        roomNights = total.roomNights;
+    }
+
+    // Calcula as estatísticas para os quartos dados (as reservas de quartos que já não existem são ignoradas)
+    static OccupancyAnalytics compute(ReservationStore rows, List<Room> rooms, int fromDay, int toDay) {
+        int days = Math.max(0, toDay - fromDay + 1);
+        int[] roomIds = new int[rooms.size()];
+        int[] capacities = new int[rooms.size()];
+        List<Room> sorted = rooms.stream().sorted((a, b) -> Integer.compare(a.getId(), b.getId())).toList();
+        IntIntMap roomIndex = new IntIntMap(rooms.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            roomIds[i] = sorted.get(i).getId();
+            capacities[i] = Math.max(0, Math.min(HotelEngine.MAX_CAPACITY, sorted.get(i).getCapacity()));
+            roomIndex.put(roomIds[i], i);
+        }
+
+        Partial total = days == 0 ? new Partial(0, rooms.size())
+                : ForkJoinPool.commonPool().invoke(new Chunk(rows, 0, rows.size(), roomIndex, capacities, fromDay, toDay));
+        return new OccupancyAnalytics(fromDay, days, roomIds, capacities, total);
+    }
+
+    // Diferenças e contagens de um bloco de reservas
+    private static final class Partial {
+        final int[] occupied;
+        final long[] guests;
+        final int[] arrivals;
+        final int[] departures;
+        final int[][] byCapacity;
+        final int[] roomNights;
+
+        Partial(int days, int rooms) {
+            occupied = new int[days + 1];
+            guests = new long[days + 1];
+            arrivals = new int[days];
+            departures = new int[days];
+            byCapacity = new int[HotelEngine.MAX_CAPACITY + 1][days + 1];
+            roomNights = new int[rooms];
+        }
+
+        Partial add(Partial o) {
+            for (int d = 0; d < occupied.length; d++) {
+                occupied[d] += o.occupied[d];
+                guests[d] += o.guests[d];
+            }
+            for (int d = 0; d < arrivals.length; d++) {
+                arrivals[d] += o.arrivals[d];
+                departures[d] += o.departures[d];
+            }
+            for (int c = 0; c < byCapacity.length; c++) {
+                for (int d = 0; d < byCapacity[c].length; d++) byCapacity[c][d] += o.byCapacity[c][d];
+            }
+            for (int r = 0; r < roomNights.length; r++) roomNights[r] += o.roomNights[r];
+            return this;
+        }
+    }
+
+    @SuppressWarnings("serial") // Nunca é serializada
+    private static final class Chunk extends RecursiveTask<Partial> {
+        private final ReservationStore rows;
+        private final int from, to; // Linhas [from, to)
+        private final IntIntMap roomIndex;
+        private final int[] capacities;
+        private final int fromDay, toDay;
+
+        Chunk(ReservationStore rows, int from, int to, IntIntMap roomIndex, int[] capacities, int fromDay, int toDay) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.roomIndex = roomIndex;
+            this.capacities = capacities;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > CHUNK) {
+                int mid = (from + to) >>> 1;
+                Chunk left = new Chunk(rows, from, mid, roomIndex, capacities, fromDay, toDay);
+                left.fork();
+                Partial right = new Chunk(rows, mid, to, roomIndex, capacities, fromDay, toDay).compute();
+                return left.join().add(right);
+            }
+
+            Partial p = new Partial(toDay - fromDay + 1, capacities.length);
+            for (int row = from; row < to; row++) {
+                if (!rows.isActive(row)) continue;
+                int start = rows.startDay(row);
+                int end = rows.endDay(row);
+                if (end < fromDay || start > toDay) continue;
+                int room = roomIndex.get(rows.roomId(row));
+                if (room < 0) continue;
+
+                int first = Math.max(start, fromDay) - fromDay;
+                int last = Math.min(end, toDay) - fromDay;
+                p.occupied[first]++;
+                p.occupied[last + 1]--;
+                p.guests[first] += rows.numberOfGuests(row);
+                p.guests[last + 1] -= rows.numberOfGuests(row);
+                p.byCapacity[capacities[room]][first]++;
+                p.byCapacity[capacities[room]][last + 1]--;
+                if (start >= fromDay) p.arrivals[start - fromDay]++;
+                if (end <= toDay) p.departures[end - fromDay]++;
+                p.roomNights[room] += last - first + 1;
+            }
+            return p;
+        }
+    }
+
+    public int days() { return days; }
+    public int roomCount() { return roomIds.length; }
+
+    public int day(int i) { return fromDay + i; }
+    public int occupied(int i) { return occupied[i]; }
+    public long guests(int i) { return guests[i]; }
+    public int arrivals(int i) { return arrivals[i]; }
+    public int departures(int i) { return departures[i]; }
+
+    public double occupancyRate(int i) {
+        return roomIds.length == 0 ? 0 : (double) occupied[i] / roomIds.length;
+    }
+
+    public int roomsWithCapacity(int capacity) { return roomsPerCapacity[capacity]; }
+
+    public int occupiedWithCapacity(int capacity, int i) { return occupiedByCapacity[capacity][i]; }
+
+    // Taxa de ocupação média no período (quartos-noite ocupados / quartos-noite disponíveis)
+    public double averageOccupancy() {
+        long nights = 0;
+        for (int o : occupied) nights += o;
+        return roomIds.length == 0 || days == 0 ? 0 : (double) nights / ((long) roomIds.length * days);
+    }
+
+    public double averageOccupancy(int capacity) {
+        long nights = 0;
+        for (int o : occupiedByCapacity[capacity]) nights += o;
+        return roomsPerCapacity[capacity] == 0 || days == 0 ? 0 : (double) nights / ((long) roomsPerCapacity[capacity] * days);
+    }
+
+    public long guestNights() {
+        long n = 0;
+        for (long g : guests) n += g;
+        return n;
+    }
+
+    public int roomId(int r) { return roomIds[r]; }
+    public int roomNights(int r) { return roomNights[r]; }
+
+    public double roomOccupancy(int r) {
+        return days == 0 ? 0 : (double) roomNights[r] / days;
+    }
+
+    // CSV por dia: date,occupiedRooms,occupancyRate,guests,arrivals,departures,occupiedCapacity1..6
+    public void writeDailyCsv(PrintWriter pw) {
+        StringBuilder sb = new StringBuilder("date,occupiedRooms,occupancyRate,guests,arrivals,departures");
+        for (int c = HotelEngine.MIN_CAPACITY; c <= HotelEngine.MAX_CAPACITY; c++) sb.append(",occupiedCapacity").append(c);
+        pw.println(sb);
+        for (int i = 0; i < days; i++) {
+            sb.setLength(0);
+            EpochDay.append(sb, day(i)).append(',').append(occupied[i]).append(',').append(String.format(Locale.ROOT, "%.4f", occupancyRate(i)))
+                    .append(',').append(guests[i]).append(',').append(arrivals[i]).append(',').append(departures[i]);
+            for (int c = HotelEngine.MIN_CAPACITY; c <= HotelEngine.MAX_CAPACITY; c++) sb.append(',').append(occupiedByCapacity[c][i]);
+            pw.println(sb);
+        }
+    }
+
+    // CSV por quarto: roomId,capacity,occupiedDays,occupancyRate
+    public void writeRoomCsv(PrintWriter pw) {
+        pw.println("roomId,capacity,occupiedDays,occupancyRate");
+        for (int r = 0; r < roomIds.length; r++) {
+            pw.println(roomIds[r] + "," + roomCapacities[r] + "," + roomNights[r] + "," + String.format(Locale.ROOT, "%.4f", roomOccupancy(r)));
+        }
+    }
+
+    // Grava os dois CSV: <prefixo>-dias.csv e <prefixo>-quartos.csv
+    public void export(File prefix) throws IOException {
+        File daily = new File(prefix.getPath() + "-dias.csv");
+        File byRoom = new File(prefix.getPath() + "-quartos.csv");
+        try (PrintWriter pw = new PrintWriter(daily, StandardCharsets.UTF_8)) {
+            writeDailyCsv(pw);
+            if (pw.checkError()) throw new IOException("falha ao escrever " + daily);
+        }
+        try (PrintWriter pw = new PrintWriter(byRoom, StandardCharsets.UTF_8)) {
+            writeRoomCsv(pw);
+            if (pw.checkError()) throw new IOException("falha ao escrever " + byRoom);
+        }
+    }
+}
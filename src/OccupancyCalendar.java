@@ -0,0 +1,74 @@
+import java.util.BitSet;
+
+// Calendário de ocupação ao dia: para cada dia (em dias desde 1970-01-01) guarda um BitSet
+// em que o bit n indica que o quarto com id n está ocupado nesse dia.
+// É atualizado de forma incremental quando se cria ou cancela uma reserva ativa.
+public class OccupancyCalendar {
+
+    private final IntObjectMap<BitSet> days = new IntObjectMap<>(1024);
+    private final BitSet rooms = new BitSet(); // Quartos existentes
+
+    public void addRoom(int roomId) { rooms.set(roomId); }
+
+    public void removeRoom(int roomId) { rooms.clear(roomId); }
+
+    public void clearRooms() { rooms.clear(); }
+
+    public void clearOccupancy() { days.clear(); }
+
+    // Marca o quarto como ocupado em todos os dias de [startDay, endDay]
+    public void occupy(int roomId, int startDay, int endDay) {
+        for (int day = startDay; day <= endDay; day++) {
+            BitSet bits = days.get(day);
+            if (bits == null) {
+                bits = new BitSet();
+                days.put(day, bits);
+            }
+            bits.set(roomId);
+        }
+    }
+
+    // Liberta o quarto em todos os dias de [startDay, endDay]
+    public void release(int roomId, int startDay, int endDay) {
+        for (int day = startDay; day <= endDay; day++) {
+            BitSet bits = days.get(day);
+            if (bits == null) continue;
+            bits.clear(roomId);
+            if (bits.isEmpty()) days.remove(day); // Não guarda dias sem ocupação
+        }
+    }
+
+    public boolean isOccupied(int roomId, int day) {
+        BitSet bits = days.get(day);
+        return bits != null && bits.get(roomId);
+    }
+
+    // Quartos ocupados no dia indicado (cópia, pode ser alterada pelo chamador)
+    public BitSet occupiedOn(int day) {
+        BitSet bits = days.get(day);
+        return bits == null ? new BitSet() : (BitSet) bits.clone();
+    }
+
+    // Quartos existentes que estão livres no dia indicado
+    public BitSet freeOn(int day) {
+        return freeDuring(day, day);
+    }
+
+    // Quartos existentes livres durante todo o intervalo [startDay, endDay]:
+    // interseção (AND) dos conjuntos de quartos livres de cada dia.
+    public BitSet freeDuring(int startDay, int endDay) {
+        return freeDuring(rooms, startDay, endDay);
+    }
+
+    // Os quartos de candidates (ex.: os de uma dada capacidade) que estão livres durante todo o intervalo.
+    // candidates não é alterado.
+    public BitSet freeDuring(BitSet candidates, int startDay, int endDay) {
+        BitSet free = (BitSet) candidates.clone();
+        free.and(rooms);
+        for (int day = startDay; day <= endDay && !free.isEmpty(); day++) {
+            BitSet bits = days.get(day);
+            if (bits != null) free.andNot(bits);
+        }
+        return free;
+    }
+}
@@ -1,30 +1,44 @@
 import java.time.LocalDate;
 
+// Datas guardadas como dias desde 1970-01-01 (ver EpochDay); getStartDate/getEndDate criam o LocalDate só quando é pedido
 public class Reservation {
     private final int id;
     private final int roomId;
     private final int guestId;
     private final int numberOfGuests;
-    private final LocalDate startDate;
-    private final LocalDate endDate;
+    private final int startDay;
+    private final int endDay;
+    private final int groupId; // Id do grupo (o da primeira reserva do grupo), 0 se for individual
     private boolean active;
 
-    public Reservation(int id, int roomId, int guestId, int numberOfGuests, LocalDate startDate, LocalDate endDate) {
+    public Reservation(int id, int roomId, int guestId, int numberOfGuests, int startDay, int endDay) {
+        this(id, roomId, guestId, numberOfGuests, startDay, endDay, 0);
+    }
+
+    public Reservation(int id, int roomId, int guestId, int numberOfGuests, int startDay, int endDay, int groupId) {
         this.id = id;
         this.roomId = roomId;
         this.guestId = guestId;
         this.numberOfGuests = numberOfGuests;
-        this.startDate = startDate;
-        this.endDate = endDate;
+        this.startDay = startDay;
+        this.endDay = endDay;
+        this.groupId = groupId;
         this.active = true;
     }
 
+    public Reservation(int id, int roomId, int guestId, int numberOfGuests, LocalDate startDate, LocalDate endDate) {
+        this(id, roomId, guestId, numberOfGuests, EpochDay.of(startDate), EpochDay.of(endDate));
+    }
+
     public int getId() { return id; }
     public int getRoomId() { return roomId; }
     public int getGuestId() { return guestId; }
     public int getNumberOfGuests() { return numberOfGuests; }
-    public LocalDate getStartDate() { return startDate; }
-    public LocalDate getEndDate() { return endDate; }
+    public int getStartDay() { return startDay; }
+    public int getEndDay() { return endDay; }
+    public int getGroupId() { return groupId; }
+    public LocalDate getStartDate() { return EpochDay.toLocalDate(startDay); }
+    public LocalDate getEndDate() { return EpochDay.toLocalDate(endDay); }
     public boolean isActive() { return active; }
 
     public void cancel() { this.active = false; }
@@ -35,9 +49,10 @@ public class Reservation {
                 ", roomId=" + roomId +
                 ", guestId=" + guestId +
                 ", guests=" + numberOfGuests +
-                ", start=" + startDate +
-                ", end=" + endDate +
+                ", start=" + EpochDay.format(startDay) +
+                ", end=" + EpochDay.format(endDay) +
                 ", active=" + active +
+                (groupId != 0 ? ", group=" + groupId : "") +
                 '}';
     }
 }
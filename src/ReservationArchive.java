@@ -0,0 +1,269 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Arquivo das reservas antigas e canceladas (armazenamento frio), fora das tabelas em memória e do reservas.csv.
+// Um ficheiro comprimido por mês de check-out (arquivo/reservas-AAAA-MM.csv.gz), no formato do reservas.csv sem cabeçalho
+// (as linhas arquivadas antes das reservas de grupo não têm a coluna groupId).
+// Cada arquivamento acrescenta um novo bloco gzip ao fim do ficheiro do mês (o GZIPInputStream lê os blocos seguidos).
+// O índice (arquivo/indice.csv) guarda por mês o número de reservas, o menor e o maior id e o tamanho do ficheiro;
+// é lido no arranque e permite procurar uma reserva por id abrindo só os meses que a podem conter.
+// Os meses só são descomprimidos quando são consultados e ficam em cache (SoftReference: o GC pode libertá-los).
+public class ReservationArchive {
+
+    static final String DIRECTORY = "arquivo";
+    static final String INDEX_FILE = "indice.csv";
+
+    // Entrada do índice de um mês
+    private static final class Segment {
+        int count;
+        int minId = Integer.MAX_VALUE;
+        int maxId = Integer.MIN_VALUE;
+        long bytes;
+        SoftReference<ReservationStore> cache;
+    }
+
+    private final File dir;
+    private final TreeMap<YearMonth, Segment> segments = new TreeMap<>();
+
+    public ReservationArchive(File dataDir) {
+        this.dir = new File(dataDir, DIRECTORY);
+    }
+
+    // Lê o índice. Meses sem entrada ou com tamanho diferente do registado (ex.: escrita interrompida
+    // depois de acrescentar ao ficheiro) são lidos de novo para corrigir o índice.
+    public synchronized void open() {
+        segments.clear();
+        File[] files = dir.listFiles((d, name) -> name.startsWith("reservas-") && name.endsWith(".csv.gz"));
+        if (files == null) return;
+
+        HashMap<YearMonth, Segment> indexed = readIndex();
+        boolean changed = false;
+        for (File f : files) {
+            YearMonth month;
+            try {
+                month = YearMonth.parse(f.getName().substring(9, 16));
+            } catch (RuntimeException e) {
+                continue;
+            }
+            Segment s = indexed.get(month);
+            if (s == null || s.bytes != f.length()) {
+                s = new Segment();
+                s.bytes = f.length();
+                ReservationStore rows = readSegment(f);
+                for (int i = 0; i < rows.size(); i++) include(s, rows.id(i));
+                changed = true;
+            }
+            segments.put(month, s);
+        }
+        if (changed || indexed.size() != segments.size()) writeIndexQuietly();
+    }
+
+    // Acrescenta as reservas ao ficheiro do mês de check-out de cada uma e atualiza o índice.
+    // Os ficheiros são sincronizados com o disco antes de retornar.
+    public synchronized void append(ReservationStore rows) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Não foi possível criar " + dir);
+
+        TreeMap<YearMonth, List<Integer>> byMonth = new TreeMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            byMonth.computeIfAbsent(month(rows.endDay(i)), m -> new ArrayList<>()).add(i);
+        }
+        for (var entry : byMonth.entrySet()) {
+            File f = segmentFile(entry.getKey());
+            Segment s = segments.computeIfAbsent(entry.getKey(), m -> new Segment());
+            try (FileOutputStream file = new FileOutputStream(f, true)) {
+                GZIPOutputStream gzip = new GZIPOutputStream(file, 1 << 16);
+                Writer out = new OutputStreamWriter(gzip, StandardCharsets.UTF_8);
+                StringBuilder line = new StringBuilder(64);
+                for (int i : entry.getValue()) {
+                    line.setLength(0);
+                    out.append(rows.appendCsv(line, i).append('\n'));
+                    include(s, rows.id(i));
+                }
+                out.flush();
+                gzip.finish();
+                file.getFD().sync();
+            }
+            s.bytes = f.length();
+            s.cache = null;
+        }
+        writeIndex();
+    }
+
+    // Maior id arquivado (0 se o arquivo estiver vazio), para o motor nunca reutilizar ids
+    public synchronized int maxId() {
+        int max = 0;
+        for (Segment s : segments.values()) max = Math.max(max, s.maxId);
+        return max;
+    }
+
+    public synchronized long count() {
+        long n = 0;
+        for (Segment s : segments.values()) n += s.count;
+        return n;
+    }
+
+    public synchronized long fileBytes() {
+        long n = 0;
+        for (Segment s : segments.values()) n += s.bytes;
+        return n;
+    }
+
+    // Procura uma reserva arquivada por id: só abre os meses cujo intervalo de ids a pode conter, dos mais recentes para os mais antigos
+    public synchronized Reservation find(int id) {
+        for (var entry : segments.descendingMap().entrySet()) {
+            Segment s = entry.getValue();
+            if (id < s.minId || id > s.maxId) continue;
+            ReservationStore rows = load(entry.getKey(), s);
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.id(i) == id) return rows.toReservation(i);
+            }
+        }
+        return null;
+    }
+
+    // Reservas de rows que ainda não estão no arquivo (procuradas só no mês de check-out de cada uma)
+    public synchronized ReservationStore notArchived(ReservationStore rows) {
+        ReservationStore missing = new ReservationStore();
+        HashMap<YearMonth, IntIntMap> idsByMonth = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            IntIntMap ids = idsByMonth.computeIfAbsent(month(rows.endDay(i)), m -> {
+                IntIntMap map = new IntIntMap();
+                Segment s = segments.get(m);
+                if (s == null) return map;
+                ReservationStore archived = load(m, s);
+                for (int j = 0; j < archived.size(); j++) map.put(archived.id(j), j);
+                return map;
+            });
+            if (ids.get(rows.id(i)) < 0) {
+                missing.add(rows.id(i), rows.roomId(i), rows.guestId(i), rows.numberOfGuests(i), rows.startDay(i), rows.endDay(i), rows.isActive(i), rows.groupId(i));
+            }
+        }
+        return missing;
+    }
+
+    // Reservas arquivadas com check-out em [from, to], mês a mês
+    public void forEach(LocalDate from, LocalDate to, Consumer<Reservation> action) {
+        int fromDay = EpochDay.of(from);
+        int toDay = EpochDay.of(to);
+        if (fromDay > toDay) return;
+        ArrayList<Reservation> found = new ArrayList<>();
+        synchronized (this) {
+            for (var entry : segments.subMap(YearMonth.from(from), true, YearMonth.from(to), true).entrySet()) {
+                ReservationStore rows = load(entry.getKey(), entry.getValue());
+                for (int i = 0; i < rows.size(); i++) {
+                    if (rows.endDay(i) >= fromDay && rows.endDay(i) <= toDay) found.add(rows.toReservation(i));
+                }
+            }
+        }
+        found.forEach(action);
+    }
+
+    // Conteúdo de um mês, da cache ou do ficheiro
+    private ReservationStore load(YearMonth month, Segment s) {
+        ReservationStore rows = s.cache == null ? null : s.cache.get();
+        if (rows == null) {
+            rows = readSegment(segmentFile(month));
+            s.cache = new SoftReference<>(rows);
+        }
+        return rows;
+    }
+
+    // Lê um ficheiro do arquivo. Ids repetidos (arquivamento repetido depois de uma falha) só contam uma vez.
+    private static ReservationStore readSegment(File f) {
+        ReservationStore rows = new ReservationStore();
+        IntIntMap seen = new IntIntMap();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(f), 1 << 16), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] p = line.split(",");
+                if (p.length < 7) continue;
+                try {
+                    int id = Integer.parseInt(p[0]);
+                    if (seen.get(id) >= 0) continue;
+                    seen.put(id, rows.add(id, Integer.parseInt(p[1]), Integer.parseInt(p[2]), Integer.parseInt(p[3]),
+                            EpochDay.parse(p[4]), EpochDay.parse(p[5]), Boolean.parseBoolean(p[6]), p.length > 7 ? Integer.parseInt(p[7]) : 0));
+                } catch (RuntimeException ignore) { // Linha incompleta
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Erro ao ler o arquivo " + f.getName() + ": " + e.getMessage());
+        }
+        return rows;
+    }
+
+    private static void include(Segment s, int id) {
+        s.count++;
+        s.minId = Math.min(s.minId, id);
+        s.maxId = Math.max(s.maxId, id);
+    }
+
+    private File segmentFile(YearMonth month) {
+        return new File(dir, "reservas-" + month + ".csv.gz");
+    }
+
+    private static YearMonth month(int epochDay) {
+        return YearMonth.from(EpochDay.toLocalDate(epochDay));
+    }
+
+    private HashMap<YearMonth, Segment> readIndex() {
+        HashMap<YearMonth, Segment> indexed = new HashMap<>();
+        File f = new File(dir, INDEX_FILE);
+        if (!f.exists()) return indexed;
+        try {
+            List<String> lines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+            for (int i = 1; i < lines.size(); i++) {
+                String[] p = lines.get(i).split(",");
+                if (p.length < 5) continue;
+                Segment s = new Segment();
+                s.count = Integer.parseInt(p[1]);
+                s.minId = Integer.parseInt(p[2]);
+                s.maxId = Integer.parseInt(p[3]);
+                s.bytes = Long.parseLong(p[4]);
+                indexed.put(YearMonth.parse(p[0]), s);
+            }
+        } catch (IOException | RuntimeException e) { // Índice ilegível: é reconstruído a partir dos ficheiros
+            indexed.clear();
+        }
+        return indexed;
+    }
+
+    private void writeIndex() throws IOException {
+        File tmp = new File(dir, INDEX_FILE + ".tmp");
+        try (PrintWriter pw = new PrintWriter(tmp, StandardCharsets.UTF_8)) {
+            pw.println("month,count,minId,maxId,bytes");
+            for (var entry : segments.entrySet()) {
+                Segment s = entry.getValue();
+                pw.println(entry.getKey() + "," + s.count + "," + s.minId + "," + s.maxId + "," + s.bytes);
+            }
+        }
+        Files.move(tmp.toPath(), new File(dir, INDEX_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeIndexQuietly() {
+        try {
+            writeIndex();
+        } catch (IOException e) {
+            System.out.println("Erro ao guardar o índice do arquivo: " + e.getMessage());
+        }
+    }
+}
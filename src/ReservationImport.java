@@ -0,0 +1,167 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+// Importação de reservas em lote a partir de um ficheiro CSV ou JSONL (um objeto JSON por linha).
+// CSV: cabeçalho opcional com as colunas roomId,guestId,numberOfGuests,startDate,endDate (por qualquer ordem;
+// sem cabeçalho é esta a ordem). JSONL: as mesmas chaves do POST /reservations, ex.:
+//   {"roomId": 12, "guestId": 40, "numberOfGuests": 2, "startDate": "2026-07-01", "endDate": "2026-07-05"}
+// As linhas são lidas para um ReservationStore (na coluna id fica o número da linha no ficheiro) e entregues
+// ao HotelEngine.importReservations de uma só vez. O relatório tem um resultado por linha, pela ordem do ficheiro.
+public class ReservationImport {
+
+    private static final String[] COLUMNS = {"roomId", "guestId", "numberOfGuests", "startDate", "endDate"};
+
+    private final ReservationStore rows = new ReservationStore();
+    private final IntList invalidLines = new IntList(); // Linhas que não puderam ser lidas
+    private Result[] results = new Result[0];
+
+    // Lê o ficheiro; .jsonl, .ndjson e .json são lidos como JSONL, o resto como CSV
+    public static ReservationImport read(File f) throws IOException {
+        List<String> lines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+        String name = f.getName().toLowerCase();
+        boolean jsonl = name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json");
+        return parse(lines, jsonl);
+    }
+
+    public static ReservationImport parse(List<String> lines, boolean jsonl) {
+        ReservationImport batch = new ReservationImport();
+        if (jsonl) batch.parseJsonLines(lines);
+        else batch.parseCsv(lines);
+        return batch;
+    }
+
+    private void parseJsonLines(List<String> lines) {
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty()) continue;
+            int lineNumber = i + 1;
+            try {
+                Map<String, String> p = Json.parseObject(line);
+                String[] fields = new String[COLUMNS.length];
+                for (int c = 0; c < COLUMNS.length; c++) fields[c] = p.get(COLUMNS[c]);
+                addRow(lineNumber, fields);
+            } catch (RuntimeException e) {
+                invalidLines.add(lineNumber);
+            }
+        }
+    }
+
+    private void parseCsv(List<String> lines) {
+        int[] column = {0, 1, 2, 3, 4}; // Posição de cada campo de COLUMNS na linha
+        int first = 0;
+        while (first < lines.size() && lines.get(first).isBlank()) first++;
+        if (first < lines.size() && isHeader(lines.get(first))) {
+            String[] header = HotelEngine.splitCsvLine(lines.get(first));
+            for (int c = 0; c < COLUMNS.length; c++) {
+                column[c] = -1;
+                for (int h = 0; h < header.length; h++) {
+                    if (header[h].trim().equalsIgnoreCase(COLUMNS[c])) column[c] = h;
+                }
+            }
+            first++;
+        }
+
+        for (int i = first; i < lines.size(); i++) {
+            if (lines.get(i).isBlank()) continue;
+            String[] p = HotelEngine.splitCsvLine(lines.get(i));
+            String[] fields = new String[COLUMNS.length];
+            for (int c = 0; c < COLUMNS.length; c++) fields[c] = column[c] >= 0 && column[c] < p.length ? p[column[c]] : null;
+            try {
+                addRow(i + 1, fields);
+            } catch (RuntimeException e) {
+                invalidLines.add(i + 1);
+            }
+        }
+    }
+
+    // A primeira linha é cabeçalho se o primeiro campo não for um número
+    private static boolean isHeader(String line) {
+        String[] p = HotelEngine.splitCsvLine(line);
+        try {
+            Integer.parseInt(p[0].trim());
+            return false;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    // Lança uma exceção (NumberFormatException, DateTimeParseException, NullPointerException) se faltar ou for inválido algum campo
+    private void addRow(int lineNumber, String[] f) {
+        rows.add(lineNumber, Integer.parseInt(f[0].trim()), Integer.parseInt(f[1].trim()), Integer.parseInt(f[2].trim()),
+                EpochDay.parse(f[3].trim()), EpochDay.parse(f[4].trim()), true);
+    }
+
+    // Entrega as linhas válidas ao motor (todas de uma vez)
+    public void run(HotelEngine engine) {
+        results = engine.importReservations(rows);
+    }
+
+    public int size() { return rows.size() + invalidLines.size(); }
+
+    public int accepted() {
+        int n = 0;
+        for (Result r : results) if (r.isOk()) n++;
+        return n;
+    }
+
+    public int rejected() { return size() - accepted(); }
+
+    // Relatório por linha, pela ordem do ficheiro: line,status,reservationId,roomId,guestId,startDate,endDate
+    public void writeReport(PrintWriter pw) {
+        pw.println("line,status,reservationId,roomId,guestId,startDate,endDate");
+        forEachResult((line, row, r) -> {
+            if (row < 0) {
+                pw.println(line + "," + r.getCode() + ",,,,,");
+                return;
+            }
+            StringBuilder sb = new StringBuilder().append(line).append(',').append(r.getCode()).append(',');
+            if (r.getId() >= 0) sb.append(r.getId());
+            sb.append(',').append(rows.roomId(row)).append(',').append(rows.guestId(row)).append(',');
+            EpochDay.append(sb, rows.startDay(row)).append(',');
+            pw.println(EpochDay.append(sb, rows.endDay(row)));
+        });
+    }
+
+    public void writeReport(File f) throws IOException {
+        try (PrintWriter pw = new PrintWriter(f, StandardCharsets.UTF_8)) {
+            writeReport(pw);
+            if (pw.checkError()) throw new IOException("falha ao escrever " + f);
+        }
+    }
+
+    // Relatório em JSON (para o HTTP): {"accepted":N,"rejected":M,"results":[{"line":..,"ok":..,"id"|"error":..}, ...]}
+    public String reportJson() {
+        StringBuilder sb = new StringBuilder("{\"accepted\":").append(accepted()).append(",\"rejected\":").append(rejected()).append(",\"results\":[");
+        boolean[] first = {true};
+        forEachResult((line, row, r) -> {
+            if (!first[0]) sb.append(',');
+            first[0] = false;
+            sb.append("{\"line\":").append(line).append(",\"ok\":").append(r.isOk());
+            if (r.isOk()) sb.append(",\"id\":").append(r.getId());
+            else sb.append(",\"error\":\"").append(r.getCode()).append('"');
+            sb.append('}');
+        });
+        return sb.append("]}").toString();
+    }
+
+    private interface ResultAction {
+        void accept(int line, int row, Result result); // row = -1 para linhas ilegíveis
+    }
+
+    // Junta as linhas lidas e as ilegíveis pela ordem do ficheiro (as duas listas já estão ordenadas)
+    private void forEachResult(ResultAction action) {
+        int invalid = 0;
+        for (int row = 0; row <= rows.size(); row++) {
+            int line = row < rows.size() ? rows.id(row) : Integer.MAX_VALUE;
+            while (invalid < invalidLines.size() && invalidLines.get(invalid) < line) {
+                action.accept(invalidLines.get(invalid++), -1, Result.of(Result.Code.INVALID_FORMAT));
+            }
+            if (row < rows.size() && row < results.length) action.accept(line, row, results[row]);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Armazenamento das reservas por colunas (struct-of-arrays): um array de int por campo,
+// datas em dias desde 1970-01-01 e um bitset para o estado ativo.
+// Cerca de 24 bytes por reserva, sem cabeçalhos de objeto nem LocalDate; cresce conforme necessário.
+// Os objetos Reservation só são criados quando são precisos (ex.: para mostrar ao utilizador).
+public class ReservationStore {
+
+    private int[] ids;
+    private int[] roomIds;
+    private int[] guestIds;
+    private int[] guestCounts;
+    private int[] startDays;
+    private int[] endDays;
+    private int[] groupIds; // 0 = reserva individual
+    private final BitSet active = new BitSet();
+    private final BitSet autoAssigned = new BitSet(); // Quarto escolhido pelo motor (assignRooms), não pelo hóspede
+    private int size = 0;
+
+    public ReservationStore() {
+        this(64);
+    }
+
+    public ReservationStore(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        ids = new int[capacity];
+        roomIds = new int[capacity];
+        guestIds = new int[capacity];
+        guestCounts = new int[capacity];
+        startDays = new int[capacity];
+        endDays = new int[capacity];
+        groupIds = new int[capacity];
+    }
+
+    public int size() { return size; }
+
+    // Acrescenta uma reserva e retorna a linha onde ficou guardada
+    public int add(int id, int roomId, int guestId, int numberOfGuests, int startDay, int endDay, boolean isActive) {
+        return add(id, roomId, guestId, numberOfGuests, startDay, endDay, isActive, 0);
+    }
+
+    public int add(int id, int roomId, int guestId, int numberOfGuests, int startDay, int endDay, boolean isActive, int groupId) {
+        if (size == ids.length) grow();
+        int row = size++;
+        ids[row] = id;
+        roomIds[row] = roomId;
+        guestIds[row] = guestId;
+        guestCounts[row] = numberOfGuests;
+        startDays[row] = startDay;
+        endDays[row] = endDay;
+        groupIds[row] = groupId;
+        active.set(row, isActive);
+        autoAssigned.clear(row);
+        return row;
+    }
+
+    public int id(int row) { return ids[row]; }
+    public int roomId(int row) { return roomIds[row]; }
+    public int guestId(int row) { return guestIds[row]; }
+    public int numberOfGuests(int row) { return guestCounts[row]; }
+    public int startDay(int row) { return startDays[row]; }
+    public int endDay(int row) { return endDays[row]; }
+    public int groupId(int row) { return groupIds[row]; }
+    public boolean isActive(int row) { return active.get(row); }
+
+    public void setActive(int row, boolean isActive) { active.set(row, isActive); }
+
+    // Só as reservas com o quarto atribuído pelo motor podem mudar de quarto na reotimização (ver HotelEngine.optimizeAssignments)
+    public boolean isAutoAssigned(int row) { return autoAssigned.get(row); }
+
+    public void setAutoAssigned(int row, boolean value) { autoAssigned.set(row, value); }
+
+    public void setRoomId(int row, int roomId) { roomIds[row] = roomId; }
+
+    public int activeCount() { return active.cardinality(); }
+
+    // Quarto e dia numa só chave long (quarto << 32 | dia): ordenar as chaves ordena por quarto e depois por data.
+    // O bit de sinal do dia é trocado (dia ^ 0x80000000), para as datas antes de 1970 ficarem também por ordem.
+    static long roomDayKey(int roomId, int day) {
+        return ((long) roomId << 32) | ((day ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    public long roomStartKey(int row) { return roomDayKey(roomIds[row], startDays[row]); }
+
+    // Linha no formato do reservas.csv (id,roomId,guestId,numberOfGuests,startDate,endDate,active,groupId,autoAssigned), sem criar LocalDate
+    public StringBuilder appendCsv(StringBuilder sb, int row) {
+        sb.append(ids[row]).append(',').append(roomIds[row]).append(',').append(guestIds[row]).append(',').append(guestCounts[row]).append(',');
+        EpochDay.append(sb, startDays[row]).append(',');
+        return EpochDay.append(sb, endDays[row]).append(',').append(active.get(row)).append(',').append(groupIds[row]).append(',').append(autoAssigned.get(row));
+    }
+
+    // Cria um objeto Reservation com os dados da linha (cópia, não reflete alterações posteriores)
+    public Reservation toReservation(int row) {
+        Reservation r = new Reservation(ids[row], roomIds[row], guestIds[row], guestCounts[row], startDays[row], endDays[row], groupIds[row]);
+        if (!active.get(row)) r.cancel();
+        return r;
+    }
+
+    // Cópia independente (ex.: para gravar em segundo plano enquanto as reservas continuam a mudar)
+    public ReservationStore copy() {
+        ReservationStore c = new ReservationStore(size);
+        System.arraycopy(ids, 0, c.ids, 0, size);
+        System.arraycopy(roomIds, 0, c.roomIds, 0, size);
+        System.arraycopy(guestIds, 0, c.guestIds, 0, size);
+        System.arraycopy(guestCounts, 0, c.guestCounts, 0, size);
+        System.arraycopy(startDays, 0, c.startDays, 0, size);
+        System.arraycopy(endDays, 0, c.endDays, 0, size);
+        System.arraycopy(groupIds, 0, c.groupIds, 0, size);
+        c.active.or(active);
+        c.autoAssigned.or(autoAssigned);
+        c.size = size;
+        return c;
+    }
+
+    public void clear() {
+        size = 0;
+        active.clear();
+        autoAssigned.clear();
+    }
+
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        roomIds = Arrays.copyOf(roomIds, capacity);
+        guestIds = Arrays.copyOf(guestIds, capacity);
+        guestCounts = Arrays.copyOf(guestCounts, capacity);
+        startDays = Arrays.copyOf(startDays, capacity);
+        endDays = Arrays.copyOf(endDays, capacity);
+        groupIds = Arrays.copyOf(groupIds, capacity);
+    }
+}
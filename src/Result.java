@@ -0,0 +1,52 @@
+// Resultado de uma operação do HotelEngine: um código e, quando a operação cria um registo, o id atribuído.
+public class Result {
+
+    public enum Code {
+        OK,
+        ROOM_NOT_FOUND,
+        GUEST_NOT_FOUND,
+        RESERVATION_NOT_FOUND,
+        INVALID_CAPACITY,       // Capacidade do quarto fora de 1..6
+        INVALID_GUEST_COUNT,    // Número de hóspedes fora de 1..capacidade do quarto
+        INVALID_DATES,          // Check-in depois do check-out ou estadia com mais de hotel.maxStayDays (na lista de espera, também check-in no passado)
+        CONFLICT,               // Quarto já reservado para as datas pedidas
+        ALREADY_CANCELLED,
+        HAS_ACTIVE_RESERVATIONS, // Quarto ou hóspede com reservas ativas não pode ser removido
+        DUPLICATE_DOCUMENT,     // Já existe um hóspede com o mesmo tipo e número de documento
+        INVALID_FORMAT,         // Linha de um ficheiro de importação que não pôde ser lida
+        NOT_ENOUGH_ROOMS,       // Reserva de grupo: não há quartos livres suficientes com a capacidade pedida
+        ROOMS_AVAILABLE,        // Lista de espera: há quartos livres para as datas pedidas, basta reservar
+        NOT_ON_WAITLIST,        // Pedido da lista de espera inexistente
+        NO_OFFER                // Pedido da lista de espera sem quarto oferecido (ou já reservado)
+    }
+
+    // Resultados sem id são partilhados (a classe é imutável)
+    private static final Result[] BY_CODE = new Result[Code.values().length];
+
+    static {
+        for (Code code : Code.values()) BY_CODE[code.ordinal()] = new Result(code, -1);
+    }
+
+    private final Code code;
+    private final int id;
+
+    private Result(Code code, int id) {
+        this.code = code;
+        this.id = id;
+    }
+
+    static Result ok(int id) { return new Result(Code.OK, id); }
+
+    static Result ok() { return BY_CODE[Code.OK.ordinal()]; }
+
+    static Result of(Code code) { return BY_CODE[code.ordinal()]; }
+
+    public Code getCode() { return code; }
+    public int getId() { return id; } // -1 se a operação não criou nenhum registo
+    public boolean isOk() { return code == Code.OK; }
+
+    @Override
+    public String toString() {
+        return id < 0 ? code.toString() : code + " (" + id + ")";
+    }
+}
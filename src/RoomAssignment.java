@@ -0,0 +1,380 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+// Atribuição de quartos a pedidos do tipo "um quarto para N hóspedes nestas datas" (sem número de quarto).
+// Objetivo: ocupar os quartos com o mínimo de fragmentação, isto é, com as estadias de cada quarto seguidas
+// e sem intervalos livres de 1 ou 2 dias entre elas (que dificilmente se vendem).
+//
+// 1. Guloso por grupo de capacidade: os pedidos são percorridos por data de fim (a mais cedo primeiro) e cada um
+//    vai para o grupo de capacidade mais justa que tenha um quarto livre; dentro do grupo, para a janela livre que
+//    começa mais perto do check-in (a que deixa o menor intervalo antes da estadia). Cada grupo é um TreeSet de chaves
+//    (início da janela << 32 | janela), por isso cada pedido custa O(log janelas). Uma janela que acaba antes do
+//    check-out do pedido já não serve a nenhum dos seguintes (acabam todos mais tarde) e sai do grupo.
+// 2. Melhoria local: parte da atribuição atual (ou da do guloso) e muda uma estadia para outro quarto da mesma
+//    capacidade quando isso reduz o custo dos intervalos (ver gapCost) em mais do que MOVE_COST por cada estadia que
+//    deixa o seu quarto original. Só são tentados os quartos onde a estadia encostaria a outra (uma estadia que
+//    acaba na véspera do check-in ou começa no dia a seguir ao check-out), encontrados por dois mapas por dia.
+//
+// Mudar um hóspede de quarto tem um custo (avisos, limpeza, planeamento da receção), por isso um plano só é
+// aplicado se o ganho líquido (custo poupado menos MOVE_COST por estadia mudada) chegar a MIN_GAIN_PERCENT do
+// custo atual (ver isImprovement).
+//
+// Além dos pedidos, cada quarto pode ter estadias fixas (em curso, com quarto escolhido pelo hóspede, de grupo...),
+// que nunca mudam de quarto: o guloso só usa as janelas livres entre elas, e as duas fases contam os intervalos
+// junto delas. Internamente são os itens size()..size()+fixas-1, a seguir aos pedidos.
+// Os índices de quartos e pedidos são posições nos arrays recebidos; roomOf devolve o id do quarto.
+public class RoomAssignment {
+
+    static final int SHORT_GAP = Integer.getInteger("hotel.assign.shortGap", 2); // Intervalos de 1..N dias livres são "curtos"
+    static final int SHORT_GAP_COST = 10;
+    static final int GAP_COST = 1;
+    static final int MOVE_COST = Integer.getInteger("hotel.assign.moveCost", 3); // Por estadia fora do quarto original
+    static final int MIN_GAIN_PERCENT = Integer.getInteger("hotel.assign.minGainPercent", 1);
+
+    // Extremos abertos (sem estadia antes ou depois)
+    static final int OPEN_END = Integer.MIN_VALUE;
+    static final int OPEN_START = Integer.MAX_VALUE;
+
+    // Quartos
+    private final int[] roomIds;
+    private final int[] capacities;
+
+    // Pedidos (0..count-1) seguidos das estadias fixas
+    private final int count;
+    private final int[] guests;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] original; // Quarto atual de cada pedido (-1 = sem quarto)
+    private final int[] room;     // Quarto atribuído (-1 = não coube)
+
+    // Estadias de cada quarto por ordem de data: lista ligada (first por quarto, prev/next por item)
+    private final int[] first;
+    private final int[] prev;
+    private final int[] next;
+
+    private long originalScore;
+    private long score;
+    private int originalShortGaps;
+    private int shortGaps;
+    private int gaps;
+
+    // fixedRooms/fixedStarts/fixedEnds: estadias fixas (índice do quarto e datas), que não se podem sobrepor
+    RoomAssignment(int[] roomIds, int[] capacities, int[] fixedRooms, int[] fixedStarts, int[] fixedEnds,
+                   int[] guests, int[] starts, int[] ends, int[] original) {
+        this.roomIds = roomIds;
+        this.capacities = capacities;
+        this.count = guests.length;
+        this.guests = guests;
+        this.starts = concat(starts, fixedStarts);
+        this.ends = concat(ends, fixedEnds);
+        this.original = original;
+        room = concat(original, fixedRooms);
+        first = new int[roomIds.length];
+        prev = new int[room.length];
+        next = new int[room.length];
+
+        link();
+        originalScore = score;
+        originalShortGaps = shortGaps;
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] c = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, c, a.length, b.length);
+        return c;
+    }
+
+    // Custo do intervalo livre entre uma estadia que acaba em prevEnd e a seguinte, que começa em nextStart.
+    // Estadias seguidas: 0; intervalo curto: SHORT_GAP_COST; intervalo maior ou extremo aberto: GAP_COST;
+    // quarto vazio (os dois extremos abertos): 0.
+    static int gapCost(int prevEnd, int nextStart) {
+        if (prevEnd == OPEN_END) return nextStart == OPEN_START ? 0 : GAP_COST;
+        if (nextStart == OPEN_START) return GAP_COST;
+        int gap = nextStart - prevEnd - 1;
+        if (gap <= 0) return 0;
+        return gap <= SHORT_GAP ? SHORT_GAP_COST : GAP_COST;
+    }
+
+    // Variação do custo ao pôr a estadia [start, end] entre prevEnd e nextStart
+    static int insertCost(int prevEnd, int start, int end, int nextStart) {
+        return gapCost(prevEnd, start) + gapCost(end, nextStart) - gapCost(prevEnd, nextStart);
+    }
+
+    // ---- Guloso ----
+
+    public void assignGreedy() {
+        // Janelas livres de cada quarto: antes, entre e depois das estadias fixas (por ordem de check-in)
+        IntList windowRooms = new IntList();
+        IntList windowEnds = new IntList();
+        List<TreeSet<Long>> buckets = new ArrayList<>();
+        for (int c = 0; c <= HotelEngine.MAX_CAPACITY; c++) buckets.add(new TreeSet<>());
+        int[] lastEnd = new int[roomIds.length];
+        Arrays.fill(lastEnd, OPEN_END);
+        for (long key : byStart(count, room.length)) {
+            int f = (int) key;
+            int r = room[f];
+            addWindow(buckets, windowRooms, windowEnds, r, lastEnd[r], starts[f] - 1);
+            lastEnd[r] = ends[f];
+        }
+        for (int r = 0; r < roomIds.length; r++) addWindow(buckets, windowRooms, windowEnds, r, lastEnd[r], OPEN_START);
+
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) order[i] = ((long) ends[i] << 32) | i;
+        Arrays.sort(order);
+
+        Arrays.fill(room, 0, count, -1);
+        for (long key : order) {
+            int i = (int) key;
+            for (int c = Math.max(guests[i], HotelEngine.MIN_CAPACITY); c <= HotelEngine.MAX_CAPACITY && room[i] < 0; c++) {
+                TreeSet<Long> bucket = buckets.get(c);
+                long limit = ((long) starts[i] << 32) | 0xFFFFFFFFL; // Livre mais tarde, mas até ao check-in
+                for (Long free = bucket.floor(limit); free != null; free = bucket.floor(limit)) {
+                    int w = (int) (long) free;
+                    bucket.remove(free);
+                    if (windowEnds.get(w) < ends[i]) continue; // Curta demais para este pedido e para os seguintes
+                    if (ends[i] < windowEnds.get(w)) bucket.add(windowKey(ends[i] + 1, w));
+                    room[i] = windowRooms.get(w);
+                    break;
+                }
+            }
+        }
+        link();
+    }
+
+    // Janela livre do quarto r depois de prevEnd e até end (inclusive), se não for vazia
+    private void addWindow(List<TreeSet<Long>> buckets, IntList windowRooms, IntList windowEnds, int r, int prevEnd, int end) {
+        if (prevEnd != OPEN_END && prevEnd >= end) return;
+        int w = windowRooms.size();
+        windowRooms.add(r);
+        windowEnds.add(end);
+        buckets.get(capacities[r]).add(windowKey(prevEnd == OPEN_END ? OPEN_END : prevEnd + 1, w));
+    }
+
+    private static long windowKey(int day, int w) {
+        return ((long) day << 32) | w;
+    }
+
+    // Itens from..to-1 por ordem de check-in, como chaves (início << 32 | item)
+    private long[] byStart(int from, int to) {
+        long[] order = new long[to - from];
+        for (int i = from; i < to; i++) order[i - from] = ((long) starts[i] << 32) | i;
+        Arrays.sort(order);
+        return order;
+    }
+
+    // ---- Melhoria local ----
+
+    public void improve() {
+        // Pedidos e estadias fixas por capacidade e dia de fim / de início
+        HashMap<Long, IntList> endingOn = new HashMap<>();
+        HashMap<Long, IntList> startingOn = new HashMap<>();
+        for (int i = 0; i < room.length; i++) {
+            if (room[i] < 0) continue;
+            listAt(endingOn, capacities[room[i]], ends[i]).add(i);
+            listAt(startingOn, capacities[room[i]], starts[i]).add(i);
+        }
+
+        // Lista de trabalho: primeiro todos os pedidos (por check-in); depois de cada mudança, só os que podem ter
+        // ganho uma mudança melhor (vizinhos antigos e novos, e os que encostam ao intervalo que ficou livre).
+        // As estadias fixas nunca entram na lista. Cada mudança baixa o custo com as mudanças (score + MOVE_COST por
+        // estadia mudada, um inteiro >= 0), por isso o ciclo termina.
+        long[] order = byStart(0, count);
+        IntList work = new IntList(order.length);
+        boolean[] queued = new boolean[count];
+        for (int k = order.length - 1; k >= 0; k--) enqueue(work, queued, (int) order[k]);
+
+        while (!work.isEmpty()) {
+            int i = work.removeLast();
+            queued[i] = false;
+            if (room[i] < 0) continue;
+            int a = room[i];
+            int oldPrev = prev[i];
+            int oldNext = next[i];
+            if (!relocate(i, endingOn, startingOn)) continue;
+
+            enqueue(work, queued, i);
+            enqueue(work, queued, oldPrev);
+            enqueue(work, queued, oldNext);
+            enqueue(work, queued, prev[i]);
+            enqueue(work, queued, next[i]);
+            int gapAfter = prevEnd(oldPrev);
+            int gapBefore = nextStart(oldNext);
+            IntList near = gapAfter == OPEN_END ? null : startingOn.get(dayKey(capacities[a], gapAfter + 1));
+            for (int k = 0; near != null && k < near.size(); k++) enqueue(work, queued, near.get(k));
+            near = gapBefore == OPEN_START ? null : endingOn.get(dayKey(capacities[a], gapBefore - 1));
+            for (int k = 0; near != null && k < near.size(); k++) enqueue(work, queued, near.get(k));
+        }
+        link();
+    }
+
+    private void enqueue(IntList work, boolean[] queued, int i) {
+        if (i < 0 || i >= count || queued[i]) return;
+        queued[i] = true;
+        work.add(i);
+    }
+
+    // Tenta mudar o pedido i para o quarto da mesma capacidade com a maior redução de custo (já com MOVE_COST)
+    private boolean relocate(int i, HashMap<Long, IntList> endingOn, HashMap<Long, IntList> startingOn) {
+        int a = room[i];
+        int s = starts[i];
+        int e = ends[i];
+        // O que se poupa ao tirá-lo de a (se a não for o quarto original, também deixa de contar como mudança)
+        int gain = insertCost(prevEnd(prev[i]), s, e, nextStart(next[i])) + moveCost(i, a);
+
+        int bestDelta = 0;
+        int bestRoom = -1;
+        int bestPrev = -1;
+
+        IntList before = endingOn.get(dayKey(capacities[a], s - 1));
+        for (int k = 0; before != null && k < before.size(); k++) {
+            int p = before.get(k);
+            int b = room[p];
+            if (b == a || b < 0) continue;
+            int n = next[p];
+            if (n >= 0 && starts[n] <= e) continue; // Não cabe
+            int delta = insertCost(ends[p], s, e, nextStart(n)) + moveCost(i, b) - gain;
+            if (delta < bestDelta) {
+                bestDelta = delta;
+                bestRoom = b;
+                bestPrev = p;
+            }
+        }
+
+        IntList after = startingOn.get(dayKey(capacities[a], e + 1));
+        for (int k = 0; after != null && k < after.size(); k++) {
+            int n = after.get(k);
+            int b = room[n];
+            if (b == a || b < 0) continue;
+            int p = prev[n];
+            if (prevEnd(p) >= s) continue;
+            int delta = insertCost(prevEnd(p), s, e, starts[n]) + moveCost(i, b) - gain;
+            if (delta < bestDelta) {
+                bestDelta = delta;
+                bestRoom = b;
+                bestPrev = p;
+            }
+        }
+
+        if (bestRoom < 0) return false;
+        unlink(i);
+        insertAfter(i, bestRoom, bestPrev);
+        return true;
+    }
+
+    private int moveCost(int i, int r) {
+        return r == original[i] ? 0 : MOVE_COST;
+    }
+
+    // Fim da estadia anterior: a do item p ou extremo aberto (p < 0)
+    private int prevEnd(int p) {
+        return p >= 0 ? ends[p] : OPEN_END;
+    }
+
+    private int nextStart(int n) {
+        return n >= 0 ? starts[n] : OPEN_START;
+    }
+
+    private void unlink(int i) {
+        if (prev[i] >= 0) next[prev[i]] = next[i];
+        else first[room[i]] = next[i];
+        if (next[i] >= 0) prev[next[i]] = prev[i];
+        room[i] = -1;
+    }
+
+    // Põe o pedido i no quarto r a seguir a p (p < 0: no início)
+    private void insertAfter(int i, int r, int p) {
+        room[i] = r;
+        if (p >= 0) {
+            prev[i] = p;
+            next[i] = next[p];
+            next[p] = i;
+        } else {
+            prev[i] = -1;
+            next[i] = first[r];
+            first[r] = i;
+        }
+        if (next[i] >= 0) prev[next[i]] = i;
+    }
+
+    private static long dayKey(int capacity, int day) {
+        return ((long) day << 3) | capacity;
+    }
+
+    private static IntList listAt(HashMap<Long, IntList> map, int capacity, int day) {
+        return map.computeIfAbsent(dayKey(capacity, day), k -> new IntList());
+    }
+
+    // Refaz as listas de cada quarto a partir de room (por ordem de check-in) e recalcula o custo
+    private void link() {
+        Arrays.fill(first, -1);
+        int[] last = new int[roomIds.length];
+        Arrays.fill(last, -1);
+        for (long key : byStart(0, room.length)) {
+            int i = (int) key;
+            int r = room[i];
+            if (r < 0) continue;
+            prev[i] = last[r];
+            next[i] = -1;
+            if (last[r] >= 0) next[last[r]] = i;
+            else first[r] = i;
+            last[r] = i;
+        }
+
+        score = 0;
+        gaps = 0;
+        shortGaps = 0;
+        for (int r = 0; r < roomIds.length; r++) {
+            int end = OPEN_END;
+            for (int i = first[r]; i >= 0; i = next[i]) {
+                countGap(end, starts[i]);
+                end = ends[i];
+            }
+            countGap(end, OPEN_START);
+        }
+    }
+
+    private void countGap(int prevEnd, int nextStart) {
+        score += gapCost(prevEnd, nextStart);
+        if (prevEnd == OPEN_END || nextStart == OPEN_START || nextStart - prevEnd - 1 <= 0) return;
+        gaps++;
+        if (nextStart - prevEnd - 1 <= SHORT_GAP) shortGaps++;
+    }
+
+    // ---- Resultado ----
+
+    public int size() { return count; }
+
+    // Id do quarto atribuído ao pedido i (-1 se não coube)
+    public int roomOf(int i) { return room[i] < 0 ? -1 : roomIds[room[i]]; }
+
+    public int unplaced() {
+        int n = 0;
+        for (int i = 0; i < count; i++) if (room[i] < 0) n++;
+        return n;
+    }
+
+    public int moved() {
+        int n = 0;
+        for (int i = 0; i < count; i++) if (room[i] != original[i]) n++;
+        return n;
+    }
+
+    public long score() { return score; }
+    public long originalScore() { return originalScore; }
+    public int gaps() { return gaps; }
+    public int shortGaps() { return shortGaps; }
+    public int originalShortGaps() { return originalShortGaps; }
+
+    // Custo poupado menos o custo das mudanças de quarto
+    public long netGain() { return originalScore - score - (long) MOVE_COST * moved(); }
+
+    // O plano só substitui a atribuição atual se colocar todos os pedidos e o ganho líquido chegar a
+    // MIN_GAIN_PERCENT do custo atual (um plano que muda muitos hóspedes para ganhar pouco não é aplicado)
+    public boolean isImprovement() {
+        long gain = netGain();
+        return unplaced() == 0 && gain > 0 && gain * 100 >= originalScore * MIN_GAIN_PERCENT;
+    }
+}
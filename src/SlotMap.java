@@ -0,0 +1,136 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Mapa de posições (slot map): guarda objetos em posições reutilizáveis e devolve uma "handle"
+// (geração << 32 | posição) que identifica o elemento. Inserir e remover custam O(1).
+// Remover incrementa a geração da posição, por isso handles antigas deixam de ser válidas
+// mesmo depois de a posição ser reutilizada. As posições livres formam uma lista ligada.
+// A ordem de inserção é mantida num array denso para as listagens; as remoções deixam lá uma
+// lápide (-1) e o array é compactado quando metade dele forem lápides (custo amortizado O(1)).
+public class SlotMap<T> implements Iterable<T> {
+
+    private static final int TOMBSTONE = -1;
+
+    private Object[] values = new Object[16];
+    private int[] generations = new int[16];
+    private int[] nextFree = new int[16];   // Lista de posições livres
+    private int[] densePos = new int[16];   // Posição -> índice no array denso
+    private int slotCount = 0;
+    private int freeHead = -1;
+
+    private int[] dense = new int[16];      // Ordem de inserção (posições, ou TOMBSTONE)
+    private int denseLength = 0;
+    private int tombstones = 0;
+    private int size = 0;
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    // Guarda o valor e retorna a handle
+    public long insert(T value) {
+        if (value == null) throw new IllegalArgumentException("value não pode ser null");
+
+        int slot;
+        if (freeHead >= 0) {
+            slot = freeHead;
+            freeHead = nextFree[slot];
+        } else {
+            if (slotCount == values.length) growSlots();
+            slot = slotCount++;
+        }
+        values[slot] = value;
+
+        if (denseLength == dense.length) dense = Arrays.copyOf(dense, denseLength * 2);
+        densePos[slot] = denseLength;
+        dense[denseLength++] = slot;
+        size++;
+
+        return handle(generations[slot], slot);
+    }
+
+    // Valor associado à handle, ou null se já tiver sido removido
+    @SuppressWarnings("unchecked")
+    public T get(long handle) {
+        int slot = (int) handle;
+        if (slot < 0 || slot >= slotCount || generations[slot] != (int) (handle >>> 32)) return null;
+        return (T) values[slot];
+    }
+
+    // Remove o elemento da handle. Retorna false se a handle já não for válida.
+    public boolean remove(long handle) {
+        int slot = (int) handle;
+        if (slot < 0 || slot >= slotCount || generations[slot] != (int) (handle >>> 32) || values[slot] == null) return false;
+
+        values[slot] = null;
+        generations[slot] = (generations[slot] + 1) & Integer.MAX_VALUE; // Mantém as handles positivas
+        nextFree[slot] = freeHead;
+        freeHead = slot;
+
+        dense[densePos[slot]] = TOMBSTONE;
+        tombstones++;
+        size--;
+        if (tombstones > 16 && tombstones * 2 > denseLength) compactDense();
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0, slotCount, null);
+        slotCount = 0;
+        freeHead = -1;
+        denseLength = 0;
+        tombstones = 0;
+        size = 0;
+    }
+
+    // Percorre os elementos pela ordem de inserção
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int i = skip(0);
+
+            private int skip(int from) {
+                while (from < denseLength && dense[from] == TOMBSTONE) from++;
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() { return i < denseLength; }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (i >= denseLength) throw new NoSuchElementException();
+                T value = (T) values[dense[i]];
+                i = skip(i + 1);
+                return value;
+            }
+        };
+    }
+
+    private static long handle(int generation, int slot) {
+        return ((long) generation << 32) | slot;
+    }
+
+    // Remove as lápides do array denso sem alterar a ordem dos restantes
+    private void compactDense() {
+        int j = 0;
+        for (int i = 0; i < denseLength; i++) {
+            int slot = dense[i];
+            if (slot == TOMBSTONE) continue;
+            dense[j] = slot;
+            densePos[slot] = j++;
+        }
+        denseLength = j;
+        tombstones = 0;
+    }
+
+    private void growSlots() {
+        int capacity = values.length * 2;
+        values = Arrays.copyOf(values, capacity);
+        generations = Arrays.copyOf(generations, capacity);
+        nextFree = Arrays.copyOf(nextFree, capacity);
+        densePos = Arrays.copyOf(densePos, capacity);
+    }
+}
@@ -0,0 +1,221 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+// Lista de espera: pedidos "um quarto para N hóspedes nestas datas" feitos quando não havia nenhum quarto livre.
+// Os pedidos à espera estão indexados por nº de hóspedes (grupo 1..6) e datas: em cada grupo, um TreeMap de
+// (início << 32 | fim) para uma fila de prioridade por ordem de pedido (o id é crescente).
+// Quando um cancelamento liberta um quarto, match procura nos grupos até à capacidade do quarto só as chaves com
+// check-in dentro do intervalo livre (subMap), e fica com a cabeça mais antiga das filas que cabem: O(log n + k),
+// com k = nº de pares de datas distintos com check-in nesse intervalo, sem percorrer a lista toda.
+// Estados de um pedido: à espera, quarto oferecido (offeredRoom; o quarto não fica reservado) ou reservado (reservationId).
+// Os oferecidos e reservados ficam na lista até serem retirados, para a receção avisar o hóspede; os que ainda estão
+// à espera quando o check-in passa já não podem ser atendidos e saem (expire).
+public class Waitlist {
+
+    public static final class Entry {
+        private final int id;
+        private final int guestId;
+        private final int numberOfGuests;
+        private final int startDay;
+        private final int endDay;
+        private final boolean autoBook; // Reservar logo quando houver quarto (senão, só oferecer)
+        private int offeredRoom;        // 0 = nenhum
+        private int reservationId;      // 0 = ainda sem reserva
+
+        Entry(int id, int guestId, int numberOfGuests, int startDay, int endDay, boolean autoBook) {
+            this.id = id;
+            this.guestId = guestId;
+            this.numberOfGuests = numberOfGuests;
+            this.startDay = startDay;
+            this.endDay = endDay;
+            this.autoBook = autoBook;
+        }
+
+        public int getId() { return id; }
+        public int getGuestId() { return guestId; }
+        public int getNumberOfGuests() { return numberOfGuests; }
+        public int getStartDay() { return startDay; }
+        public int getEndDay() { return endDay; }
+        public boolean isAutoBook() { return autoBook; }
+        public int getOfferedRoom() { return offeredRoom; }
+        public int getReservationId() { return reservationId; }
+        public boolean isWaiting() { return offeredRoom == 0 && reservationId == 0; }
+
+        @Override
+        public String toString() {
+            String state = reservationId != 0 ? "Reservado (reserva " + reservationId + ")"
+                    : offeredRoom != 0 ? "Quarto " + offeredRoom + " oferecido" : "À espera";
+            return "Pedido " + id + ": hóspede " + guestId + ", " + numberOfGuests + " hóspede(s), " + EpochDay.format(startDay)
+                    + " a " + EpochDay.format(endDay) + (autoBook ? ", reserva automática" : ", só aviso") + " - " + state;
+        }
+    }
+
+    private static final Comparator<Entry> BY_REQUEST = Comparator.comparingInt(Entry::getId);
+
+    private final TreeMap<Integer, Entry> entries = new TreeMap<>(); // Todos os pedidos, por id
+    private final List<TreeMap<Long, PriorityQueue<Entry>>> waiting = new ArrayList<>(); // Por nº de hóspedes
+    private int nextId = 1;
+
+    public Waitlist() {
+        for (int c = 0; c <= HotelEngine.MAX_CAPACITY; c++) waiting.add(new TreeMap<>());
+    }
+
+    public int size() { return entries.size(); }
+
+    public boolean isEmpty() { return entries.isEmpty(); }
+
+    int nextId() { return nextId; }
+
+    // Acrescenta um pedido (já validado); id 0 = próximo id
+    Entry add(int id, int guestId, int numberOfGuests, int startDay, int endDay, boolean autoBook) {
+        Entry e = new Entry(id == 0 ? nextId : id, guestId, numberOfGuests, startDay, endDay, autoBook);
+        entries.put(e.id, e);
+        nextId = Math.max(nextId, e.id + 1);
+        index(e);
+        return e;
+    }
+
+    Entry get(int id) { return entries.get(id); }
+
+    boolean remove(int id) {
+        Entry e = entries.remove(id);
+        if (e == null) return false;
+        if (e.isWaiting()) unindex(e);
+        return true;
+    }
+
+    // Oferece o quarto roomId ao pedido (0 = volta a ficar à espera)
+    void offer(Entry e, int roomId) {
+        if (e.isWaiting()) unindex(e);
+        e.offeredRoom = roomId;
+        if (e.isWaiting()) index(e);
+    }
+
+    void booked(Entry e, int reservationId) {
+        if (e.isWaiting()) unindex(e);
+        e.reservationId = reservationId;
+    }
+
+    // Pedido à espera mais antigo, com no máximo capacity hóspedes, que cabe em [gapStart, gapEnd] e tem o check-in
+    // até lastStart (ex.: o último dia libertado). null se não houver.
+    Entry match(int capacity, int gapStart, int gapEnd, int lastStart) {
+        int maxStart = Math.min(gapEnd, lastStart);
+        if (gapStart > maxStart) return null;
+        Entry best = null;
+        for (int c = HotelEngine.MIN_CAPACITY; c <= Math.min(capacity, HotelEngine.MAX_CAPACITY); c++) {
+            NavigableMap<Long, PriorityQueue<Entry>> candidates = waiting.get(c).subMap((long) gapStart << 32, true, key(maxStart, -1), true);
+            for (Map.Entry<Long, PriorityQueue<Entry>> dates : candidates.entrySet()) {
+                if ((int) (long) dates.getKey() > gapEnd) continue; // Check-out depois do fim do intervalo
+                Entry head = dates.getValue().peek();
+                if (best == null || head.id < best.id) best = head;
+            }
+        }
+        return best;
+    }
+
+    // Retira os pedidos à espera com check-in antes de today e retorna quantos saíram. Como as chaves começam pelo
+    // check-in, só percorre os que saem.
+    int expire(int today) {
+        int n = 0;
+        for (TreeMap<Long, PriorityQueue<Entry>> bucket : waiting) {
+            NavigableMap<Long, PriorityQueue<Entry>> stale = bucket.headMap((long) today << 32, false);
+            for (PriorityQueue<Entry> queue : stale.values()) {
+                for (Entry e : queue) entries.remove(e.id);
+                n += queue.size();
+            }
+            stale.clear();
+        }
+        return n;
+    }
+
+    // Cópia dos pedidos, por id (os estados são copiados: a lista pode ser gravada sem trincos)
+    List<Entry> entries() {
+        ArrayList<Entry> copy = new ArrayList<>(entries.size());
+        for (Entry e : entries.values()) {
+            Entry c = new Entry(e.id, e.guestId, e.numberOfGuests, e.startDay, e.endDay, e.autoBook);
+            c.offeredRoom = e.offeredRoom;
+            c.reservationId = e.reservationId;
+            copy.add(c);
+        }
+        return copy;
+    }
+
+    void clear() {
+        entries.clear();
+        for (TreeMap<Long, PriorityQueue<Entry>> bucket : waiting) bucket.clear();
+        nextId = 1;
+    }
+
+    // Ordena por início e depois por fim (o fim é lido sem sinal: -1 é o maior)
+    private static long key(int startDay, int endDay) {
+        return ((long) startDay << 32) | (endDay & 0xFFFFFFFFL);
+    }
+
+    private void index(Entry e) {
+        waiting.get(e.numberOfGuests).computeIfAbsent(key(e.startDay, e.endDay), k -> new PriorityQueue<>(BY_REQUEST)).add(e);
+    }
+
+    private void unindex(Entry e) {
+        TreeMap<Long, PriorityQueue<Entry>> bucket = waiting.get(e.numberOfGuests);
+        long k = key(e.startDay, e.endDay);
+        PriorityQueue<Entry> queue = bucket.get(k);
+        if (queue != null && queue.remove(e) && queue.isEmpty()) bucket.remove(k);
+    }
+
+    // ---- Ficheiro (espera.csv) ----
+
+    // id,guestId,numberOfGuests,startDate,endDate,autoBook,offeredRoom,reservationId
+    static void writeCsv(File f, List<Entry> rows) throws IOException {
+        try (PrintWriter pw = new PrintWriter(f, StandardCharsets.UTF_8)) {
+            pw.println("id,guestId,numberOfGuests,startDate,endDate,autoBook,offeredRoom,reservationId");
+            StringBuilder sb = new StringBuilder();
+            for (Entry e : rows) {
+                sb.setLength(0);
+                sb.append(e.id).append(',').append(e.guestId).append(',').append(e.numberOfGuests).append(',');
+                EpochDay.append(sb, e.startDay).append(',');
+                EpochDay.append(sb, e.endDay).append(',').append(e.autoBook).append(',').append(e.offeredRoom).append(',').append(e.reservationId);
+                pw.println(sb);
+            }
+            if (pw.checkError()) throw new IOException("falha ao escrever " + f);
+        }
+    }
+
+    // Substitui o conteúdo pelos pedidos do ficheiro; linhas inválidas são ignoradas
+    void readCsv(File f) {
+        clear();
+        if (!f.exists()) return;
+        try (MappedCsvReader in = new MappedCsvReader(f)) {
+            in.nextRow(); // header
+            while (in.nextRow()) {
+                try {
+                    if (in.fieldCount() < 8) continue;
+                    int id = in.readInt();
+                    int guestId = in.readInt();
+                    int nGuests = in.readInt();
+                    int start = in.readEpochDay();
+                    int end = in.readEpochDay();
+                    boolean autoBook = in.readBoolean();
+                    int offeredRoom = in.readInt();
+                    int reservationId = in.readInt();
+                    if (nGuests < HotelEngine.MIN_CAPACITY || nGuests > HotelEngine.MAX_CAPACITY) continue;
+
+                    Entry e = add(id, guestId, nGuests, start, end, autoBook);
+                    if (reservationId != 0) booked(e, reservationId);
+                    else if (offeredRoom != 0) offer(e, offeredRoom);
+                } catch (Exception ignore) {
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("Erro ao carregar a lista de espera: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Escrita em segundo plano (write-behind): uma única thread de escrita grava o diário em grupo
+// e faz as compactações (reescrita dos CSV), para que as operações não esperem pelo disco.
+// Modos de durabilidade (-Dhotel.persistence=commit|group|shutdown):
+// - COMMIT: cada alteração é escrita no diário antes de a operação retornar (fsync a cada hotel.journal.syncEvery);
+// - GROUP: as alterações ficam em fila e são escritas juntas, com um só fsync, a cada hotel.persistence.intervalMs
+//   ou quando a fila chega a hotel.persistence.batch (pode perder-se o último intervalo se o processo morrer);
+// - SHUTDOWN: nada é escrito durante a execução; as tabelas alteradas são gravadas ao fechar (ou no shutdown hook).
+// Em COMMIT e GROUP a compactação corre nesta thread quando o diário passa de hotel.journal.compactAfter registos.
+public class WriteBehind {
+
+    public enum Mode {
+        COMMIT, GROUP, SHUTDOWN;
+
+        static Mode parse(String s) {
+            try {
+                return valueOf(s.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.out.println("Modo de persistência desconhecido: " + s + " (a usar commit)");
+                return COMMIT;
+            }
+        }
+    }
+
+    static final Mode DEFAULT_MODE = Mode.parse(System.getProperty("hotel.persistence", "commit"));
+    static final int GROUP_COMMIT_MILLIS = Integer.getInteger("hotel.persistence.intervalMs", 50);
+    static final int GROUP_COMMIT_BATCH = Integer.getInteger("hotel.persistence.batch", 256);
+
+    private final Mode mode;
+    private final Journal journal; // Também é o trinco das escritas no diário
+    private final int compactAfter;
+    private Runnable compaction; // Corre na thread de escrita
+    private final Metrics metrics;
+
+    private final Object lock = new Object(); // Protege a fila e os pedidos à thread
+    private ArrayList<String> pending = new ArrayList<>();
+    private boolean compactionRequested = false;
+    private boolean running = false;
+    private Thread thread;
+
+    public WriteBehind(Mode mode, Journal journal, int compactAfter, Metrics metrics) {
+        this.mode = mode;
+        this.journal = journal;
+        this.compactAfter = compactAfter;
+        this.metrics = metrics;
+    }
+
+    public Mode mode() { return mode; }
+
+    // Arranca a thread de escrita; compaction é chamada nela quando o diário fica grande
+    public void start(Runnable compaction) {
+        synchronized (lock) {
+            if (running || mode == Mode.SHUTDOWN) return;
+            this.compaction = compaction;
+            running = true;
+            thread = new Thread(this::run, "hotel-writer");
+            thread.setDaemon(true); // O fecho do motor (ou o shutdown hook) grava o que faltar
+            thread.start();
+        }
+    }
+
+    // Regista uma alteração. Chamado pelo motor com os seus trincos, pela ordem das alterações.
+    public void submit(String record) throws IOException {
+        switch (mode) {
+            case COMMIT -> {
+                int records;
+                synchronized (journal) {
+                    journal.append(record);
+                    records = journal.recordCount();
+                }
+                if (records >= compactAfter) requestCompaction();
+            }
+            case GROUP -> {
+                synchronized (lock) {
+                    pending.add(record);
+                    if (pending.size() >= GROUP_COMMIT_BATCH) lock.notifyAll();
+                }
+            }
+            case SHUTDOWN -> {
+            }
+        }
+    }
+
+    // Regista várias alterações seguidas; em COMMIT são escritas de uma vez, com o fsync de hotel.journal.syncEvery
+    public void submitAll(List<String> records) throws IOException {
+        if (records.isEmpty()) return;
+        switch (mode) {
+            case COMMIT -> {
+                int count;
+                synchronized (journal) {
+                    journal.appendAll(records, false);
+                    count = journal.recordCount();
+                }
+                if (count >= compactAfter) requestCompaction();
+            }
+            case GROUP -> {
+                synchronized (lock) {
+                    pending.addAll(records);
+                    if (pending.size() >= GROUP_COMMIT_BATCH) lock.notifyAll();
+                }
+            }
+            case SHUTDOWN -> {
+            }
+        }
+    }
+
+    public void requestCompaction() {
+        synchronized (lock) {
+            compactionRequested = true;
+            lock.notifyAll();
+        }
+    }
+
+    public int pendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    // Escreve no diário as alterações em fila, com um só fsync. A fila é trocada dentro do trinco do diário
+    // para que duas chamadas seguidas nunca escrevam os registos fora de ordem.
+    public void flushPending() throws IOException {
+        synchronized (journal) {
+            ArrayList<String> batch;
+            synchronized (lock) {
+                if (pending.isEmpty()) return;
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+            long t0 = Metrics.start();
+            journal.appendAll(batch, true); // Em GROUP o fsync do lote é a garantia do modo
+            metrics.record(Metrics.Operation.GROUP_COMMIT, t0);
+            if (journal.recordCount() >= compactAfter) requestCompaction();
+        }
+    }
+
+    // Para a thread de escrita e grava a fila (a compactação final fica a cargo de quem fecha o motor)
+    public void stop() {
+        Thread t;
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+            t = thread;
+            thread = null;
+        }
+        if (t != null && t != Thread.currentThread()) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            flushPending();
+        } catch (IOException e) {
+            System.out.println("Erro ao escrever no diário: " + e.getMessage());
+        }
+    }
+
+    private void run() {
+        while (true) {
+            boolean compact;
+            synchronized (lock) {
+                long deadline = System.currentTimeMillis() + GROUP_COMMIT_MILLIS;
+                while (running && !compactionRequested && !(mode == Mode.GROUP && pending.size() >= GROUP_COMMIT_BATCH)) {
+                    long wait = mode == Mode.GROUP ? deadline - System.currentTimeMillis() : 0;
+                    if (mode == Mode.GROUP && wait <= 0) break;
+                    try {
+                        lock.wait(wait);
+                    } catch (InterruptedException e) {
+                        running = false;
+                    }
+                }
+                if (!running) return;
+                compact = compactionRequested;
+                compactionRequested = false;
+            }
+
+            try {
+                flushPending();
+            } catch (IOException e) {
+                System.out.println("Erro ao escrever no diário: " + e.getMessage());
+                compact = true; // As alterações estão nas tabelas em memória; a compactação grava-as nos CSV
+            }
+            if (compact) {
+                try {
+                    compaction.run();
+                } catch (RuntimeException e) {
+                    System.out.println("Erro na compactação: " + e.getMessage());
+                }
+            }
+        }
+    }
+}